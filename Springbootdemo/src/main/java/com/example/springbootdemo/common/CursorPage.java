@@ -0,0 +1,33 @@
+package com.example.springbootdemo.common;
+
+import lombok.Data;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * 游标分页结果（keyset 分页，不使用 OFFSET）
+ */
+@Data
+public class CursorPage<T> implements Serializable {
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    // 当前页数据
+    private List<T> items;
+
+    // 下一页游标，没有更多数据时为 null
+    private String nextCursor;
+
+    // 是否还有更多数据
+    private boolean hasMore;
+
+    public static <T> CursorPage<T> of(List<T> items, String nextCursor) {
+        CursorPage<T> page = new CursorPage<>();
+        page.setItems(items);
+        page.setNextCursor(nextCursor);
+        page.setHasMore(nextCursor != null);
+        return page;
+    }
+}
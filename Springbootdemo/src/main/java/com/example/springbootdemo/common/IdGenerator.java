@@ -0,0 +1,46 @@
+package com.example.springbootdemo.common;
+
+import java.security.SecureRandom;
+import java.util.UUID;
+
+/**
+ * 按时间递增的 ID 生成器（UUIDv7）
+ * 高 48 位为毫秒时间戳，随后 12 位为同一毫秒内的递增序号，其余为随机数。
+ * 生成的字符串与普通 UUID 格式相同，按字典序即按生成时间排序，
+ * 作为 InnoDB 主键时新行总是追加在聚簇索引末尾，避免随机 UUID 造成的页分裂和碎片。
+ */
+public final class IdGenerator {
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private static long lastMillis;
+    private static int sequence;
+
+    private IdGenerator() {
+    }
+
+    /**
+     * 生成 UUIDv7 字符串（小写，36 位）
+     */
+    public static String uuidV7() {
+        long millis;
+        int seq;
+        synchronized (IdGenerator.class) {
+            long now = System.currentTimeMillis();
+            if (now > lastMillis) {
+                lastMillis = now;
+                // 序号从随机值开始，留出一半空间给同一毫秒内的后续 ID
+                sequence = RANDOM.nextInt(1 << 11);
+            } else if (++sequence >= 1 << 12) {
+                // 同一毫秒内序号用完（或时钟回拨），借用下一毫秒，保证单调递增
+                lastMillis++;
+                sequence = 0;
+            }
+            millis = lastMillis;
+            seq = sequence;
+        }
+        long msb = (millis << 16) | (0x7L << 12) | seq;
+        long lsb = (RANDOM.nextLong() & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L;
+        return new UUID(msb, lsb).toString();
+    }
+}
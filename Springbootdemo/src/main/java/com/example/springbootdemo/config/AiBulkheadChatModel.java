@@ -0,0 +1,272 @@
+package com.example.springbootdemo.config;
+
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * AI 调用隔离舱
+ * 限制同时进行的模型调用数和排队数，单次调用超时，连续失败后熔断快速失败，
+ * 避免 DashScope 变慢时占满 Tomcat 线程拖垮其他接口。
+ * 异步任务通过 {@link #background} 调用：已在任务线程池中排队，等待许可时不受排队上限和排队超时限制
+ */
+public class AiBulkheadChatModel implements ChatModel {
+
+    private static final Logger logger = LoggerFactory.getLogger(AiBulkheadChatModel.class);
+
+    /** 当前线程上的调用来自异步任务 */
+    private static final ThreadLocal<Boolean> BACKGROUND = new ThreadLocal<>();
+
+    private final ChatModel delegate;
+    private final ExecutorService executor;
+    private final Semaphore permits;
+    private final int maxWaiting;
+    private final long waitTimeoutMillis;
+    private final long callTimeoutMillis;
+    private final int failureThreshold;
+    private final long openMillis;
+
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final AtomicInteger backgroundWaiting = new AtomicInteger();
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private final AtomicBoolean halfOpenTrial = new AtomicBoolean();
+    /** 熔断截止时间，0 表示闭合 */
+    private volatile long openUntil;
+
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+    private final AtomicLong shortCircuited = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+
+    public AiBulkheadChatModel(ChatModel delegate, ExecutorService executor, int maxConcurrent, int maxWaiting,
+                               long waitTimeoutMillis, long callTimeoutMillis, int failureThreshold, long openMillis) {
+        this.delegate = delegate;
+        this.executor = executor;
+        this.permits = new Semaphore(maxConcurrent, true);
+        this.maxWaiting = maxWaiting;
+        this.waitTimeoutMillis = waitTimeoutMillis;
+        this.callTimeoutMillis = callTimeoutMillis;
+        this.failureThreshold = failureThreshold;
+        this.openMillis = openMillis;
+    }
+
+    /**
+     * 以异步任务身份执行：其中的模型调用等待许可最长到单次调用超时，不占用交互请求的排队名额。
+     * 任务线程数不应超过并发上限，否则任务之间仍会互相等待到超时
+     */
+    public static <T> T background(Supplier<T> call) {
+        BACKGROUND.set(Boolean.TRUE);
+        try {
+            return call.get();
+        } finally {
+            BACKGROUND.remove();
+        }
+    }
+
+    @Override
+    public ChatResponse chat(ChatRequest chatRequest) {
+        return guarded(() -> delegate.chat(chatRequest));
+    }
+
+    @Override
+    public ChatResponse chat(List<ChatMessage> list) {
+        return guarded(() -> delegate.chat(list));
+    }
+
+    /**
+     * 许可在任务真正结束时（任务自身的 finally）才释放：DashScope 的 HTTP 调用不响应中断，
+     * 调用方超时返回后线程仍被占用，提前释放会让实际并发超过上限。
+     * 任务还在排队时被取消则由调用方释放，二者通过 started 只释放一次。
+     */
+    private ChatResponse guarded(Callable<ChatResponse> call) {
+        boolean trial = checkCircuit();
+        acquire(trial);
+        AtomicBoolean started = new AtomicBoolean();
+        Future<ChatResponse> future;
+        try {
+            future = executor.submit(() -> {
+                if (!started.compareAndSet(false, true)) {
+                    return null;
+                }
+                try {
+                    return call.call();
+                } finally {
+                    permits.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            permits.release();
+            releaseTrial(trial);
+            rejected.incrementAndGet();
+            throw new AiUnavailableException("AI 服务繁忙，请稍后再试");
+        }
+        try {
+            ChatResponse response = future.get(callTimeoutMillis, TimeUnit.MILLISECONDS);
+            onSuccess();
+            return response;
+        } catch (TimeoutException e) {
+            cancel(future, started);
+            timeouts.incrementAndGet();
+            onFailure(trial);
+            throw new AiUnavailableException("AI 服务响应超时，请稍后再试");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            // 配置类错误（如未设置 API Key）不计入熔断
+            if (cause instanceof IllegalStateException || cause instanceof IllegalArgumentException) {
+                releaseTrial(trial);
+                throw (RuntimeException) cause;
+            }
+            onFailure(trial);
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new AiUnavailableException("AI 服务调用失败: " + cause);
+        } catch (InterruptedException e) {
+            cancel(future, started);
+            releaseTrial(trial);
+            Thread.currentThread().interrupt();
+            throw new AiUnavailableException("AI 调用被中断");
+        }
+    }
+
+    /**
+     * 取消调用：尚未开始执行时由这里释放许可，已在执行时许可由任务结束时释放
+     */
+    private void cancel(Future<ChatResponse> future, AtomicBoolean started) {
+        future.cancel(true);
+        if (started.compareAndSet(false, true)) {
+            permits.release();
+        }
+    }
+
+    /**
+     * 检查熔断状态
+     * @return 是否为半开状态下的试探调用
+     */
+    private boolean checkCircuit() {
+        long until = openUntil;
+        if (until == 0) {
+            return false;
+        }
+        if (System.currentTimeMillis() < until || !halfOpenTrial.compareAndSet(false, true)) {
+            shortCircuited.incrementAndGet();
+            throw new AiUnavailableException("AI 服务暂时不可用（已熔断），请稍后再试");
+        }
+        return true;
+    }
+
+    private void acquire(boolean trial) {
+        if (permits.tryAcquire()) {
+            return;
+        }
+        if (Boolean.TRUE.equals(BACKGROUND.get())) {
+            acquireBackground(trial);
+            return;
+        }
+        if (waiting.incrementAndGet() > maxWaiting) {
+            waiting.decrementAndGet();
+            releaseTrial(trial);
+            rejected.incrementAndGet();
+            throw new AiUnavailableException("AI 服务繁忙，请稍后再试");
+        }
+        try {
+            if (!permits.tryAcquire(waitTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                releaseTrial(trial);
+                rejected.incrementAndGet();
+                throw new AiUnavailableException("AI 服务繁忙，排队超时，请稍后再试");
+            }
+        } catch (InterruptedException e) {
+            releaseTrial(trial);
+            Thread.currentThread().interrupt();
+            throw new AiUnavailableException("AI 调用被中断");
+        } finally {
+            waiting.decrementAndGet();
+        }
+    }
+
+    private void acquireBackground(boolean trial) {
+        backgroundWaiting.incrementAndGet();
+        try {
+            if (!permits.tryAcquire(callTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                releaseTrial(trial);
+                rejected.incrementAndGet();
+                throw new AiUnavailableException("AI 服务繁忙，排队超时，请稍后再试");
+            }
+        } catch (InterruptedException e) {
+            releaseTrial(trial);
+            Thread.currentThread().interrupt();
+            throw new AiUnavailableException("AI 调用被中断");
+        } finally {
+            backgroundWaiting.decrementAndGet();
+        }
+    }
+
+    private void onSuccess() {
+        consecutiveFailures.set(0);
+        if (openUntil != 0) {
+            logger.info("AI 熔断器恢复闭合");
+        }
+        openUntil = 0;
+        halfOpenTrial.set(false);
+    }
+
+    private void onFailure(boolean trial) {
+        failures.incrementAndGet();
+        if (trial || consecutiveFailures.incrementAndGet() >= failureThreshold) {
+            openUntil = System.currentTimeMillis() + openMillis;
+            halfOpenTrial.set(false);
+            logger.warn("AI 调用连续失败，熔断 {} ms", openMillis);
+        }
+    }
+
+    private void releaseTrial(boolean trial) {
+        if (trial) {
+            halfOpenTrial.set(false);
+        }
+    }
+
+    /**
+     * 隔离舱运行状态
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new HashMap<>();
+        long until = openUntil;
+        stats.put("circuit", until == 0 ? "CLOSED" : (System.currentTimeMillis() < until ? "OPEN" : "HALF_OPEN"));
+        stats.put("availablePermits", permits.availablePermits());
+        stats.put("waiting", waiting.get());
+        stats.put("backgroundWaiting", backgroundWaiting.get());
+        stats.put("rejected", rejected.get());
+        stats.put("timeouts", timeouts.get());
+        stats.put("failures", failures.get());
+        stats.put("shortCircuited", shortCircuited.get());
+        return stats;
+    }
+
+    /**
+     * AI 服务不可用（繁忙、超时或熔断）
+     */
+    public static class AiUnavailableException extends RuntimeException {
+        public AiUnavailableException(String message) {
+            super(message);
+        }
+    }
+}
@@ -4,8 +4,11 @@ import com.example.springbootdemo.service.ApiKeyService;
 import dev.langchain4j.community.model.dashscope.QwenChatModel;
 import dev.langchain4j.model.chat.ChatModel;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
 /**
  * AI Chat Model 配置
@@ -17,13 +20,34 @@ public class AiChatConfig {
     @Autowired
     private ApiKeyService apiKeyService;
 
+    @Value("${ai.bulkhead.max-concurrent:20}")
+    private int maxConcurrent;
+
+    @Value("${ai.bulkhead.max-waiting:50}")
+    private int maxWaiting;
+
+    @Value("${ai.bulkhead.wait-timeout-ms:2000}")
+    private long waitTimeoutMillis;
+
+    @Value("${ai.bulkhead.call-timeout-ms:60000}")
+    private long callTimeoutMillis;
+
+    @Value("${ai.bulkhead.failure-threshold:5}")
+    private int failureThreshold;
+
+    @Value("${ai.bulkhead.open-seconds:30}")
+    private long openSeconds;
+
     /**
      * 创建 QwenChatModel Bean
-     * 使用懒加载，每次调用时从 Redis 获取最新的 API Key
+     * 使用懒加载，每次调用时从 Redis 获取最新的 API Key，外层套一层隔离舱限流/超时/熔断
      */
     @Bean
-    public ChatModel qwenChatModel() {
+    public AiBulkheadChatModel qwenChatModel(@Qualifier("aiCallExecutor") ThreadPoolTaskExecutor aiCallExecutor) {
         // 返回一个代理实现，每次调用时动态获取 API Key
-        return new DynamicQwenChatModel(apiKeyService);
+        ChatModel dynamicModel = new DynamicQwenChatModel(apiKeyService);
+        return new AiBulkheadChatModel(dynamicModel, aiCallExecutor.getThreadPoolExecutor(),
+                maxConcurrent, maxWaiting, waitTimeoutMillis, callTimeoutMillis,
+                failureThreshold, openSeconds * 1000);
     }
 }
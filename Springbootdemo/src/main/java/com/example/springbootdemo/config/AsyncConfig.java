@@ -1,8 +1,12 @@
 package com.example.springbootdemo.config;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
 import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
 import java.util.concurrent.Executor;
@@ -10,10 +14,13 @@ import java.util.concurrent.ThreadPoolExecutor;
 
 /**
  * 异步任务配置
- * 为非核心业务操作提供异步执行能力，提升接口响应速度
+ * 为非核心业务操作提供异步执行能力，提升接口响应速度；同时开启定时任务（库存对账等）
+ * 虚拟线程模式下（见 {@link ThreadingConfig}）通用和消息线程池改为每个任务一个虚拟线程，不再排队；
+ * AI 相关线程池的大小本身就是并发上限，保持不变。
  */
 @Configuration
 @EnableAsync
+@EnableScheduling
 public class AsyncConfig {
 
     /**
@@ -21,7 +28,10 @@ public class AsyncConfig {
      * 用于缓存更新、日志记录等非关键操作
      */
     @Bean(name = "taskExecutor")
-    public Executor taskExecutor() {
+    public Executor taskExecutor(Environment environment) {
+        if (ThreadingConfig.virtualThreads(environment)) {
+            return virtualThreadExecutor("Async-Task-");
+        }
         ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
         
         // 核心线程数
@@ -55,7 +65,10 @@ public class AsyncConfig {
      * 用于消息推送、通知等操作
      */
     @Bean(name = "messageExecutor")
-    public Executor messageExecutor() {
+    public Executor messageExecutor(Environment environment) {
+        if (ThreadingConfig.virtualThreads(environment)) {
+            return virtualThreadExecutor("Message-Task-");
+        }
         ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
         executor.setCorePoolSize(20);
         executor.setMaxPoolSize(100);
@@ -68,4 +81,53 @@ public class AsyncConfig {
         executor.initialize();
         return executor;
     }
+
+    /**
+     * AI 模型调用专用线程池
+     * 与业务线程池隔离，线程数与 AI 隔离舱并发上限一致，满载时直接拒绝
+     */
+    @Bean(name = "aiCallExecutor")
+    public ThreadPoolTaskExecutor aiCallExecutor(@Value("${ai.bulkhead.max-concurrent:20}") int maxConcurrent) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(maxConcurrent);
+        executor.setMaxPoolSize(maxConcurrent);
+        executor.setQueueCapacity(maxConcurrent);
+        executor.setKeepAliveSeconds(60);
+        executor.setThreadNamePrefix("Ai-Call-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * AI 异步聊天任务线程池
+     * 提交任务后立即返回，模型调用在此线程池执行，不占用 Servlet 线程。
+     * 线程数与 AI 隔离舱并发上限一致，突发的任务在本线程池队列中排队，而不是涌入隔离舱后因排队超时失败
+     */
+    @Bean(name = "aiJobExecutor")
+    public ThreadPoolTaskExecutor aiJobExecutor(@Value("${ai.bulkhead.max-concurrent:20}") int maxConcurrent) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(maxConcurrent);
+        executor.setMaxPoolSize(maxConcurrent);
+        executor.setQueueCapacity(1000);
+        executor.setKeepAliveSeconds(60);
+        executor.setThreadNamePrefix("Ai-Job-");
+        // 队列满时拒绝，由任务服务标记失败，避免回落到调用线程执行
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(60);
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * 每个任务一个虚拟线程；关闭时最多等待 60 秒让已提交的任务完成
+     */
+    private static Executor virtualThreadExecutor(String threadNamePrefix) {
+        SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor(threadNamePrefix);
+        executor.setVirtualThreads(true);
+        executor.setTaskTerminationTimeout(60_000);
+        return executor;
+    }
 }
@@ -1,38 +1,111 @@
 package com.example.springbootdemo.config;
 
+import com.example.springbootdemo.entity.Friend;
+import com.example.springbootdemo.entity.FriendRequest;
+import com.example.springbootdemo.entity.Message;
+import com.example.springbootdemo.entity.User;
+import com.example.springbootdemo.service.CacheAccessRecorder;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonTypeInfo;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JavaType;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.jsontype.impl.LaissezFaireSubTypeValidator;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
 import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.CachingConfigurer;
 import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.interceptor.CacheErrorHandler;
+import org.springframework.cache.interceptor.SimpleCacheErrorHandler;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.cache.RedisCacheConfiguration;
 import org.springframework.data.redis.cache.RedisCacheManager;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
 import org.springframework.data.redis.serializer.RedisSerializationContext;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 
 import java.time.Duration;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
  * 缓存配置 - 支持高并发场景的缓存策略
- * 为不同的业务场景配置不同的缓存过期时间
+ * 为不同的业务场景配置不同的缓存过期时间；默认在 Redis 前增加本地缓存（两级缓存）
  */
 @Configuration
 @EnableCaching
-public class CacheConfig {
+public class CacheConfig implements CachingConfigurer {
+
+    private static final Logger logger = LoggerFactory.getLogger(CacheConfig.class);
+
+    /** 是否启用本地缓存（L1），关闭时只使用 Redis */
+    @Value("${cache.local.enabled:true}")
+    private boolean localEnabled;
+
+    /**
+     * 是否写入紧凑格式（滚动发布期间先关闭）。加载信息只写在紧凑格式的头部中，
+     * 关闭时 XFetch 提前刷新不生效，见 {@link CacheValueSerializer}
+     */
+    @Value("${cache.serializer.write-compact:false}")
+    private boolean writeCompact;
+
+    /** 紧凑格式数据超过该字节数时压缩，0 表示不压缩 */
+    @Value("${cache.serializer.compress-threshold:1024}")
+    private int compressThreshold;
+
+    /** XFetch 提前刷新系数，0 表示不提前刷新 */
+    @Value("${cache.stampede.early-refresh-beta:1.0}")
+    private double earlyRefreshBeta;
+
+    /** 回源租约时长（毫秒） */
+    @Value("${cache.stampede.lease-ms:3000}")
+    private long leaseMillis;
+
+    /** 是否检测热点 key 并固定到本地 */
+    @Value("${cache.hot-key.enabled:true}")
+    private boolean hotKeyEnabled;
+
+    @Value("${cache.hot-key.sketch-width:4096}")
+    private int hotKeySketchWidth;
+
+    @Value("${cache.hot-key.sketch-depth:4}")
+    private int hotKeySketchDepth;
+
+    @Value("${cache.hot-key.top-k:32}")
+    private int hotKeyTopK;
+
+    @Value("${cache.hot-key.min-count:50}")
+    private long hotKeyMinCount;
+
+    @Value("${cache.hot-key.min-ratio:0.01}")
+    private double hotKeyMinRatio;
+
+    @Value("${cache.hot-key.window-ms:1000}")
+    private long hotKeyWindowMillis;
+
+    /** 热点 key 本地副本的过期时间（毫秒），限制丢失失效通知时的不一致时长 */
+    @Value("${cache.hot-key.replica-ttl-ms:2000}")
+    private long hotKeyReplicaTtlMillis;
 
     /**
-     * 配置 Redis 缓存管理器
-     * 针对不同的缓存区域设置不同的过期时间
+     * 配置缓存管理器
+     * 针对不同的缓存区域设置不同的过期时间（Redis）和本地缓存容量、过期时间
      */
     @Bean
-    public CacheManager cacheManager(RedisConnectionFactory connectionFactory) {
+    public CacheManager cacheManager(RedisConnectionFactory connectionFactory, StringRedisTemplate stringRedisTemplate,
+                                     RedisMessageListenerContainer redisMessageListenerContainer,
+                                     CacheAccessRecorder cacheAccessRecorder, CacheMetrics cacheMetrics,
+                                     @Qualifier("redisConcurrencyLimiter") ConcurrencyLimiter redisConcurrencyLimiter) {
         // 配置 ObjectMapper 支持 Java 8 时间类型（Java 17 也使用同样的时间 API）
         ObjectMapper objectMapper = new ObjectMapper();
         // 注册 JavaTimeModule 支持 LocalDateTime, LocalDate 等
@@ -46,41 +119,111 @@ public class CacheConfig {
         
         // 使用配置好的 ObjectMapper 创建序列化器
         GenericJackson2JsonRedisSerializer serializer = new GenericJackson2JsonRedisSerializer(objectMapper);
-        
-        // 默认缓存配置：10 分钟过期
-        RedisCacheConfiguration defaultConfig = RedisCacheConfiguration.defaultCacheConfig()
+
+        // 已知值类型的区域使用紧凑序列化：不写类名，按类型解析，大值压缩
+        ObjectMapper compactMapper = new ObjectMapper();
+        compactMapper.registerModule(new JavaTimeModule());
+        compactMapper.setSerializationInclusion(JsonInclude.Include.NON_NULL);
+        // 新版本增加的字段，旧节点读取时忽略
+        compactMapper.disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+
+        // 默认缓存配置：10 分钟过期；未注册值类型的区域数据仍为带类名的 JSON，外层带加载信息
+        RedisCacheConfiguration defaultConfig = compact(RedisCacheConfiguration.defaultCacheConfig()
                 .entryTtl(Duration.ofMinutes(10))
                 .serializeKeysWith(RedisSerializationContext.SerializationPair.fromSerializer(new StringRedisSerializer()))
-                .serializeValuesWith(RedisSerializationContext.SerializationPair.fromSerializer(serializer))
-                .disableCachingNullValues();
+                .disableCachingNullValues(), compactMapper, null, serializer,
+                cacheMetrics.region(CacheMetrics.DEFAULT_REGION));
 
         // 为不同的缓存区域设置不同的过期时间
         Map<String, RedisCacheConfiguration> cacheConfigurations = new HashMap<>();
         
         // 用户信息缓存：30 分钟（高频读取，低频变更）
-        cacheConfigurations.put("user", 
-                defaultConfig.entryTtl(Duration.ofMinutes(30)));
+        cacheConfigurations.put("user", compact(defaultConfig, compactMapper,
+                compactMapper.constructType(User.class), serializer,
+                cacheMetrics.region("user"))
+                .entryTtl(Duration.ofMinutes(30)));
         
         // 好友列表缓存：15 分钟（中频读取，中频变更）
-        cacheConfigurations.put("friendList", 
-                defaultConfig.entryTtl(Duration.ofMinutes(15)));
+        cacheConfigurations.put("friendList", compact(defaultConfig, compactMapper,
+                compactMapper.getTypeFactory().constructCollectionType(List.class, Friend.class), serializer,
+                cacheMetrics.region("friendList"))
+                .entryTtl(Duration.ofMinutes(15)));
         
         // 好友请求缓存：5 分钟（高频变更）
-        cacheConfigurations.put("friendRequest", 
-                defaultConfig.entryTtl(Duration.ofMinutes(5)));
+        cacheConfigurations.put("friendRequest", compact(defaultConfig, compactMapper,
+                compactMapper.getTypeFactory().constructCollectionType(List.class, FriendRequest.class), serializer,
+                cacheMetrics.region("friendRequest"))
+                .entryTtl(Duration.ofMinutes(5)));
         
         // 聊天消息缓存：3 分钟（实时性要求高）
-        cacheConfigurations.put("chatMessages", 
-                defaultConfig.entryTtl(Duration.ofMinutes(3)));
+        cacheConfigurations.put("chatMessages", compact(defaultConfig, compactMapper,
+                compactMapper.getTypeFactory().constructCollectionType(List.class, Message.class), serializer,
+                cacheMetrics.region("chatMessages"))
+                .entryTtl(Duration.ofMinutes(3)));
         
         // 未读消息数缓存：1 分钟（需要快速更新）
-        cacheConfigurations.put("unreadCount", 
-                defaultConfig.entryTtl(Duration.ofMinutes(1)));
+        cacheConfigurations.put("unreadCount", compact(defaultConfig, compactMapper,
+                compactMapper.constructType(Integer.class), serializer,
+                cacheMetrics.region("unreadCount"))
+                .entryTtl(Duration.ofMinutes(1)));
+
+        // 本地缓存：过期时间短于 Redis，兜底丢失的失效通知；事务感知由两级缓存管理器统一处理
+        // 关闭本地缓存时容量为 0，只使用 Redis，防击穿仍然生效
+        int scale = localEnabled ? 1 : 0;
+        Map<String, TwoLevelCacheManager.LocalSpec> localSpecs = new HashMap<>();
+        localSpecs.put("user", new TwoLevelCacheManager.LocalSpec(10000 * scale, Duration.ofMinutes(5)));
+        localSpecs.put("friendList", new TwoLevelCacheManager.LocalSpec(5000 * scale, Duration.ofMinutes(1)));
+        localSpecs.put("friendRequest", new TwoLevelCacheManager.LocalSpec(5000 * scale, Duration.ofSeconds(30)));
+        localSpecs.put("chatMessages", new TwoLevelCacheManager.LocalSpec(2000 * scale, Duration.ofSeconds(10)));
+        localSpecs.put("unreadCount", new TwoLevelCacheManager.LocalSpec(10000 * scale, Duration.ofSeconds(10)));
 
-        return RedisCacheManager.builder(connectionFactory)
+        if (!writeCompact && earlyRefreshBeta > 0) {
+            logger.info("cache.serializer.write-compact 未开启：缓存值不带加载信息，XFetch 提前刷新暂不生效，只在过期后加载");
+        }
+        RedisCacheManager redisCacheManager = RedisCacheManager.builder(
+                        LimitedRedisConnectionFactory.wrap(connectionFactory, redisConcurrencyLimiter))
                 .cacheDefaults(defaultConfig)
                 .withInitialCacheConfigurations(cacheConfigurations)
-                .transactionAware()
                 .build();
+        redisCacheManager.initializeCaches();
+        HotKeyDetector hotKeyDetector = hotKeyEnabled
+                ? new HotKeyDetector(hotKeySketchWidth, hotKeySketchDepth, hotKeyTopK, hotKeyMinCount, hotKeyMinRatio,
+                        Duration.ofMillis(hotKeyWindowMillis))
+                : null;
+        return new TwoLevelCacheManager(redisCacheManager, localSpecs,
+                new TwoLevelCacheManager.LocalSpec(1000 * scale, Duration.ofMinutes(1)),
+                new TwoLevelCacheManager.LoadSpec(earlyRefreshBeta, leaseMillis),
+                stringRedisTemplate, redisMessageListenerContainer, cacheAccessRecorder::record,
+                new TwoLevelCacheManager.HotKeySpec(hotKeyDetector, Duration.ofMillis(hotKeyReplicaTtlMillis)),
+                cacheMetrics);
+    }
+
+    /**
+     * 按缓存区域统计的命中率、回源耗时、数据大小等指标
+     */
+    @Bean
+    public CacheMetrics cacheMetrics() {
+        return new CacheMetrics();
+    }
+
+    private RedisCacheConfiguration compact(RedisCacheConfiguration config, ObjectMapper compactMapper, JavaType type,
+                                            GenericJackson2JsonRedisSerializer legacySerializer,
+                                            CacheMetrics.Region stats) {
+        CacheValueSerializer serializer = new CacheValueSerializer(compactMapper, type, legacySerializer,
+                writeCompact, compressThreshold, stats);
+        return config.serializeValuesWith(RedisSerializationContext.SerializationPair.fromSerializer(serializer));
+    }
+
+    /**
+     * 缓存读取失败（Redis 不可用、格式无法识别）按未命中处理，回源查询；写入和失效失败仍然抛出
+     */
+    @Override
+    public CacheErrorHandler errorHandler() {
+        return new SimpleCacheErrorHandler() {
+            @Override
+            public void handleCacheGetError(RuntimeException exception, Cache cache, Object key) {
+                logger.warn("读取缓存失败，按未命中处理: cache={}, key={}, 错误: {}", cache.getName(), key, exception.toString());
+            }
+        };
     }
 }
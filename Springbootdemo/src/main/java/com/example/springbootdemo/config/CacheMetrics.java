@@ -0,0 +1,183 @@
+package com.example.springbootdemo.config;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 缓存指标（按缓存区域统计）
+ * 命中、未命中、回源耗时分布、失效、本地缓存命中与容量淘汰、Redis 读写的数据大小。
+ * 计数使用 LongAdder，记录在读取热路径上无锁；耗时分布为固定分桶的直方图，分位数取所在桶的上界。
+ */
+public class CacheMetrics {
+
+    /** 回源耗时分桶上界（毫秒），最后一个桶为无穷大 */
+    private static final long[] LOAD_BUCKETS_MS = {1, 2, 5, 10, 25, 50, 100, 250, 500, 1000, 2500, 5000};
+
+    /** 未单独配置的缓存区域共用的序列化器，数据大小记在该名称下 */
+    public static final String DEFAULT_REGION = "(default)";
+
+    private final Map<String, Region> regions = new ConcurrentHashMap<>();
+
+    public Region region(String name) {
+        return regions.computeIfAbsent(name, n -> new Region());
+    }
+
+    /**
+     * 所有区域的统计（用于监控），按区域名排序
+     */
+    public Map<String, Object> snapshot() {
+        Map<String, Object> snapshot = new TreeMap<>();
+        regions.forEach((name, region) -> snapshot.put(name, region.snapshot()));
+        return snapshot;
+    }
+
+    public static final class Region {
+
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder localHits = new LongAdder();
+        private final LongAdder misses = new LongAdder();
+        private final LongAdder loadFailures = new LongAdder();
+        private final LongAdder loadNanos = new LongAdder();
+        private final LongAdder[] loadBuckets = new LongAdder[LOAD_BUCKETS_MS.length + 1];
+        private final LongAdder puts = new LongAdder();
+        private final LongAdder evictions = new LongAdder();
+        private final LongAdder clears = new LongAdder();
+        private final LongAdder localEvictions = new LongAdder();
+        private final LongAdder payloadWrites = new LongAdder();
+        private final LongAdder payloadWriteBytes = new LongAdder();
+        private final LongAccumulator payloadMaxBytes = new LongAccumulator(Math::max, 0);
+        private final LongAdder payloadReads = new LongAdder();
+        private final LongAdder payloadReadBytes = new LongAdder();
+
+        Region() {
+            for (int i = 0; i < loadBuckets.length; i++) {
+                loadBuckets[i] = new LongAdder();
+            }
+        }
+
+        void hit() {
+            hits.increment();
+        }
+
+        /** 本地缓存（L1）命中，同时计入 hits */
+        void localHit() {
+            localHits.increment();
+        }
+
+        void miss() {
+            misses.increment();
+        }
+
+        void load(long nanos) {
+            loadNanos.add(nanos);
+            long millis = TimeUnit.NANOSECONDS.toMillis(nanos);
+            int i = 0;
+            while (i < LOAD_BUCKETS_MS.length && millis > LOAD_BUCKETS_MS[i]) {
+                i++;
+            }
+            loadBuckets[i].increment();
+        }
+
+        void loadFailure() {
+            loadFailures.increment();
+        }
+
+        void put() {
+            puts.increment();
+        }
+
+        void evict() {
+            evictions.increment();
+        }
+
+        void clear() {
+            clears.increment();
+        }
+
+        void localEvictions(int count) {
+            localEvictions.add(count);
+        }
+
+        void payloadWritten(int bytes) {
+            payloadWrites.increment();
+            payloadWriteBytes.add(bytes);
+            payloadMaxBytes.accumulate(bytes);
+        }
+
+        void payloadRead(int bytes) {
+            payloadReads.increment();
+            payloadReadBytes.add(bytes);
+        }
+
+        Map<String, Object> snapshot() {
+            Map<String, Object> stats = new LinkedHashMap<>();
+            long hitCount = hits.sum();
+            long missCount = misses.sum();
+            long lookups = hitCount + missCount;
+            stats.put("hits", hitCount);
+            stats.put("localHits", localHits.sum());
+            stats.put("misses", missCount);
+            stats.put("hitRate", lookups == 0 ? "N/A" : String.format("%.2f%%", hitCount * 100.0 / lookups));
+
+            long[] counts = new long[loadBuckets.length];
+            long loads = 0;
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] = loadBuckets[i].sum();
+                loads += counts[i];
+            }
+            Map<String, Object> load = new LinkedHashMap<>();
+            load.put("count", loads);
+            load.put("failures", loadFailures.sum());
+            load.put("avgMs", loads == 0 ? 0 : String.format("%.2f", loadNanos.sum() / 1e6 / loads));
+            load.put("p50Ms", percentile(counts, loads, 0.50));
+            load.put("p95Ms", percentile(counts, loads, 0.95));
+            load.put("p99Ms", percentile(counts, loads, 0.99));
+            Map<String, Long> histogram = new LinkedHashMap<>();
+            for (int i = 0; i < counts.length; i++) {
+                histogram.put(i < LOAD_BUCKETS_MS.length ? "<=" + LOAD_BUCKETS_MS[i] + "ms" : "more", counts[i]);
+            }
+            load.put("histogram", histogram);
+            stats.put("load", load);
+
+            stats.put("puts", puts.sum());
+            stats.put("evictions", evictions.sum());
+            stats.put("clears", clears.sum());
+            stats.put("localEvictions", localEvictions.sum());
+
+            Map<String, Object> payload = new LinkedHashMap<>();
+            long writes = payloadWrites.sum();
+            long reads = payloadReads.sum();
+            payload.put("writes", writes);
+            payload.put("avgWriteBytes", writes == 0 ? 0 : payloadWriteBytes.sum() / writes);
+            payload.put("maxWriteBytes", payloadMaxBytes.get());
+            payload.put("reads", reads);
+            payload.put("avgReadBytes", reads == 0 ? 0 : payloadReadBytes.sum() / reads);
+            stats.put("payload", payload);
+            return stats;
+        }
+
+        /**
+         * 分位数所在桶的上界（毫秒），落在最后一个桶时返回 "&gt;最大上界"
+         */
+        private static Object percentile(long[] counts, long total, double quantile) {
+            if (total == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(total * quantile);
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return i < LOAD_BUCKETS_MS.length ? LOAD_BUCKETS_MS[i]
+                            : ">" + LOAD_BUCKETS_MS[LOAD_BUCKETS_MS.length - 1];
+                }
+            }
+            return ">" + LOAD_BUCKETS_MS[LOAD_BUCKETS_MS.length - 1];
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package com.example.springbootdemo.config;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * 缓存值的紧凑序列化器（按缓存区域指定值类型）
+ * 格式：魔数(1) + 版本(1) + 标志(1) + 写入时间(8) + 加载耗时(4) + 数据；版本 1 没有写入时间和加载耗时。
+ * 数据为按已知类型写出的 JSON（不含类名），未指定类型的区域使用旧序列化器的输出；超过阈值时使用 Deflate 压缩。
+ * 读取版本 2 时返回 {@link CachedValue}，供两级缓存判断是否提前刷新。
+ * 读取时兼容旧的带类名 JSON，便于滚动发布：
+ * 先以 writeCompact = false 发布（新节点能读两种格式、只写旧格式），全部节点升级后再开启。
+ * 旧格式没有位置存放写入时间和加载耗时（旧节点无法读取带头部的数据），
+ * 因此 writeCompact = false 时读到的值都不是 {@link CachedValue}，XFetch 提前刷新不生效，只在过期后加载。
+ * 无法识别的版本抛出 SerializationException，由缓存错误处理器按未命中处理。
+ * 读写的数据大小记录到所属区域的 {@link CacheMetrics}。
+ */
+public class CacheValueSerializer implements RedisSerializer<Object> {
+
+    /** 魔数：不是合法 JSON 的首字节，用于区分旧格式 */
+    private static final byte MAGIC = (byte) 0xCA;
+    private static final byte VERSION = 2;
+    private static final byte VERSION_1 = 1;
+    private static final byte FLAG_DEFLATE = 1;
+    private static final int HEADER_V1 = 3;
+    private static final int HEADER = HEADER_V1 + Long.BYTES + Integer.BYTES;
+
+    private final ObjectMapper objectMapper;
+    private final JavaType type;
+    private final RedisSerializer<Object> legacySerializer;
+    private final boolean writeCompact;
+    private final int compressThreshold;
+    private final CacheMetrics.Region stats;
+
+    /**
+     * @param objectMapper 不启用默认类型信息的 ObjectMapper
+     * @param type 该缓存区域的值类型，为 null 时数据使用旧序列化器的输出
+     * @param legacySerializer 旧格式（带类名的 JSON）序列化器
+     * @param writeCompact 是否写入紧凑格式，false 时只写旧格式
+     * @param compressThreshold 数据超过该字节数时压缩，0 表示不压缩
+     * @param stats 记录读写数据大小的区域指标
+     */
+    public CacheValueSerializer(ObjectMapper objectMapper, JavaType type, RedisSerializer<Object> legacySerializer,
+                                boolean writeCompact, int compressThreshold, CacheMetrics.Region stats) {
+        this.objectMapper = objectMapper;
+        this.type = type;
+        this.legacySerializer = legacySerializer;
+        this.writeCompact = writeCompact;
+        this.compressThreshold = compressThreshold;
+        this.stats = stats;
+    }
+
+    @Override
+    public byte[] serialize(Object value) throws SerializationException {
+        if (value == null) {
+            return new byte[0];
+        }
+        CachedValue entry = value instanceof CachedValue cached
+                ? cached : new CachedValue(value, System.currentTimeMillis(), 0);
+        if (!writeCompact) {
+            byte[] legacy = legacySerializer.serialize(entry.value());
+            stats.payloadWritten(legacy == null ? 0 : legacy.length);
+            return legacy;
+        }
+        byte[] data;
+        if (type == null) {
+            data = legacySerializer.serialize(entry.value());
+        } else {
+            try {
+                data = objectMapper.writerFor(type).writeValueAsBytes(entry.value());
+            } catch (Exception ex) {
+                throw new SerializationException("缓存值序列化失败: " + type, ex);
+            }
+        }
+        byte flags = 0;
+        if (compressThreshold > 0 && data.length > compressThreshold) {
+            byte[] deflated = deflate(data);
+            if (deflated.length < data.length) {
+                data = deflated;
+                flags |= FLAG_DEFLATE;
+            }
+        }
+        ByteBuffer out = ByteBuffer.allocate(HEADER + data.length);
+        out.put(MAGIC).put(VERSION).put(flags)
+                .putLong(entry.loadedAt()).putInt(entry.computeMillis())
+                .put(data);
+        stats.payloadWritten(HEADER + data.length);
+        return out.array();
+    }
+
+    @Override
+    public Object deserialize(byte[] bytes) throws SerializationException {
+        if (bytes == null || bytes.length == 0) {
+            return null;
+        }
+        stats.payloadRead(bytes.length);
+        if (bytes[0] != MAGIC) {
+            return legacySerializer.deserialize(bytes);
+        }
+        byte version = bytes.length > 1 ? bytes[1] : -1;
+        int header = version == VERSION ? HEADER : version == VERSION_1 ? HEADER_V1 : -1;
+        if (header < 0 || bytes.length < header) {
+            throw new SerializationException("不支持的缓存格式版本: " + version);
+        }
+        Object value;
+        try {
+            byte[] data = (bytes[2] & FLAG_DEFLATE) != 0
+                    ? inflate(bytes, header, bytes.length - header)
+                    : Arrays.copyOfRange(bytes, header, bytes.length);
+            value = type == null ? legacySerializer.deserialize(data) : objectMapper.readValue(data, type);
+        } catch (SerializationException ex) {
+            throw ex;
+        } catch (Exception ex) {
+            throw new SerializationException("缓存值反序列化失败: " + type, ex);
+        }
+        if (version == VERSION_1) {
+            return value;
+        }
+        ByteBuffer meta = ByteBuffer.wrap(bytes, HEADER_V1, HEADER - HEADER_V1);
+        return new CachedValue(value, meta.getLong(), meta.getInt());
+    }
+
+    private static byte[] deflate(byte[] data) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(data);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 2);
+            byte[] buf = new byte[4096];
+            while (!deflater.finished()) {
+                out.write(buf, 0, deflater.deflate(buf));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(byte[] bytes, int offset, int length) throws DataFormatException {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(bytes, offset, length);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(length * 4);
+            byte[] buf = new byte[4096];
+            while (!inflater.finished()) {
+                int n = inflater.inflate(buf);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new DataFormatException("压缩数据不完整");
+                }
+                out.write(buf, 0, n);
+            }
+            return out.toByteArray();
+        } finally {
+            inflater.end();
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.springbootdemo.config;
+
+/**
+ * 写入 Redis 的缓存值及其加载信息，用于提前刷新（XFetch）
+ * @param value 缓存值
+ * @param loadedAt 写入时间（毫秒时间戳）
+ * @param computeMillis 加载耗时（毫秒），未知时为 0
+ */
+record CachedValue(Object value, long loadedAt, int computeMillis) {
+
+    /**
+     * 取出缓存值（旧格式的值没有加载信息，原样返回）
+     */
+    static Object unwrap(Object stored) {
+        return stored instanceof CachedValue cached ? cached.value() : stored;
+    }
+}
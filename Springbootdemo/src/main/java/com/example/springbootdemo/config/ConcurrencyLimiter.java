@@ -0,0 +1,93 @@
+package com.example.springbootdemo.config;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 并发上限（信号量 + 排队上限 + 等待超时）
+ * 虚拟线程模式下请求数不再受线程池大小限制，由它限制同时访问数据库、Redis 的数量；
+ * 超出排队上限或等待超时直接失败，避免大量请求堆积在连接池上。未启用时不做限制。
+ */
+public class ConcurrencyLimiter {
+
+    private final String name;
+    private final boolean enabled;
+    private final int maxConcurrent;
+    private final Semaphore permits;
+    private final int maxWaiting;
+    private final long waitTimeoutMillis;
+
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+
+    public ConcurrencyLimiter(String name, boolean enabled, int maxConcurrent, int maxWaiting, long waitTimeoutMillis) {
+        this.name = name;
+        this.enabled = enabled;
+        this.maxConcurrent = maxConcurrent;
+        this.permits = new Semaphore(maxConcurrent, true);
+        this.maxWaiting = maxWaiting;
+        this.waitTimeoutMillis = waitTimeoutMillis;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 获取许可，成功后必须调用 {@link #release()}
+     * @return 排队已满、等待超时或被中断时返回 false
+     */
+    public boolean tryAcquire() {
+        if (permits.tryAcquire()) {
+            return true;
+        }
+        if (waiting.incrementAndGet() > maxWaiting) {
+            waiting.decrementAndGet();
+            rejected.incrementAndGet();
+            return false;
+        }
+        try {
+            if (permits.tryAcquire(waitTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                return true;
+            }
+            timeouts.incrementAndGet();
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            waiting.decrementAndGet();
+        }
+    }
+
+    public void release() {
+        permits.release();
+    }
+
+    /**
+     * 失败时的提示信息
+     */
+    public String busyMessage() {
+        return name + " 并发已达上限（" + maxConcurrent + "），请稍后再试";
+    }
+
+    /**
+     * 统计信息（用于监控）
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("maxConcurrent", maxConcurrent);
+        stats.put("inUse", maxConcurrent - permits.availablePermits());
+        stats.put("waiting", waiting.get());
+        stats.put("maxWaiting", maxWaiting);
+        stats.put("rejected", rejected.get());
+        stats.put("timeouts", timeouts.get());
+        return stats;
+    }
+}
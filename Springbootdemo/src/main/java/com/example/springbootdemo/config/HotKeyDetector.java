@@ -0,0 +1,153 @@
+package com.example.springbootdemo.config;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 热点 key 检测：Count-Min Sketch 估计访问次数 + Top-K 热点集合
+ * 每个时间窗口结束时所有计数减半，只有近期持续被频繁访问的 key 才是热点；
+ * 判定热点要求估计次数同时超过最小值和占总访问量的比例，不依赖按业务量设定的固定阈值。
+ * 估计值只会偏大，偶尔把非热点判为热点只是多占一个本地缓存位置。
+ * 记录在读取热路径上：无锁计数，只有新 key 进入热点集合时才加锁。
+ */
+public class HotKeyDetector {
+
+    private final int depth;
+    private final int mask;
+    private final AtomicLongArray counts;
+    private final LongAdder total = new LongAdder();
+    private final int topK;
+    private final long minCount;
+    private final double minRatio;
+    private final long windowNanos;
+
+    private volatile long windowStart = System.nanoTime();
+    private final AtomicBoolean rotating = new AtomicBoolean();
+
+    /** 当前热点：key -> 估计次数（不超过 topK 个） */
+    private final Map<String, Long> hot = new ConcurrentHashMap<>();
+
+    /**
+     * @param width 每行计数器个数，向上取 2 的幂
+     * @param depth 行数（哈希函数个数）
+     * @param topK 最多同时保持的热点数
+     * @param minCount 成为热点的最小估计次数（衰减后的窗口计数）
+     * @param minRatio 成为热点的最小访问占比
+     * @param window 衰减周期
+     */
+    public HotKeyDetector(int width, int depth, int topK, long minCount, double minRatio, Duration window) {
+        int w = Integer.highestOneBit(Math.max(16, width - 1) << 1);
+        this.depth = depth;
+        this.mask = w - 1;
+        this.counts = new AtomicLongArray(w * depth);
+        this.topK = topK;
+        this.minCount = minCount;
+        this.minRatio = minRatio;
+        this.windowNanos = window.toNanos();
+    }
+
+    /**
+     * 记录一次访问
+     * @return 该 key 当前是否为热点
+     */
+    public boolean add(String key) {
+        maybeDecay();
+        total.increment();
+        int h1 = mix(key.hashCode());
+        int h2 = mix(h1 ^ 0x9E3779B9) | 1;
+        long estimate = Long.MAX_VALUE;
+        for (int i = 0; i < depth; i++) {
+            int idx = i * (mask + 1) + ((h1 + i * h2) & mask);
+            estimate = Math.min(estimate, counts.incrementAndGet(idx));
+        }
+        if (hot.replace(key, estimate) != null) {
+            return true;
+        }
+        if (estimate < minCount || estimate < total.sum() * minRatio) {
+            return false;
+        }
+        return offer(key, estimate);
+    }
+
+    public boolean isHot(String key) {
+        return hot.containsKey(key);
+    }
+
+    /**
+     * 当前热点，按估计次数从高到低
+     */
+    public Map<String, Long> hotKeys() {
+        Map<String, Long> sorted = new LinkedHashMap<>();
+        hot.entrySet().stream()
+                .sorted((a, b) -> Long.compare(b.getValue(), a.getValue()))
+                .forEach(e -> sorted.put(e.getKey(), e.getValue()));
+        return sorted;
+    }
+
+    /**
+     * 集合已满时替换估计次数最小的热点
+     */
+    private synchronized boolean offer(String key, long estimate) {
+        if (hot.size() >= topK) {
+            Map.Entry<String, Long> min = null;
+            for (Map.Entry<String, Long> e : hot.entrySet()) {
+                if (min == null || e.getValue() < min.getValue()) {
+                    min = e;
+                }
+            }
+            if (min == null || min.getValue() >= estimate) {
+                return false;
+            }
+            hot.remove(min.getKey());
+        }
+        hot.put(key, estimate);
+        return true;
+    }
+
+    /**
+     * 窗口结束时计数减半（每经过一个窗口减半一次），移除衰减后不再满足条件的热点；与并发计数之间的竞争只影响少量计数
+     */
+    private void maybeDecay() {
+        long now = System.nanoTime();
+        if (now - windowStart < windowNanos || !rotating.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            if (now - windowStart < windowNanos) {
+                return;
+            }
+            // 空闲了多个窗口时按经过的窗口数衰减
+            int shift = (int) Math.min(63, (now - windowStart) / windowNanos);
+            windowStart = now;
+            for (int i = 0; i < counts.length(); i++) {
+                long c = counts.get(i);
+                if (c != 0) {
+                    counts.set(i, c >> shift);
+                }
+            }
+            long t = total.sumThenReset() >> shift;
+            total.add(t);
+            double threshold = Math.max(minCount, t * minRatio);
+            synchronized (this) {
+                hot.replaceAll((k, v) -> v >> shift);
+                hot.values().removeIf(v -> v < threshold);
+            }
+        } finally {
+            rotating.set(false);
+        }
+    }
+
+    private static int mix(int h) {
+        h ^= h >>> 16;
+        h *= 0x85EBCA6B;
+        h ^= h >>> 13;
+        h *= 0xC2B2AE35;
+        h ^= h >>> 16;
+        return h;
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.springbootdemo.config;
+
+import org.springframework.cache.Cache;
+
+import java.util.concurrent.Callable;
+
+/**
+ * 记录命中、未命中、回源耗时和失效次数的缓存装饰器，由 {@link TwoLevelCacheManager} 包装每个缓存区域
+ * {@link #get(Object, Callable)} 中本线程执行了回源即为未命中；等待其他线程或节点加载得到的值计为命中。
+ */
+class InstrumentedCache implements Cache {
+
+    private final Cache delegate;
+    private final CacheMetrics.Region stats;
+
+    InstrumentedCache(Cache delegate, CacheMetrics.Region stats) {
+        this.delegate = delegate;
+        this.stats = stats;
+    }
+
+    @Override
+    public String getName() {
+        return delegate.getName();
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return delegate.getNativeCache();
+    }
+
+    @Override
+    public ValueWrapper get(Object key) {
+        ValueWrapper wrapper = delegate.get(key);
+        if (wrapper == null) {
+            stats.miss();
+        } else {
+            stats.hit();
+        }
+        return wrapper;
+    }
+
+    @Override
+    public <T> T get(Object key, Class<T> type) {
+        T value = delegate.get(key, type);
+        if (value == null) {
+            stats.miss();
+        } else {
+            stats.hit();
+        }
+        return value;
+    }
+
+    @Override
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        boolean[] loaded = new boolean[1];
+        T value = delegate.get(key, () -> {
+            loaded[0] = true;
+            long start = System.nanoTime();
+            try {
+                T result = valueLoader.call();
+                stats.load(System.nanoTime() - start);
+                return result;
+            } catch (Exception | Error ex) {
+                stats.loadFailure();
+                throw ex;
+            }
+        });
+        if (loaded[0]) {
+            stats.miss();
+        } else {
+            stats.hit();
+        }
+        return value;
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        delegate.put(key, value);
+        stats.put();
+    }
+
+    @Override
+    public ValueWrapper putIfAbsent(Object key, Object value) {
+        ValueWrapper existing = delegate.putIfAbsent(key, value);
+        if (existing == null) {
+            stats.put();
+        }
+        return existing;
+    }
+
+    @Override
+    public void evict(Object key) {
+        delegate.evict(key);
+        stats.evict();
+    }
+
+    @Override
+    public boolean evictIfPresent(Object key) {
+        boolean present = delegate.evictIfPresent(key);
+        stats.evict();
+        return present;
+    }
+
+    @Override
+    public void clear() {
+        delegate.clear();
+        stats.clear();
+    }
+
+    @Override
+    public boolean invalidate() {
+        boolean present = delegate.invalidate();
+        stats.clear();
+        return present;
+    }
+}
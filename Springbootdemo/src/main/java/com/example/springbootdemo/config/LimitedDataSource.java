@@ -0,0 +1,91 @@
+package com.example.springbootdemo.config;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 限制同时借出的数据库连接数的数据源
+ * 借出连接时获取许可，连接关闭（归还连接池）时释放；事务期间一直持有。
+ * 达到上限后按 {@link ConcurrencyLimiter} 的排队上限和等待时间快速失败，而不是让请求都堆积在连接池的等待队列上。
+ */
+public class LimitedDataSource extends DelegatingDataSource implements Closeable {
+
+    private final ConcurrencyLimiter limiter;
+
+    public LimitedDataSource(DataSource targetDataSource, ConcurrencyLimiter limiter) {
+        super(targetDataSource);
+        this.limiter = limiter;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        acquire();
+        try {
+            return wrap(obtainTargetDataSource().getConnection());
+        } catch (SQLException | RuntimeException ex) {
+            limiter.release();
+            throw ex;
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        acquire();
+        try {
+            return wrap(obtainTargetDataSource().getConnection(username, password));
+        } catch (SQLException | RuntimeException ex) {
+            limiter.release();
+            throw ex;
+        }
+    }
+
+    private void acquire() throws SQLException {
+        if (!limiter.tryAcquire()) {
+            throw new SQLTransientConnectionException(limiter.busyMessage());
+        }
+    }
+
+    /**
+     * 代理连接：第一次 close 时释放许可
+     */
+    private Connection wrap(Connection target) {
+        AtomicBoolean released = new AtomicBoolean();
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    if ("close".equals(method.getName()) && method.getParameterCount() == 0) {
+                        try {
+                            target.close();
+                        } finally {
+                            if (released.compareAndSet(false, true)) {
+                                limiter.release();
+                            }
+                        }
+                        return null;
+                    }
+                    try {
+                        return method.invoke(target, args);
+                    } catch (InvocationTargetException ex) {
+                        throw ex.getTargetException();
+                    }
+                });
+    }
+
+    /**
+     * 应用关闭时关闭底层连接池
+     */
+    @Override
+    public void close() throws IOException {
+        if (getTargetDataSource() instanceof Closeable closeable) {
+            closeable.close();
+        }
+    }
+}
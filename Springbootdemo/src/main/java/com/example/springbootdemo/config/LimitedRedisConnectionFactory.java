@@ -0,0 +1,73 @@
+package com.example.springbootdemo.config;
+
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 限制同时执行 Redis 命令数的连接工厂包装
+ * RedisTemplate、缓存每次执行都会获取并关闭一个连接（Lettuce 下共享底层连接），获取时拿许可，关闭时释放。
+ * 只用于普通命令；发布/订阅监听容器长期占用连接，仍使用原始连接工厂。
+ */
+final class LimitedRedisConnectionFactory {
+
+    private LimitedRedisConnectionFactory() {
+    }
+
+    /**
+     * 限制未启用时返回原连接工厂
+     */
+    static RedisConnectionFactory wrap(RedisConnectionFactory target, ConcurrencyLimiter limiter) {
+        if (!limiter.isEnabled()) {
+            return target;
+        }
+        return (RedisConnectionFactory) Proxy.newProxyInstance(RedisConnectionFactory.class.getClassLoader(),
+                new Class<?>[]{RedisConnectionFactory.class},
+                (proxy, method, args) -> {
+                    if ("getConnection".equals(method.getName()) && method.getParameterCount() == 0) {
+                        if (!limiter.tryAcquire()) {
+                            throw new RedisConnectionFailureException(limiter.busyMessage());
+                        }
+                        try {
+                            return limited(target.getConnection(), limiter);
+                        } catch (RuntimeException ex) {
+                            limiter.release();
+                            throw ex;
+                        }
+                    }
+                    return invoke(method, target, args);
+                });
+    }
+
+    private static RedisConnection limited(RedisConnection target, ConcurrencyLimiter limiter) {
+        AtomicBoolean released = new AtomicBoolean();
+        return (RedisConnection) Proxy.newProxyInstance(RedisConnection.class.getClassLoader(),
+                new Class<?>[]{RedisConnection.class},
+                (proxy, method, args) -> {
+                    if ("close".equals(method.getName()) && method.getParameterCount() == 0) {
+                        try {
+                            target.close();
+                        } finally {
+                            if (released.compareAndSet(false, true)) {
+                                limiter.release();
+                            }
+                        }
+                        return null;
+                    }
+                    return invoke(method, target, args);
+                });
+    }
+
+    private static Object invoke(Method method, Object target, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException ex) {
+            throw ex.getTargetException();
+        }
+    }
+}
@@ -5,24 +5,29 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.databind.jsontype.impl.LaissezFaireSubTypeValidator;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
 import org.springframework.data.redis.serializer.RedisSerializer;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 
 /**
- * Redis 配置，提供 RedisTemplate Bean
+ * Redis 配置，提供 RedisTemplate / StringRedisTemplate Bean
+ * 虚拟线程模式下模板使用限制并发的连接工厂（见 {@link ThreadingConfig}）
  */
 @Configuration
 public class RedisConfig {
 
     @Bean
-    public RedisTemplate<String, Object> redisTemplate(RedisConnectionFactory connectionFactory) {
+    public RedisTemplate<String, Object> redisTemplate(RedisConnectionFactory connectionFactory,
+                                                       @Qualifier("redisConcurrencyLimiter") ConcurrencyLimiter redisConcurrencyLimiter) {
         RedisTemplate<String, Object> template = new RedisTemplate<>();
-        template.setConnectionFactory(connectionFactory);
+        template.setConnectionFactory(LimitedRedisConnectionFactory.wrap(connectionFactory, redisConcurrencyLimiter));
 
         // 使用 String 序列化 key
         StringRedisSerializer stringSerializer = new StringRedisSerializer();
@@ -52,4 +57,20 @@ public class RedisConfig {
         template.afterPropertiesSet();
         return template;
     }
+
+    @Bean
+    public StringRedisTemplate stringRedisTemplate(RedisConnectionFactory connectionFactory,
+                                                   @Qualifier("redisConcurrencyLimiter") ConcurrencyLimiter redisConcurrencyLimiter) {
+        return new StringRedisTemplate(LimitedRedisConnectionFactory.wrap(connectionFactory, redisConcurrencyLimiter));
+    }
+
+    /**
+     * Redis 发布/订阅监听容器（长期占用连接，不受并发限制），用于多节点之间同步本地缓存
+     */
+    @Bean
+    public RedisMessageListenerContainer redisMessageListenerContainer(RedisConnectionFactory connectionFactory) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        return container;
+    }
 }
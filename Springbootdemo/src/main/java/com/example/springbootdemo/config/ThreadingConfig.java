@@ -0,0 +1,93 @@
+package com.example.springbootdemo.config;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+
+/**
+ * 线程模型配置
+ * spring.threads.virtual.enabled = true 且运行在 JDK 21 及以上时启用虚拟线程：
+ * Tomcat 请求处理由 Spring Boot 切换为虚拟线程，@Async 线程池见 {@link AsyncConfig}。
+ * 此时并发请求数不再受线程数限制，改由信号量限制同时访问数据库和 Redis 的数量（{@link ConcurrencyLimiter}）；
+ * 平台线程模式下由线程池大小限制，信号量不生效。
+ */
+@Configuration
+public class ThreadingConfig {
+
+    private static final Logger logger = LoggerFactory.getLogger(ThreadingConfig.class);
+
+    private final Environment environment;
+
+    public ThreadingConfig(Environment environment) {
+        this.environment = environment;
+    }
+
+    /**
+     * 是否使用虚拟线程（与 Spring Boot 的判断一致：开启配置且 JDK 21+）
+     */
+    static boolean virtualThreads(Environment environment) {
+        return environment.getProperty("spring.threads.virtual.enabled", Boolean.class, false)
+                && Runtime.version().feature() >= 21;
+    }
+
+    @PostConstruct
+    public void logThreadingMode() {
+        if (virtualThreads(environment)) {
+            logger.info("已启用虚拟线程：请求处理和异步任务不再受线程池大小限制，数据库和 Redis 并发由信号量限制");
+        } else if (environment.getProperty("spring.threads.virtual.enabled", Boolean.class, false)) {
+            logger.warn("虚拟线程需要 JDK 21 及以上，当前为 JDK {}，继续使用平台线程", Runtime.version().feature());
+        }
+    }
+
+    /**
+     * 数据库并发上限，默认与连接池大小一致
+     */
+    @Bean
+    public ConcurrencyLimiter dbConcurrencyLimiter(
+            @Value("${concurrency.db.max-concurrent:80}") int maxConcurrent,
+            @Value("${concurrency.db.max-waiting:2000}") int maxWaiting,
+            @Value("${concurrency.db.wait-timeout-ms:3000}") long waitTimeoutMillis) {
+        return new ConcurrencyLimiter("数据库", virtualThreads(environment), maxConcurrent, maxWaiting, waitTimeoutMillis);
+    }
+
+    /**
+     * Redis 并发上限
+     */
+    @Bean
+    public ConcurrencyLimiter redisConcurrencyLimiter(
+            @Value("${concurrency.redis.max-concurrent:200}") int maxConcurrent,
+            @Value("${concurrency.redis.max-waiting:5000}") int maxWaiting,
+            @Value("${concurrency.redis.wait-timeout-ms:1000}") long waitTimeoutMillis) {
+        return new ConcurrencyLimiter("Redis", virtualThreads(environment), maxConcurrent, maxWaiting, waitTimeoutMillis);
+    }
+
+    /**
+     * 虚拟线程模式下用 {@link LimitedDataSource} 包装数据源
+     */
+    @Bean
+    public static BeanPostProcessor limitedDataSourcePostProcessor(
+            @Qualifier("dbConcurrencyLimiter") ObjectProvider<ConcurrencyLimiter> dbConcurrencyLimiter) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) throws BeansException {
+                if (bean instanceof DataSource dataSource && !(bean instanceof LimitedDataSource)) {
+                    ConcurrencyLimiter limiter = dbConcurrencyLimiter.getObject();
+                    if (limiter.isEnabled()) {
+                        return new LimitedDataSource(dataSource, limiter);
+                    }
+                }
+                return bean;
+            }
+        };
+    }
+}
@@ -0,0 +1,391 @@
+package com.example.springbootdemo.config;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.support.SimpleValueWrapper;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 两级缓存：本地堆内缓存（L1）在前，Redis 缓存（L2）在后
+ * L1 命中时不访问网络也不反序列化；L1 条目有独立的容量和过期时间（不超过 L2），
+ * 写入和失效先作用于 L2，再更新本地，并由 {@link TwoLevelCacheManager} 通知其他节点清除 L1。
+ * L1 返回的是共享对象，调用方不要修改。
+ * 防击穿（{@code @Cacheable(sync = true)} 走 {@link #get(Object, Callable)}）：
+ * 同一节点同一 key 只有一个线程加载，其余线程等待其结果；跨节点通过 Redis 租约只让一个节点查询数据库，
+ * 其他节点等待其写入 Redis；临近过期时按 XFetch 概率提前刷新（加载越慢、越接近过期，越早刷新），
+ * 刷新期间其他请求继续使用未过期的旧值。
+ * 热点 key（由管理器检测）写入本地时固定：使用较短的过期时间，不参与容量淘汰，区域未开启本地缓存时同样写入。
+ */
+public class TwoLevelCache implements Cache {
+
+    /** 等待其他节点加载时轮询 Redis 的间隔 */
+    private static final long AWAIT_POLL_MILLIS = 20;
+
+    /** 按 key 哈希分段的失效计数个数（2 的幂） */
+    private static final int STRIPES = 1024;
+
+    private final String name;
+    private final Cache redisCache;
+    private final int maxSize;
+    private final long ttlNanos;
+    /** 热点 key 本地副本的过期时间 */
+    private final long hotTtlNanos;
+    /** Redis 中条目的过期时间（毫秒），0 表示不过期（不提前刷新） */
+    private final long redisTtlMillis;
+    private final TwoLevelCacheManager manager;
+    /** 记录本地命中和容量淘汰；命中、未命中等由外层 {@link InstrumentedCache} 记录 */
+    private final CacheMetrics.Region stats;
+
+    /** L1：读取无锁；超出容量时先清理过期条目，再随机淘汰 */
+    private final Map<String, Entry> local = new ConcurrentHashMap<>();
+
+    /**
+     * 本地失效计数：从 L2 读取或回源期间该 key 发生失效时，读到的旧值不写入缓存。
+     * 按 key 哈希分段计数（哈希冲突只会偶尔少写一次 L1），清空区域时递增 clearGeneration
+     */
+    private final AtomicLongArray generations = new AtomicLongArray(STRIPES);
+    private final AtomicLong clearGeneration = new AtomicLong();
+
+    /** 本节点正在加载的 key */
+    private final Map<String, CompletableFuture<Object>> loading = new ConcurrentHashMap<>();
+
+    TwoLevelCache(String name, Cache redisCache, int maxSize, Duration ttl, Duration hotTtl, Duration redisTtl,
+                  TwoLevelCacheManager manager, CacheMetrics.Region stats) {
+        this.name = name;
+        this.redisCache = redisCache;
+        this.maxSize = maxSize;
+        this.ttlNanos = ttl.toNanos();
+        this.hotTtlNanos = hotTtl.toNanos();
+        this.redisTtlMillis = redisTtl == null ? 0 : redisTtl.toMillis();
+        this.manager = manager;
+        this.stats = stats;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return redisCache.getNativeCache();
+    }
+
+    @Override
+    public ValueWrapper get(Object key) {
+        String localKey = localKey(key);
+        manager.recordAccess(name, localKey);
+        Object value = getLocal(localKey);
+        if (value != null) {
+            return new SimpleValueWrapper(value);
+        }
+        long gen = generation(localKey);
+        ValueWrapper wrapper = redisCache.get(key);
+        if (wrapper == null) {
+            return null;
+        }
+        value = CachedValue.unwrap(wrapper.get());
+        putLocal(localKey, value, gen);
+        return new SimpleValueWrapper(value);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Class<T> type) {
+        ValueWrapper wrapper = get(key);
+        Object value = wrapper == null ? null : wrapper.get();
+        if (value != null && type != null && !type.isInstance(value)) {
+            throw new IllegalStateException("缓存值类型不匹配: " + type.getName() + ", 实际为 " + value.getClass().getName());
+        }
+        return (T) value;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        String localKey = localKey(key);
+        manager.recordAccess(name, localKey);
+        Object value = getLocal(localKey);
+        if (value != null) {
+            return (T) value;
+        }
+        CompletableFuture<Object> mine = new CompletableFuture<>();
+        CompletableFuture<Object> running = loading.putIfAbsent(localKey, mine);
+        if (running != null) {
+            // 同一节点已有线程在加载，等待其结果
+            try {
+                return (T) running.join();
+            } catch (CompletionException ex) {
+                if (ex.getCause() instanceof RuntimeException cause) {
+                    throw cause;
+                }
+                throw new ValueRetrievalException(key, valueLoader, ex.getCause());
+            }
+        }
+        try {
+            Object loaded = load(key, localKey, valueLoader);
+            mine.complete(loaded);
+            return (T) loaded;
+        } catch (RuntimeException | Error ex) {
+            mine.completeExceptionally(ex);
+            throw ex;
+        } finally {
+            loading.remove(localKey, mine);
+        }
+    }
+
+    /**
+     * L1 未命中后的加载：读取 Redis，未命中或需要提前刷新时在租约保护下回源
+     */
+    private Object load(Object key, String localKey, Callable<?> valueLoader) {
+        long gen = generation(localKey);
+        ValueWrapper wrapper = redisCache.get(key);
+        if (wrapper != null) {
+            Object stored = wrapper.get();
+            Object value = CachedValue.unwrap(stored);
+            if (!(stored instanceof CachedValue cached) || !shouldRefreshEarly(cached)) {
+                putLocal(localKey, value, gen);
+                return value;
+            }
+            // 提前刷新：只有拿到租约的节点重新加载，其他节点继续使用未过期的值
+            String lease = manager.tryLease(name, localKey);
+            if (lease == null) {
+                putLocal(localKey, value, gen);
+                return value;
+            }
+            try {
+                return loadAndStore(key, localKey, valueLoader, lease, true);
+            } catch (RuntimeException ex) {
+                // 提前刷新失败时旧值仍未过期，继续使用
+                return value;
+            }
+        }
+        String lease = manager.tryLease(name, localKey);
+        if (lease == null) {
+            // 其他节点正在加载：等待其写入 Redis；租约释放而没有写入（结果为空或加载失败）或超时后自行加载
+            Object value = awaitOtherNode(key, localKey);
+            if (value != null) {
+                putLocal(localKey, value, gen);
+                return value;
+            }
+            lease = manager.tryLease(name, localKey);
+        }
+        return loadAndStore(key, localKey, valueLoader, lease, false);
+    }
+
+    /**
+     * 回源并写入两级缓存；回源期间该 key 被失效（数据已变更）时只返回结果，不写入缓存
+     * @param refresh 是否为提前刷新：其他节点 L1 中有旧值，需要通知清除；首次加载时其他节点没有该值，不广播
+     */
+    private Object loadAndStore(Object key, String localKey, Callable<?> valueLoader, String lease, boolean refresh) {
+        try {
+            long gen = generation(localKey);
+            long start = System.currentTimeMillis();
+            Object value;
+            try {
+                value = valueLoader.call();
+            } catch (Exception ex) {
+                throw new ValueRetrievalException(key, valueLoader, ex);
+            }
+            if (value != null && generation(localKey) == gen) {
+                long now = System.currentTimeMillis();
+                redisCache.put(key, new CachedValue(value, now, (int) Math.min(now - start, Integer.MAX_VALUE)));
+                if (refresh) {
+                    manager.publishEvict(name, localKey);
+                    evictLocal(localKey);
+                }
+                putLocal(localKey, value, generation(localKey));
+            }
+            return value;
+        } finally {
+            if (lease != null) {
+                manager.releaseLease(name, localKey, lease);
+            }
+        }
+    }
+
+    /**
+     * XFetch：now - 加载耗时 * beta * ln(rand) >= 过期时间 时提前刷新
+     */
+    private boolean shouldRefreshEarly(CachedValue cached) {
+        if (redisTtlMillis <= 0 || cached.computeMillis() <= 0) {
+            return false;
+        }
+        double rand = 1.0 - ThreadLocalRandom.current().nextDouble();
+        double gap = -cached.computeMillis() * manager.earlyRefreshBeta() * Math.log(rand);
+        return System.currentTimeMillis() + gap >= cached.loadedAt() + redisTtlMillis;
+    }
+
+    /**
+     * 轮询 Redis 中的值和租约：值写入后返回；租约已释放仍没有值时立即返回 null，不等到超时
+     */
+    private Object awaitOtherNode(Object key, String localKey) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(manager.leaseMillis());
+        while (System.nanoTime() < deadline) {
+            try {
+                Thread.sleep(AWAIT_POLL_MILLIS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+            ValueWrapper wrapper = redisCache.get(key);
+            if (wrapper != null) {
+                return CachedValue.unwrap(wrapper.get());
+            }
+            if (!manager.leaseHeld(name, localKey)) {
+                // 持有者可能在两次读取之间写入后释放，再读一次
+                wrapper = redisCache.get(key);
+                return wrapper == null ? null : CachedValue.unwrap(wrapper.get());
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        redisCache.put(key, value);
+        String localKey = localKey(key);
+        // 其他节点 L1 中可能是旧值
+        manager.publishEvict(name, localKey);
+        evictLocal(localKey);
+        putLocal(localKey, value, generation(localKey));
+    }
+
+    @Override
+    public ValueWrapper putIfAbsent(Object key, Object value) {
+        ValueWrapper existing = redisCache.putIfAbsent(key, value);
+        if (existing != null) {
+            return new SimpleValueWrapper(CachedValue.unwrap(existing.get()));
+        }
+        String localKey = localKey(key);
+        manager.publishEvict(name, localKey);
+        evictLocal(localKey);
+        putLocal(localKey, value, generation(localKey));
+        return null;
+    }
+
+    @Override
+    public void evict(Object key) {
+        redisCache.evict(key);
+        String localKey = localKey(key);
+        evictLocal(localKey);
+        manager.publishEvict(name, localKey);
+    }
+
+    @Override
+    public boolean evictIfPresent(Object key) {
+        boolean present = redisCache.evictIfPresent(key);
+        String localKey = localKey(key);
+        evictLocal(localKey);
+        manager.publishEvict(name, localKey);
+        return present;
+    }
+
+    @Override
+    public void clear() {
+        redisCache.clear();
+        clearLocal();
+        manager.publishClear(name);
+    }
+
+    @Override
+    public boolean invalidate() {
+        boolean present = redisCache.invalidate();
+        clearLocal();
+        manager.publishClear(name);
+        return present;
+    }
+
+    /**
+     * 与失效通知中的 key 一致（Redis 缓存同样按字符串形式存储 key）
+     */
+    static String localKey(Object key) {
+        return String.valueOf(key);
+    }
+
+    private Object getLocal(String localKey) {
+        Entry entry = local.get(localKey);
+        if (entry == null) {
+            return null;
+        }
+        if (System.nanoTime() - entry.expireAt > 0) {
+            local.remove(localKey, entry);
+            return null;
+        }
+        stats.localHit();
+        return entry.value;
+    }
+
+    /**
+     * key 当前的失效计数（所在分段与区域清空计数之和，任一递增都会改变）
+     */
+    private long generation(String localKey) {
+        return generations.get(localKey.hashCode() & (STRIPES - 1)) + clearGeneration.get();
+    }
+
+    private void putLocal(String localKey, Object value, long gen) {
+        if (value == null || generation(localKey) != gen) {
+            return;
+        }
+        boolean pinned = manager.isHot(name, localKey);
+        if (!pinned && maxSize <= 0) {
+            return;
+        }
+        local.put(localKey, new Entry(value, System.nanoTime() + (pinned ? hotTtlNanos : ttlNanos), pinned));
+        if (local.size() > maxSize) {
+            shrink();
+        }
+    }
+
+    /**
+     * 收到失效通知或本节点写入后调用
+     */
+    void evictLocal(String localKey) {
+        generations.incrementAndGet(localKey.hashCode() & (STRIPES - 1));
+        local.remove(localKey);
+    }
+
+    void clearLocal() {
+        clearGeneration.incrementAndGet();
+        local.clear();
+    }
+
+    private void shrink() {
+        long now = System.nanoTime();
+        local.values().removeIf(e -> now - e.expireAt > 0);
+        // 仍超出容量时淘汰约 10%，避免每次写入都遍历；热点 key 不淘汰
+        int excess = local.size() - maxSize * 9 / 10;
+        int evicted = 0;
+        Iterator<Entry> it = local.values().iterator();
+        while (excess > 0 && it.hasNext()) {
+            if (!it.next().pinned) {
+                it.remove();
+                excess--;
+                evicted++;
+            }
+        }
+        stats.localEvictions(evicted);
+    }
+
+    private static final class Entry {
+        final Object value;
+        final long expireAt;
+        final boolean pinned;
+
+        Entry(Object value, long expireAt, boolean pinned) {
+            this.value = value;
+            this.expireAt = expireAt;
+            this.pinned = pinned;
+        }
+    }
+}
@@ -0,0 +1,263 @@
+package com.example.springbootdemo.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cache.Cache;
+import org.springframework.cache.transaction.AbstractTransactionSupportingCacheManager;
+import org.springframework.data.redis.cache.RedisCache;
+import org.springframework.data.redis.cache.RedisCacheManager;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+/**
+ * 两级缓存管理器：每个缓存区域由本地 L1 + Redis L2 组成
+ * L2 沿用各区域的 Redis 过期时间；L1 按区域配置容量和过期时间。
+ * 任一节点写入或失效缓存后，通过 Redis 发布/订阅通知其他节点清除对应的 L1 条目。
+ * 开启事务感知：事务内的写入和失效在提交后才执行，避免其他请求把未提交前的旧值重新读入 L1。
+ * 回源加载通过 Redis 租约（SET NX PX）保证同一 key 同一时间只有一个节点查询数据库。
+ * 每次读取通过 accessListener 上报（缓存名, key），用于记录热点 key；
+ * 同时由 {@link HotKeyDetector} 实时检测热点，热点 key 固定在本地缓存中（过期时间较短，不参与容量淘汰），
+ * 即使该区域没有本地缓存也是如此，避免大量读取集中到同一个 Redis 节点。
+ * 每个区域由 {@link InstrumentedCache} 包装，按区域记录命中率、回源耗时等指标（{@link CacheMetrics}）。
+ */
+public class TwoLevelCacheManager extends AbstractTransactionSupportingCacheManager {
+
+    private static final Logger logger = LoggerFactory.getLogger(TwoLevelCacheManager.class);
+
+    private static final String CHANNEL = "cache:invalidate";
+
+    /** 清空整个区域 */
+    private static final String OP_CLEAR = "C";
+    /** 失效单个 key */
+    private static final String OP_EVICT = "E";
+
+    private static final String LEASE_PREFIX = "cache:lease:";
+
+    /** 只释放自己持有的租约 */
+    private static final DefaultRedisScript<Long> RELEASE_LEASE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('del', KEYS[1]) else return 0 end",
+            Long.class);
+
+    /** 当前节点标识，用于忽略自己发布的失效通知 */
+    private final String nodeId = UUID.randomUUID().toString();
+
+    private final RedisCacheManager redisCacheManager;
+    private final Map<String, LocalSpec> localSpecs;
+    private final LocalSpec defaultSpec;
+    private final LoadSpec loadSpec;
+    private final StringRedisTemplate stringRedisTemplate;
+    private final BiConsumer<String, String> accessListener;
+    private final HotKeySpec hotKeySpec;
+    private final CacheMetrics metrics;
+
+    /** 未经事务装饰的两级缓存，用于处理失效通知 */
+    private final Map<String, TwoLevelCache> caches = new ConcurrentHashMap<>();
+
+    /**
+     * 本地缓存配置
+     * @param maxSize 最大条目数，0 表示该区域不使用本地缓存
+     * @param ttl 本地条目过期时间，兜底丢失的失效通知
+     */
+    public record LocalSpec(int maxSize, Duration ttl) {
+    }
+
+    /**
+     * 回源加载配置
+     * @param earlyRefreshBeta XFetch 系数，越大越早刷新，0 表示不提前刷新
+     * @param leaseMillis 租约时长，也是等待其他节点加载的最长时间
+     */
+    public record LoadSpec(double earlyRefreshBeta, long leaseMillis) {
+    }
+
+    /**
+     * 热点 key 配置
+     * @param detector 热点检测器，为 null 时不检测
+     * @param replicaTtl 热点 key 本地副本的过期时间
+     */
+    public record HotKeySpec(HotKeyDetector detector, Duration replicaTtl) {
+    }
+
+    /**
+     * 热点 key
+     * @param cacheName 缓存区域
+     * @param key 缓存 key
+     * @param estimate 近期访问次数估计（按窗口衰减）
+     */
+    public record HotKey(String cacheName, String key, long estimate) {
+    }
+
+    public TwoLevelCacheManager(RedisCacheManager redisCacheManager, Map<String, LocalSpec> localSpecs, LocalSpec defaultSpec,
+                                LoadSpec loadSpec, StringRedisTemplate stringRedisTemplate,
+                                RedisMessageListenerContainer listenerContainer, BiConsumer<String, String> accessListener,
+                                HotKeySpec hotKeySpec, CacheMetrics metrics) {
+        this.redisCacheManager = redisCacheManager;
+        this.localSpecs = localSpecs;
+        this.defaultSpec = defaultSpec;
+        this.loadSpec = loadSpec;
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.accessListener = accessListener;
+        this.hotKeySpec = hotKeySpec;
+        this.metrics = metrics;
+        setTransactionAware(true);
+        listenerContainer.addMessageListener(
+                (Message message, byte[] pattern) -> onRemoteInvalidate(new String(message.getBody(), StandardCharsets.UTF_8)),
+                new ChannelTopic(CHANNEL));
+    }
+
+    @Override
+    protected Collection<? extends Cache> loadCaches() {
+        List<Cache> loaded = new ArrayList<>();
+        for (String name : redisCacheManager.getCacheNames()) {
+            loaded.add(create(name));
+        }
+        return loaded;
+    }
+
+    @Override
+    protected Cache getMissingCache(String name) {
+        return create(name);
+    }
+
+    /**
+     * 先包装指标统计，再由父类按需包装事务感知（事务内的写入和失效在提交后执行，提交后才计数）
+     */
+    @Override
+    protected Cache decorateCache(Cache cache) {
+        return super.decorateCache(new InstrumentedCache(cache, metrics.region(cache.getName())));
+    }
+
+    private TwoLevelCache create(String name) {
+        return caches.computeIfAbsent(name, n -> {
+            LocalSpec spec = localSpecs.getOrDefault(n, defaultSpec);
+            Cache redisCache = redisCacheManager.getCache(n);
+            // 各区域均为固定过期时间，与 key 无关
+            Duration redisTtl = redisCache instanceof RedisCache rc
+                    ? rc.getCacheConfiguration().getTtlFunction().getTimeToLive(n, null) : Duration.ZERO;
+            return new TwoLevelCache(n, redisCache, spec.maxSize(), spec.ttl(), hotKeySpec.replicaTtl(), redisTtl, this,
+                    metrics.region(n));
+        });
+    }
+
+    double earlyRefreshBeta() {
+        return loadSpec.earlyRefreshBeta();
+    }
+
+    long leaseMillis() {
+        return loadSpec.leaseMillis();
+    }
+
+    void recordAccess(String cacheName, String localKey) {
+        accessListener.accept(cacheName, localKey);
+        if (hotKeySpec.detector() != null) {
+            hotKeySpec.detector().add(cacheName + "|" + localKey);
+        }
+    }
+
+    boolean isHot(String cacheName, String localKey) {
+        return hotKeySpec.detector() != null && hotKeySpec.detector().isHot(cacheName + "|" + localKey);
+    }
+
+    /**
+     * 本节点当前检测到的热点 key，按访问次数从高到低
+     */
+    public List<HotKey> hotKeys() {
+        List<HotKey> hotKeys = new ArrayList<>();
+        if (hotKeySpec.detector() != null) {
+            hotKeySpec.detector().hotKeys().forEach((k, estimate) -> {
+                int sep = k.indexOf('|');
+                hotKeys.add(new HotKey(k.substring(0, sep), k.substring(sep + 1), estimate));
+            });
+        }
+        return hotKeys;
+    }
+
+    /**
+     * 尝试获取回源租约
+     * @return 租约标识，其他节点持有时返回 null；Redis 不可用时返回空串（视为获得，由本节点加载）
+     */
+    String tryLease(String cacheName, String localKey) {
+        String token = UUID.randomUUID().toString();
+        try {
+            Boolean acquired = stringRedisTemplate.opsForValue().setIfAbsent(
+                    LEASE_PREFIX + cacheName + ":" + localKey, token, loadSpec.leaseMillis(), TimeUnit.MILLISECONDS);
+            return Boolean.TRUE.equals(acquired) ? token : null;
+        } catch (Exception ex) {
+            logger.warn("获取缓存回源租约失败: {}", ex.toString());
+            return "";
+        }
+    }
+
+    /**
+     * 其他节点的回源租约是否仍存在（加载完成、结果为空或加载失败后释放）；Redis 不可用时返回 false，不再等待
+     */
+    boolean leaseHeld(String cacheName, String localKey) {
+        try {
+            return Boolean.TRUE.equals(stringRedisTemplate.hasKey(LEASE_PREFIX + cacheName + ":" + localKey));
+        } catch (Exception ex) {
+            logger.warn("读取缓存回源租约失败: {}", ex.toString());
+            return false;
+        }
+    }
+
+    void releaseLease(String cacheName, String localKey, String token) {
+        if (token.isEmpty()) {
+            return;
+        }
+        try {
+            stringRedisTemplate.execute(RELEASE_LEASE_SCRIPT,
+                    Collections.singletonList(LEASE_PREFIX + cacheName + ":" + localKey), token);
+        } catch (Exception ex) {
+            logger.warn("释放缓存回源租约失败: {}", ex.toString());
+        }
+    }
+
+    void publishEvict(String cacheName, String localKey) {
+        publish(OP_EVICT + "|" + cacheName + "|" + localKey);
+    }
+
+    void publishClear(String cacheName) {
+        publish(OP_CLEAR + "|" + cacheName + "|");
+    }
+
+    private void publish(String body) {
+        try {
+            stringRedisTemplate.convertAndSend(CHANNEL, nodeId + "|" + body);
+        } catch (Exception ex) {
+            logger.warn("发布缓存失效通知失败: {}", ex.toString());
+        }
+    }
+
+    /**
+     * 消息格式：节点ID|操作|缓存名|key（key 可能包含分隔符，放在最后）
+     */
+    private void onRemoteInvalidate(String body) {
+        String[] parts = body.split("\\|", 4);
+        if (parts.length < 4 || parts[0].equals(nodeId)) {
+            return;
+        }
+        TwoLevelCache cache = caches.get(parts[2]);
+        if (cache == null) {
+            return;
+        }
+        if (OP_CLEAR.equals(parts[1])) {
+            cache.clearLocal();
+        } else {
+            cache.evictLocal(parts[3]);
+        }
+    }
+}
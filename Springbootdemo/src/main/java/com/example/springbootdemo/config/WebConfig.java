@@ -13,6 +13,7 @@ public class WebConfig implements WebMvcConfigurer {
                 .allowedOriginPatterns("*") // Allow all origins (for development)
                 .allowedMethods("GET", "POST", "PUT", "DELETE", "OPTIONS")
                 .allowedHeaders("*")
+                .exposedHeaders("ETag", "Last-Modified") // 允许跨域时读取文章详情的缓存校验头
                 .allowCredentials(true);
     }
 }
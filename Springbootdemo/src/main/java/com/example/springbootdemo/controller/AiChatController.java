@@ -1,10 +1,13 @@
 package com.example.springbootdemo.controller;
 
 import com.example.springbootdemo.common.Result;
+import com.example.springbootdemo.config.AiBulkheadChatModel;
+import com.example.springbootdemo.service.AiChatJobService;
 import com.example.springbootdemo.service.AiChatService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
 
 import java.util.Map;
 
@@ -15,20 +18,27 @@ import java.util.Map;
 @RequestMapping("/ai")
 public class AiChatController {
 
+    /** 长轮询最长等待时间 */
+    private static final long MAX_WAIT_MILLIS = 60000;
+
     @Autowired
     private AiChatService aiChatService;
 
+    @Autowired
+    private AiChatJobService aiChatJobService;
+
     @Autowired
     private StringRedisTemplate stringRedisTemplate;
 
     /**
      * AI 聊天接口
-     * @param requestBody 包含用户消息的请求体 {"message": "用户消息", "conversationId": 123}
+     * @param requestBody 包含用户消息的请求体 {"message": "用户消息", "conversationId": 123, "clientRequestId": "可选幂等键"}
      * @return AI 的回复（包含conversationId和回复内容）
      */
     @PostMapping("/chat")
     public Result<Map<String, Object>> chat(@RequestHeader(value = "Authorization", required = false) String authorization,
                                @RequestHeader(value = "token", required = false) String tokenHeader,
+                               @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
                                @RequestBody Map<String, Object> requestBody) {
         try {
             Object msgObj = requestBody.get("message");
@@ -36,38 +46,105 @@ public class AiChatController {
                 return Result.error("消息不能为空");
             }
             String userMessage = msgObj.toString();
-
-            Long conversationId = null;
-            Object cid = requestBody.get("conversationId");
-            if (cid != null) {
-                try {
-                    if (cid instanceof Number) conversationId = ((Number) cid).longValue();
-                    else conversationId = Long.parseLong(cid.toString());
-                } catch (Exception ignored) {
-                }
-            }
+            Long conversationId = parseConversationId(requestBody.get("conversationId"));
 
             // 从 token/Authorization 解析当前用户 ID（若有）
-            Long userId = null;
-            String token = null;
-            if (authorization != null && authorization.startsWith("Bearer ")) {
-                token = authorization.substring(7);
-            } else if (tokenHeader != null && !tokenHeader.isEmpty()) {
-                token = tokenHeader;
-            }
-            if (token != null) {
-                try {
-                    Object o = stringRedisTemplate.opsForValue().get("login:token:" + token);
-                    if (o != null) userId = Long.parseLong(o.toString());
-                } catch (Exception ignored) {
-                }
+            Long userId = resolveUserId(authorization, tokenHeader);
+
+            // 幂等键：优先使用请求头，其次使用请求体中的 clientRequestId；重复请求合并为一次调用
+            if (idempotencyKey == null && requestBody.get("clientRequestId") != null) {
+                idempotencyKey = requestBody.get("clientRequestId").toString();
             }
 
-            Map<String, Object> result = aiChatService.chatWithConversation(conversationId, userMessage, userId);
+            Map<String, Object> result = aiChatService.chatWithConversation(conversationId, userMessage, userId, idempotencyKey);
             return Result.success(result);
+        } catch (AiBulkheadChatModel.AiUnavailableException e) {
+            return Result.error(503, e.getMessage(), null);
         } catch (Exception e) {
             e.printStackTrace();
             return Result.error("AI 服务暂时不可用，请稍后再试: " + e.getMessage());
         }
     }
+
+    /**
+     * 提交异步聊天任务，立即返回任务 ID
+     * @param requestBody {"message": "用户消息", "conversationId": 123, "clientRequestId": "客户端生成的唯一 ID"}
+     * @return {"jobId": "..."}
+     */
+    @PostMapping("/chat/jobs")
+    public Result<Map<String, Object>> submitJob(@RequestHeader(value = "Authorization", required = false) String authorization,
+                                                 @RequestHeader(value = "token", required = false) String tokenHeader,
+                                                 @RequestBody Map<String, Object> requestBody) {
+        try {
+            Object msgObj = requestBody.get("message");
+            if (msgObj == null || msgObj.toString().trim().isEmpty()) {
+                return Result.error("消息不能为空");
+            }
+            Long conversationId = parseConversationId(requestBody.get("conversationId"));
+            Object clientRequestId = requestBody.get("clientRequestId");
+            Long userId = resolveUserId(authorization, tokenHeader);
+
+            String jobId = aiChatJobService.submit(conversationId, msgObj.toString(), userId,
+                    clientRequestId == null ? null : clientRequestId.toString());
+            return Result.success(Map.of("jobId", jobId));
+        } catch (Exception e) {
+            return Result.error("提交 AI 任务失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 查询异步聊天任务结果（长轮询）
+     * @param waitSeconds 任务未完成时最多等待的秒数，0 表示立即返回当前状态
+     * @return 任务信息：status 为 PENDING / DONE / FAILED，完成后包含 conversationId 和 response
+     */
+    @GetMapping("/chat/jobs/{jobId}")
+    public DeferredResult<Result<Map<String, Object>>> getJob(@PathVariable String jobId,
+                                                              @RequestParam(defaultValue = "25") long waitSeconds,
+                                                              @RequestHeader(value = "Authorization", required = false) String authorization,
+                                                              @RequestHeader(value = "token", required = false) String tokenHeader) {
+        DeferredResult<Result<Map<String, Object>>> immediate = new DeferredResult<>();
+        Map<String, Object> job = aiChatJobService.getJob(jobId);
+        if (job == null) {
+            immediate.setResult(Result.error("任务不存在或已过期"));
+            return immediate;
+        }
+        if (!aiChatJobService.canAccess(job, resolveUserId(authorization, tokenHeader))) {
+            immediate.setResult(Result.error("无权查看该任务"));
+            return immediate;
+        }
+        if (waitSeconds <= 0 || !AiChatJobService.STATUS_PENDING.equals(job.get("status"))) {
+            immediate.setResult(Result.success(job));
+            return immediate;
+        }
+        return aiChatJobService.await(jobId, Math.min(waitSeconds, MAX_WAIT_MILLIS / 1000) * 1000);
+    }
+
+    private Long parseConversationId(Object cid) {
+        if (cid == null) {
+            return null;
+        }
+        try {
+            if (cid instanceof Number) return ((Number) cid).longValue();
+            return Long.parseLong(cid.toString());
+        } catch (Exception ignored) {
+            return null;
+        }
+    }
+
+    private Long resolveUserId(String authorization, String tokenHeader) {
+        String token = null;
+        if (authorization != null && authorization.startsWith("Bearer ")) {
+            token = authorization.substring(7);
+        } else if (tokenHeader != null && !tokenHeader.isEmpty()) {
+            token = tokenHeader;
+        }
+        if (token != null) {
+            try {
+                Object o = stringRedisTemplate.opsForValue().get("login:token:" + token);
+                if (o != null) return Long.parseLong(o.toString());
+            } catch (Exception ignored) {
+            }
+        }
+        return null;
+    }
 }
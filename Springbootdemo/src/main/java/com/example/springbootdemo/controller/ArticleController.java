@@ -1,12 +1,17 @@
 package com.example.springbootdemo.controller;
 
 import com.example.springbootdemo.common.Result;
+import com.example.springbootdemo.dto.ArticleSummary;
 import com.example.springbootdemo.entity.Article;
+import com.example.springbootdemo.service.ArticleBodyCache;
 import com.example.springbootdemo.service.ArticleService;
 import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
+import java.util.Map;
 
 /**
  * 文章控制器
@@ -24,7 +29,7 @@ public class ArticleController {
     }
 
     /**
-     * 获取所有文章列表（目录）
+     * 获取所有文章列表（包含内容，目录展示请使用 /mainPage/directory）
      */
     @GetMapping
     public Result<List<Article>> getAllArticles(
@@ -64,19 +69,86 @@ public class ArticleController {
         }
     }
 
+    /**
+     * 获取文章目录（不含文章内容，内容通过 /mainPage/{id} 单独获取）
+     */
+    @GetMapping("/directory")
+    public Result<List<ArticleSummary>> getArticleDirectory(
+            @RequestHeader(value = "Authorization", required = false) String authorization,
+            @RequestHeader(value = "token", required = false) String tokenHeader) {
+        try {
+            String token = null;
+            if (authorization != null && authorization.startsWith("Bearer ")) {
+                token = authorization.substring(7);
+            } else if (tokenHeader != null && !tokenHeader.isEmpty()) {
+                token = tokenHeader;
+            }
+
+            String userId = null;
+            if (token != null) {
+                try {
+                    Object o = stringRedisTemplate.opsForValue().get("login:token:" + token);
+                    if (o != null) userId = o.toString();
+                } catch (Exception ex) {
+                    // 忽略 Redis 读取失败，继续返回全部文章
+                }
+            }
+
+            // 与文章列表一致：优先返回当前用户的文章，没有时返回全部
+            if (userId != null) {
+                List<ArticleSummary> userArticles = articleService.getArticleDirectoryByUser(userId);
+                if (!userArticles.isEmpty()) {
+                    return Result.success(userArticles);
+                }
+            }
+            return Result.success(articleService.getArticleDirectory());
+        } catch (Exception e) {
+            return Result.error("获取文章目录失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 全文检索文章（标题、分类、正文），按相关度排序，不含文章内容
+     * @param keyword 关键词
+     * @param limit 最多返回条数
+     */
+    @GetMapping("/search")
+    public Result<List<ArticleSummary>> searchArticles(@RequestParam String keyword,
+                                                       @RequestParam(defaultValue = "20") Integer limit) {
+        try {
+            if (keyword.isBlank()) {
+                return Result.error("关键词不能为空");
+            }
+            return Result.success(articleService.searchArticles(keyword, Math.max(1, Math.min(limit, 100))));
+        } catch (IllegalStateException e) {
+            return Result.error(e.getMessage());
+        } catch (Exception e) {
+            return Result.error("搜索文章失败: " + e.getMessage());
+        }
+    }
+
     /**
      * 根据ID获取文章详情
+     * 响应带 ETag / Last-Modified，浏览器携带 If-None-Match 重新验证时未修改返回 304（无响应体）
      */
     @GetMapping("/{id}")
-    public Result<Article> getArticleById(@PathVariable String id) {
+    public ResponseEntity<Result<Article>> getArticleById(@PathVariable String id) {
         try {
             Article article = articleService.getArticleById(id);
             if (article == null) {
-                return Result.error("文章不存在");
+                return ResponseEntity.ok(Result.error("文章不存在"));
             }
-            return Result.success(article);
+            ResponseEntity.BodyBuilder builder = ResponseEntity.ok()
+                    .cacheControl(CacheControl.noCache())
+                    .eTag(ArticleBodyCache.etag(article));
+            long lastModified = ArticleBodyCache.lastModified(article);
+            if (lastModified >= 0) {
+                builder.lastModified(lastModified);
+            }
+            // 由 Spring 比对 If-None-Match / If-Modified-Since，匹配时直接返回 304
+            return builder.body(Result.success(article));
         } catch (Exception e) {
-            return Result.error("获取文章失败: " + e.getMessage());
+            return ResponseEntity.ok(Result.error("获取文章失败: " + e.getMessage()));
         }
     }
 
@@ -128,13 +200,31 @@ public class ArticleController {
             article.setId(id);
             Article updatedArticle = articleService.updateArticle(article);
             return Result.success(updatedArticle);
-        } catch (IllegalArgumentException e) {
+        } catch (IllegalArgumentException | IllegalStateException e) {
             return Result.error(e.getMessage());
         } catch (Exception e) {
             return Result.error("更新文章失败: " + e.getMessage());
         }
     }
 
+    /**
+     * 调整文章顺序：放到 prevId 与 nextId 之间（移到最前或最后时另一侧不传），只修改该文章的 position
+     */
+    @PutMapping("/{id}/position")
+    public Result<Integer> moveArticle(@PathVariable String id, @RequestBody Map<String, String> body) {
+        try {
+            String prevId = body.get("prevId");
+            String nextId = body.get("nextId");
+            return Result.success(articleService.moveArticle(id,
+                    prevId == null || prevId.isBlank() ? null : prevId,
+                    nextId == null || nextId.isBlank() ? null : nextId));
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            return Result.error(e.getMessage());
+        } catch (Exception e) {
+            return Result.error("调整文章顺序失败: " + e.getMessage());
+        }
+    }
+
     /**
      * 删除文章
      */
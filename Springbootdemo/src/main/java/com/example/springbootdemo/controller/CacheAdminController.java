@@ -0,0 +1,38 @@
+package com.example.springbootdemo.controller;
+
+import com.example.springbootdemo.common.Result;
+import com.example.springbootdemo.config.TwoLevelCacheManager;
+import jakarta.annotation.Resource;
+import org.springframework.cache.CacheManager;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 缓存管理控制器（管理端）
+ */
+@RestController
+@RequestMapping("/admin/cache")
+public class CacheAdminController {
+
+    @Resource
+    private CacheManager cacheManager;
+
+    /**
+     * 本节点当前检测到的热点 key（已固定在本地缓存），按访问次数从高到低
+     */
+    @GetMapping("/hot-keys")
+    public Result<List<TwoLevelCacheManager.HotKey>> hotKeys() {
+        try {
+            if (cacheManager instanceof TwoLevelCacheManager twoLevel) {
+                return Result.success(twoLevel.hotKeys());
+            }
+            return Result.success(Collections.emptyList());
+        } catch (Exception e) {
+            return Result.error("获取热点 key 失败: " + e.getMessage());
+        }
+    }
+}
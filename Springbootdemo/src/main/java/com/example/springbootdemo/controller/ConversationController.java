@@ -1,10 +1,13 @@
 package com.example.springbootdemo.controller;
 
+import com.example.springbootdemo.common.CursorPage;
 import com.example.springbootdemo.common.Result;
+import com.example.springbootdemo.dto.ConversationSummary;
 import com.example.springbootdemo.entity.Conversation;
 import com.example.springbootdemo.entity.MessageRecord;
 import com.example.springbootdemo.mapper.ConversationMapper;
 import com.example.springbootdemo.mapper.MessageRecordMapper;
+import com.example.springbootdemo.service.ConversationPurgeService;
 import com.example.springbootdemo.service.ConversationService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.redis.core.StringRedisTemplate;
@@ -27,6 +30,9 @@ public class ConversationController {
     @Autowired
     private MessageRecordMapper messageRecordMapper;
 
+    @Autowired
+    private ConversationPurgeService conversationPurgeService;
+
     @Autowired
     private StringRedisTemplate stringRedisTemplate;
 
@@ -62,6 +68,18 @@ public class ConversationController {
         return conversationService.deleteConversation(id);
     }
 
+    /**
+     * 启动一次孤儿消息清理任务（后台执行）
+     */
+    @PostMapping("/admin/orphan-sweep")
+    public Result<?> sweepOrphans() {
+        if (conversationPurgeService.isSweeping()) {
+            return Result.error("清理任务正在运行");
+        }
+        conversationPurgeService.sweepOrphansAsync();
+        return Result.success("清理任务已启动");
+    }
+
     @GetMapping("/list")
     public Result<List<Conversation>> list(@RequestHeader(value = "Authorization", required = false) String authorization,
                                            @RequestHeader(value = "token", required = false) String tokenHeader) {
@@ -135,4 +153,67 @@ public class ConversationController {
         );
         return Result.success(msgs);
     }
+
+    /**
+     * 游标分页查询会话摘要（不包含完整消息内容）
+     * @param cursor 上一页返回的 nextCursor，首页不传
+     * @param size 每页数量（1-100）
+     */
+    @GetMapping("/page")
+    public Result<CursorPage<ConversationSummary>> page(@RequestHeader(value = "Authorization", required = false) String authorization,
+                                                        @RequestHeader(value = "token", required = false) String tokenHeader,
+                                                        @RequestParam(required = false) String cursor,
+                                                        @RequestParam(defaultValue = "20") Integer size) {
+        try {
+            Long userId = resolveUserId(authorization, tokenHeader);
+            return Result.success(conversationService.pageConversationSummaries(userId, cursor, clampSize(size)));
+        } catch (IllegalArgumentException | java.time.format.DateTimeParseException e) {
+            return Result.error("无效的分页游标");
+        }
+    }
+
+    /**
+     * 按消息 ID 游标分页查询历史消息，从最新消息向前翻页
+     * @param beforeId 上一页返回的 nextCursor，首页不传
+     * @param size 每页数量（1-100）
+     */
+    @GetMapping("/{id}/messages/page")
+    public Result<CursorPage<MessageRecord>> messagesPage(@PathVariable("id") Long id,
+                                                          @RequestHeader(value = "Authorization", required = false) String authorization,
+                                                          @RequestHeader(value = "token", required = false) String tokenHeader,
+                                                          @RequestParam(required = false) Long beforeId,
+                                                          @RequestParam(defaultValue = "50") Integer size) {
+        Conversation conv = conversationMapper.selectById(id);
+        if (conv == null) return Result.error("会话不存在");
+
+        if (conv.getUserId() != null) {
+            Long userId = resolveUserId(authorization, tokenHeader);
+            if (userId == null || !conv.getUserId().equals(userId)) {
+                return Result.error("无权查看该会话消息");
+            }
+        }
+        return Result.success(conversationService.pageMessages(id, beforeId, clampSize(size)));
+    }
+
+    private int clampSize(Integer size) {
+        if (size == null || size <= 0) return 20;
+        return Math.min(size, 100);
+    }
+
+    private Long resolveUserId(String authorization, String tokenHeader) {
+        String token = null;
+        if (authorization != null && authorization.startsWith("Bearer ")) {
+            token = authorization.substring(7);
+        } else if (tokenHeader != null && !tokenHeader.isEmpty()) {
+            token = tokenHeader;
+        }
+        if (token != null) {
+            try {
+                Object o = stringRedisTemplate.opsForValue().get("login:token:" + token);
+                if (o != null) return Long.parseLong(o.toString());
+            } catch (Exception ignored) {
+            }
+        }
+        return null;
+    }
 }
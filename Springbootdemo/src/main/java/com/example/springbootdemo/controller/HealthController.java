@@ -1,8 +1,20 @@
 package com.example.springbootdemo.controller;
 
+import com.example.springbootdemo.config.AiBulkheadChatModel;
+import com.example.springbootdemo.config.CacheMetrics;
+import com.example.springbootdemo.config.ConcurrencyLimiter;
+import com.example.springbootdemo.service.AiResponseCache;
+import com.example.springbootdemo.service.ArticleBodyCache;
+import com.example.springbootdemo.service.ArticleSearchIndex;
+import com.example.springbootdemo.service.CacheWarmUpService;
+import com.example.springbootdemo.service.InventoryService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.availability.ApplicationAvailability;
+import org.springframework.boot.availability.ReadinessState;
 import org.springframework.data.redis.connection.RedisConnection;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
@@ -26,6 +38,36 @@ public class HealthController {
     @Autowired
     private RedisTemplate<String, Object> redisTemplate;
 
+    @Autowired
+    private AiResponseCache aiResponseCache;
+
+    @Autowired
+    private AiBulkheadChatModel qwenChatModel;
+
+    @Autowired
+    private ArticleBodyCache articleBodyCache;
+
+    @Autowired
+    private ArticleSearchIndex articleSearchIndex;
+
+    @Autowired
+    private CacheWarmUpService cacheWarmUpService;
+
+    @Autowired
+    private CacheMetrics cacheMetrics;
+
+    @Autowired
+    private ConcurrencyLimiter dbConcurrencyLimiter;
+
+    @Autowired
+    private ConcurrencyLimiter redisConcurrencyLimiter;
+
+    @Autowired
+    private ApplicationAvailability applicationAvailability;
+
+    @Autowired
+    private InventoryService inventoryService;
+
     /**
      * 简单健康检查（保持原有接口）
      */
@@ -34,6 +76,20 @@ public class HealthController {
         return "ok";
     }
 
+    /**
+     * 就绪检查（负载均衡 / 容器就绪探针使用）
+     * 启动缓存预热完成（或超时）后才返回 200，之前返回 503
+     */
+    @GetMapping("/ready")
+    public ResponseEntity<Map<String, Object>> ready() {
+        ReadinessState state = applicationAvailability.getReadinessState();
+        Map<String, Object> body = new HashMap<>();
+        body.put("status", state.name());
+        body.put("cacheWarmUp", cacheWarmUpService.stats());
+        HttpStatus status = state == ReadinessState.ACCEPTING_TRAFFIC ? HttpStatus.OK : HttpStatus.SERVICE_UNAVAILABLE;
+        return ResponseEntity.status(status).body(body);
+    }
+
     /**
      * 综合健康检查
      */
@@ -91,7 +147,7 @@ public class HealthController {
         memory.put("usagePercent", String.format("%.2f%%", (usedMemory * 100.0) / maxMemory));
         metrics.put("memory", memory);
 
-        // 线程信息
+        // 线程信息（虚拟线程模式下 activeCount 只统计平台线程）
         Map<String, Object> threads = new HashMap<>();
         threads.put("activeCount", Thread.activeCount());
         threads.put("peakCount", ManagementFactory.getThreadMXBean().getPeakThreadCount());
@@ -103,6 +159,33 @@ public class HealthController {
         cpu.put("systemLoadAverage", ManagementFactory.getOperatingSystemMXBean().getSystemLoadAverage());
         metrics.put("cpu", cpu);
 
+        // AI 回复缓存命中情况
+        metrics.put("aiResponseCache", aiResponseCache.stats());
+
+        // 文章正文缓存命中情况
+        metrics.put("articleBodyCache", articleBodyCache.stats());
+
+        // 文章全文检索索引状态
+        metrics.put("articleSearch", articleSearchIndex.stats());
+
+        // 数据库、Redis 并发限制（虚拟线程模式下生效）
+        Map<String, Object> concurrency = new HashMap<>();
+        concurrency.put("db", dbConcurrencyLimiter.stats());
+        concurrency.put("redis", redisConcurrencyLimiter.stats());
+        metrics.put("concurrency", concurrency);
+
+        // Spring Cache 各区域命中率、回源耗时、数据大小
+        metrics.put("caches", cacheMetrics.snapshot());
+
+        // 缓存预热状态
+        metrics.put("cacheWarmUp", cacheWarmUpService.stats());
+
+        // AI 调用隔离舱状态
+        metrics.put("aiBulkhead", qwenChatModel.stats());
+
+        // 热点库存写回状态（driftAlarms 非 0 需人工核对库存）
+        metrics.put("inventory", inventoryService.stats());
+
         // 运行时间
         long uptimeMillis = ManagementFactory.getRuntimeMXBean().getUptime();
         metrics.put("uptimeSeconds", uptimeMillis / 1000);
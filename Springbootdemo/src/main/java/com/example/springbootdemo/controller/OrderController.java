@@ -0,0 +1,104 @@
+package com.example.springbootdemo.controller;
+
+import com.example.springbootdemo.common.Result;
+import com.example.springbootdemo.entity.Order;
+import com.example.springbootdemo.service.OrderService;
+import com.example.springbootdemo.service.UserService;
+import jakarta.annotation.Resource;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 订单控制器（用户端）
+ */
+@RestController
+@RequestMapping("/orders")
+public class OrderController {
+
+    @Resource
+    private OrderService orderService;
+
+    @Resource
+    private UserService userService;
+
+    /**
+     * 下单
+     * @param body {"productId": 1, "quantity": 1}
+     * @return Result
+     */
+    @PostMapping
+    public Result<Order> createOrder(@RequestHeader(value = "Authorization", required = false) String authorization,
+                                     @RequestHeader(value = "token", required = false) String tokenHeader,
+                                     @RequestBody Map<String, Object> body) {
+        try {
+            Long userId = resolveUserId(authorization, tokenHeader);
+            if (userId == null) {
+                return Result.error("请先登录");
+            }
+            Object productId = body.get("productId");
+            if (productId == null) {
+                return Result.error("商品ID不能为空");
+            }
+            Object quantity = body.get("quantity");
+            Order order = orderService.createOrder(userId, Long.parseLong(productId.toString()),
+                    quantity == null ? 1 : Integer.parseInt(quantity.toString()));
+            return Result.success(order);
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            return Result.error(e.getMessage());
+        } catch (Exception e) {
+            return Result.error("下单失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 获取当前用户的订单列表
+     * @return Result
+     */
+    @GetMapping
+    public Result<List<Order>> getMyOrders(@RequestHeader(value = "Authorization", required = false) String authorization,
+                                           @RequestHeader(value = "token", required = false) String tokenHeader) {
+        Long userId = resolveUserId(authorization, tokenHeader);
+        if (userId == null) {
+            return Result.error("请先登录");
+        }
+        try {
+            return Result.success(orderService.getOrdersByUser(userId));
+        } catch (Exception e) {
+            return Result.error("获取订单列表失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 取消订单
+     * @param id 订单ID
+     * @return Result
+     */
+    @PutMapping("/{id}/cancel")
+    public Result<Boolean> cancelOrder(@PathVariable Long id,
+                                       @RequestHeader(value = "Authorization", required = false) String authorization,
+                                       @RequestHeader(value = "token", required = false) String tokenHeader) {
+        Long userId = resolveUserId(authorization, tokenHeader);
+        if (userId == null) {
+            return Result.error("请先登录");
+        }
+        try {
+            if (orderService.cancelOrder(id, userId)) {
+                return Result.success(true);
+            }
+            return Result.error("订单已取消");
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            return Result.error(e.getMessage());
+        } catch (Exception e) {
+            return Result.error("取消订单失败: " + e.getMessage());
+        }
+    }
+
+    private Long resolveUserId(String authorization, String tokenHeader) {
+        if (authorization != null && authorization.startsWith("Bearer ")) {
+            return userService.getUserIdByToken(authorization.substring(7));
+        }
+        return userService.getUserIdByToken(tokenHeader);
+    }
+}
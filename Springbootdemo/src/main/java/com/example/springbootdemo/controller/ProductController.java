@@ -3,11 +3,17 @@ package com.example.springbootdemo.controller;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.example.springbootdemo.common.Result;
 import com.example.springbootdemo.entity.Product;
+import com.example.springbootdemo.service.InventoryService;
 import com.example.springbootdemo.service.ProductService;
+import com.example.springbootdemo.service.ProductTransferService;
 import jakarta.annotation.Resource;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
 import java.util.List;
+import java.util.Map;
 
 /**
  * 商品管理控制器（管理端）
@@ -19,6 +25,15 @@ public class ProductController {
     @Resource
     private ProductService productService;
 
+    @Resource
+    private InventoryService inventoryService;
+
+    @Resource
+    private ProductTransferService productTransferService;
+
+    /** 批量上下架单次最多的商品数 */
+    private static final int MAX_BATCH_IDS = 10000;
+
     /**
      * 新增商品
      * @param product 商品对象
@@ -52,7 +67,7 @@ public class ProductController {
             product.setId(id);
             Product updatedProduct = productService.updateProduct(product);
             return Result.success(updatedProduct);
-        } catch (IllegalArgumentException e) {
+        } catch (IllegalArgumentException | IllegalStateException e) {
             return Result.error(e.getMessage());
         } catch (Exception e) {
             return Result.error("更新商品失败: " + e.getMessage());
@@ -169,4 +184,135 @@ public class ProductController {
             return Result.error("下架商品失败: " + e.getMessage());
         }
     }
+
+    /**
+     * 标记为热点商品（秒杀），库存加载到 Redis 预扣
+     * @param id 商品ID
+     * @return Result 加载到 Redis 的库存
+     */
+    @PutMapping("/{id}/hot")
+    public Result<Integer> markHot(@PathVariable Long id) {
+        try {
+            return Result.success(inventoryService.markHot(id));
+        } catch (IllegalArgumentException e) {
+            return Result.error(e.getMessage());
+        } catch (Exception e) {
+            return Result.error("标记热点商品失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 取消热点商品标记，未同步的库存扣减写回数据库
+     * @param id 商品ID
+     * @return Result
+     */
+    @DeleteMapping("/{id}/hot")
+    public Result<Boolean> unmarkHot(@PathVariable Long id) {
+        try {
+            inventoryService.unmarkHot(id);
+            return Result.success(true);
+        } catch (Exception e) {
+            return Result.error("取消热点商品失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 将商品库存拆分到多个分桶（热点商品提升并发购买吞吐）
+     * @param id 商品ID
+     * @param count 分桶数
+     * @return Result
+     */
+    @PutMapping("/{id}/buckets")
+    public Result<Boolean> splitStock(@PathVariable Long id, @RequestParam Integer count) {
+        try {
+            inventoryService.splitStock(id, count);
+            return Result.success(true);
+        } catch (IllegalArgumentException e) {
+            return Result.error(e.getMessage());
+        } catch (Exception e) {
+            return Result.error("库存分桶失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 合并分桶库存
+     * @param id 商品ID
+     * @return Result
+     */
+    @DeleteMapping("/{id}/buckets")
+    public Result<Boolean> mergeStock(@PathVariable Long id) {
+        try {
+            inventoryService.mergeStock(id);
+            return Result.success(true);
+        } catch (IllegalArgumentException e) {
+            return Result.error(e.getMessage());
+        } catch (Exception e) {
+            return Result.error("合并分桶库存失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 批量上架商品
+     * @param body {"ids": [1, 2, 3]}
+     * @return Result 更新的行数
+     */
+    @PutMapping("/batch/on-shelf")
+    public Result<Integer> batchOnShelf(@RequestBody Map<String, List<Long>> body) {
+        return batchUpdateStatus(body, 1);
+    }
+
+    /**
+     * 批量下架商品
+     * @param body {"ids": [1, 2, 3]}
+     * @return Result 更新的行数
+     */
+    @PutMapping("/batch/off-shelf")
+    public Result<Integer> batchOffShelf(@RequestBody Map<String, List<Long>> body) {
+        return batchUpdateStatus(body, 0);
+    }
+
+    private Result<Integer> batchUpdateStatus(Map<String, List<Long>> body, int status) {
+        List<Long> ids = body == null ? null : body.get("ids");
+        if (ids == null || ids.isEmpty()) {
+            return Result.error("商品ID列表不能为空");
+        }
+        if (ids.size() > MAX_BATCH_IDS) {
+            return Result.error("单次最多操作 " + MAX_BATCH_IDS + " 个商品");
+        }
+        try {
+            return Result.success(productService.batchUpdateStatus(ids, status));
+        } catch (Exception e) {
+            return Result.error("批量修改商品状态失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 批量导入商品，请求体为 CSV 或 JSON 文件内容（流式解析，不整体读入内存）
+     * @param format csv / json
+     * @return Result 导入结果
+     */
+    @PostMapping("/import")
+    public Result<Map<String, Object>> importProducts(@RequestParam(defaultValue = "csv") String format,
+                                                      HttpServletRequest request) {
+        try {
+            return Result.success(productTransferService.importProducts(request.getInputStream(), format));
+        } catch (IllegalArgumentException e) {
+            return Result.error(e.getMessage());
+        } catch (Exception e) {
+            return Result.error("导入商品失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 导出全部商品（流式写出）
+     * @param format csv / json
+     */
+    @GetMapping("/export")
+    public void exportProducts(@RequestParam(defaultValue = "csv") String format,
+                               HttpServletResponse response) throws IOException {
+        boolean json = "json".equalsIgnoreCase(format);
+        response.setContentType(json ? "application/json;charset=UTF-8" : "text/csv;charset=UTF-8");
+        response.setHeader("Content-Disposition", "attachment; filename=products." + (json ? "json" : "csv"));
+        productTransferService.exportProducts(response.getOutputStream(), json ? "json" : "csv");
+    }
 }
@@ -3,11 +3,14 @@ package com.example.springbootdemo.controller;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.example.springbootdemo.common.Result;
 import com.example.springbootdemo.entity.Product;
+import com.example.springbootdemo.service.InventoryService;
 import com.example.springbootdemo.service.ProductService;
 import jakarta.annotation.Resource;
 import org.springframework.web.bind.annotation.*;
 
+import java.math.BigDecimal;
 import java.util.List;
+import java.util.Map;
 
 /**
  * 商品控制器（用户端）- 仅展示上架商品
@@ -19,6 +22,9 @@ public class ProductUserController {
     @Resource
     private ProductService productService;
 
+    @Resource
+    private InventoryService inventoryService;
+
     /**
      * 获取上架商品列表（用户端）
      * @return Result
@@ -51,6 +57,40 @@ public class ProductUserController {
         }
     }
 
+    /**
+     * 搜索上架商品（用户端），基于内存倒排索引，不访问数据库
+     * @param keyword 关键词（商品名称）
+     * @param minPrice 最低价格
+     * @param maxPrice 最高价格
+     * @param sort 排序字段：price / createTime
+     * @param order 排序方向：asc / desc
+     * @param pageNum 页码
+     * @param pageSize 每页数量
+     * @return Result
+     */
+    @GetMapping("/search")
+    public Result<Page<Product>> searchProducts(
+            @RequestParam(required = false) String keyword,
+            @RequestParam(required = false) BigDecimal minPrice,
+            @RequestParam(required = false) BigDecimal maxPrice,
+            @RequestParam(required = false) String sort,
+            @RequestParam(defaultValue = "asc") String order,
+            @RequestParam(defaultValue = "1") Integer pageNum,
+            @RequestParam(defaultValue = "10") Integer pageSize) {
+        try {
+            if (pageNum < 1 || pageSize < 1 || pageSize > 100) {
+                return Result.error("分页参数不合法");
+            }
+            if (minPrice != null && maxPrice != null && minPrice.compareTo(maxPrice) > 0) {
+                return Result.error("最低价格不能高于最高价格");
+            }
+            Page<Product> page = productService.searchOnShelfProducts(keyword, minPrice, maxPrice, sort, order, pageNum, pageSize);
+            return Result.success(page);
+        } catch (Exception e) {
+            return Result.error("搜索商品失败: " + e.getMessage());
+        }
+    }
+
     /**
      * 根据ID获取商品详情（用户端，仅上架商品）
      * @param id 商品ID
@@ -59,17 +99,44 @@ public class ProductUserController {
     @GetMapping("/{id}")
     public Result<Product> getProductById(@PathVariable Long id) {
         try {
-            Product product = productService.getProductById(id);
+            // 只返回上架的商品（从内存目录读取，不访问数据库）
+            Product product = productService.getOnShelfProductById(id);
             if (product == null) {
-                return Result.error("商品不存在");
-            }
-            // 只返回上架的商品
-            if (product.getStatus() != 1) {
-                return Result.error("商品未上架");
+                return Result.error("商品不存在或未上架");
             }
             return Result.success(product);
         } catch (Exception e) {
             return Result.error("获取商品详情失败: " + e.getMessage());
         }
     }
+
+    /**
+     * 购买商品（原子扣减库存，库存不足时失败，不会超卖）
+     * @param id 商品ID
+     * @param body {"quantity": 1}
+     * @return Result
+     */
+    @PostMapping("/{id}/purchase")
+    public Result<Boolean> purchase(@PathVariable Long id, @RequestBody(required = false) Map<String, Object> body) {
+        try {
+            int quantity = 1;
+            if (body != null && body.get("quantity") != null) {
+                quantity = Integer.parseInt(body.get("quantity").toString());
+            }
+            if (quantity <= 0) {
+                return Result.error("购买数量必须大于0");
+            }
+            if (productService.getOnShelfProductById(id) == null) {
+                return Result.error("商品不存在或未上架");
+            }
+            if (!inventoryService.deduct(id, quantity)) {
+                return Result.error("库存不足");
+            }
+            return Result.success(true);
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            return Result.error(e.getMessage());
+        } catch (Exception e) {
+            return Result.error("购买失败: " + e.getMessage());
+        }
+    }
 }
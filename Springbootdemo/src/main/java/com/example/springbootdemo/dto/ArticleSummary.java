@@ -0,0 +1,27 @@
+package com.example.springbootdemo.dto;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * 文章目录项（目录展示使用，不包含文章内容）
+ */
+@Data
+public class ArticleSummary {
+    private String id;
+
+    private String title;
+
+    private String author;
+
+    private String category;
+
+    private Integer position;
+
+    private Integer version;
+
+    private LocalDateTime createTime;
+
+    private LocalDateTime updateTime;
+}
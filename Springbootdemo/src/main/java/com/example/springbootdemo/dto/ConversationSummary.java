@@ -0,0 +1,20 @@
+package com.example.springbootdemo.dto;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * 会话摘要（侧边栏列表使用，不包含完整消息内容）
+ */
+@Data
+public class ConversationSummary {
+    private Long id;
+
+    private String title;
+
+    private LocalDateTime updatedAt;
+
+    /** 最后一条消息的前若干个字符 */
+    private String lastMessagePreview;
+}
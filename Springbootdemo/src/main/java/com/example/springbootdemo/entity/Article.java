@@ -41,6 +41,11 @@ public class Article implements Serializable {
      */
     private Integer position;
 
+    /**
+     * 乐观锁版本号，修改文章时携带读取到的版本号，版本不一致则更新失败
+     */
+    private Integer version;
+
     /**
      * 创建时间
      */
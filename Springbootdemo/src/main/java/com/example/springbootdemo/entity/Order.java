@@ -0,0 +1,70 @@
+package com.example.springbootdemo.entity;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.Data;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * 订单实体类
+ */
+@Data
+@TableName("orders")
+public class Order implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 订单ID
+     */
+    @TableId(value = "id", type = IdType.AUTO)
+    private Long id;
+
+    /**
+     * 下单用户ID
+     */
+    private Long userId;
+
+    /**
+     * 商品ID
+     */
+    private Long productId;
+
+    /**
+     * 购买数量
+     */
+    private Integer quantity;
+
+    /**
+     * 下单时的商品单价
+     */
+    private BigDecimal unitPrice;
+
+    /**
+     * 订单总金额
+     */
+    private BigDecimal totalAmount;
+
+    /**
+     * 订单状态：0=已创建，1=已取消
+     */
+    private Integer status;
+
+    /**
+     * 创建时间
+     */
+    private LocalDateTime createTime;
+
+    /**
+     * 更新时间
+     */
+    private LocalDateTime updateTime;
+
+    /**
+     * 库存预占ID：下单对账任务据此判断预占的库存是否已写入订单
+     */
+    private String reservationId;
+}
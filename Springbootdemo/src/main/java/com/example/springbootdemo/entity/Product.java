@@ -3,6 +3,7 @@ package com.example.springbootdemo.entity;
 import com.baomidou.mybatisplus.annotation.IdType;
 import com.baomidou.mybatisplus.annotation.TableId;
 import com.baomidou.mybatisplus.annotation.TableName;
+import com.baomidou.mybatisplus.annotation.Version;
 import lombok.Data;
 
 import java.io.Serializable;
@@ -43,6 +44,22 @@ public class Product implements Serializable {
      */
     private Integer status;
 
+    /**
+     * 库存分桶数：0=不分桶，大于 0 时库存拆分到 product_stock_bucket 的多行中
+     */
+    private Integer bucketCount;
+
+    /**
+     * Redis 热点商品已写回数据库的累计已售数量：null=非热点商品
+     */
+    private Long hotSold;
+
+    /**
+     * 乐观锁版本号，修改商品时携带读取到的版本号，版本不一致则更新失败
+     */
+    @Version
+    private Integer version;
+
     /**
      * 创建时间
      */
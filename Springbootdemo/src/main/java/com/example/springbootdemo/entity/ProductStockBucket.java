@@ -0,0 +1,35 @@
+package com.example.springbootdemo.entity;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.Data;
+
+/**
+ * 商品库存分桶实体类
+ * 热点商品的库存拆分到多行，并发购买分散到不同的行锁上
+ */
+@Data
+@TableName("product_stock_bucket")
+public class ProductStockBucket {
+    /**
+     * 主键
+     */
+    @TableId(type = IdType.AUTO)
+    private Long id;
+
+    /**
+     * 商品ID
+     */
+    private Long productId;
+
+    /**
+     * 桶编号：0 ~ bucketCount-1
+     */
+    private Integer bucketNo;
+
+    /**
+     * 桶内库存
+     */
+    private Integer stock;
+}
@@ -1,8 +1,10 @@
 package com.example.springbootdemo.mapper;
 
+import com.example.springbootdemo.dto.ArticleSummary;
 import com.example.springbootdemo.entity.Article;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.cursor.Cursor;
 import java.util.List;
 
 @Mapper
@@ -10,7 +12,13 @@ public interface ArticleMapper {
     int insertArticle(Article article);
     Article selectArticleById(@Param("id") String id);
     List<Article> selectAllArticles();
+    List<ArticleSummary> selectArticleDirectory();
+    ArticleSummary selectArticleSummaryById(@Param("id") String id);
+    Cursor<Article> scanArticlesForIndex();
     List<Article> selectArticlesByUser(@Param("userId") String userId);
     int updateArticle(Article article);
     int deleteArticle(@Param("id") String id);
+    List<Article> selectPositionsForUpdate(@Param("ids") List<String> ids);
+    int updatePosition(@Param("id") String id, @Param("position") int position);
+    int rebalancePositions(@Param("gap") int gap);
 }
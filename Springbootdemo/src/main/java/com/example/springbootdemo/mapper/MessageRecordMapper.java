@@ -2,8 +2,41 @@ package com.example.springbootdemo.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.example.springbootdemo.entity.MessageRecord;
+import org.apache.ibatis.annotations.Delete;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+
+import java.util.Collection;
+import java.util.List;
 
 @Mapper
 public interface MessageRecordMapper extends BaseMapper<MessageRecord> {
+
+    /**
+     * 查询每个会话最后一条消息的预览（只截取前 previewLength 个字符）
+     */
+    @Select("<script>"
+            + "SELECT m.id, m.conversation_id, m.role, LEFT(m.content, #{previewLength}) AS content, m.created_at "
+            + "FROM message_record m "
+            + "JOIN (SELECT MAX(id) AS id FROM message_record WHERE conversation_id IN "
+            + "<foreach collection='conversationIds' item='cid' open='(' separator=',' close=')'>#{cid}</foreach> "
+            + "GROUP BY conversation_id) t ON m.id = t.id"
+            + "</script>")
+    List<MessageRecord> selectLastMessagePreviews(@Param("conversationIds") Collection<Long> conversationIds,
+                                                  @Param("previewLength") int previewLength);
+
+    /**
+     * 分批删除会话下的消息，每次最多删除 limit 行，避免大事务长时间锁表
+     */
+    @Delete("DELETE FROM message_record WHERE conversation_id = #{conversationId} LIMIT #{limit}")
+    int deleteBatchByConversationId(@Param("conversationId") Long conversationId, @Param("limit") int limit);
+
+    /**
+     * 查询已没有对应会话的孤儿消息所属的会话 ID
+     */
+    @Select("SELECT DISTINCT m.conversation_id FROM message_record m "
+            + "LEFT JOIN conversation c ON c.id = m.conversation_id "
+            + "WHERE m.conversation_id IS NOT NULL AND c.id IS NULL LIMIT #{limit}")
+    List<Long> selectOrphanConversationIds(@Param("limit") int limit);
 }
@@ -0,0 +1,12 @@
+package com.example.springbootdemo.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.example.springbootdemo.entity.Order;
+import org.apache.ibatis.annotations.Mapper;
+
+/**
+ * 订单 Mapper 接口
+ */
+@Mapper
+public interface OrderMapper extends BaseMapper<Order> {
+}
@@ -3,10 +3,104 @@ package com.example.springbootdemo.mapper;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.example.springbootdemo.entity.Product;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Options;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.mapping.ResultSetType;
+
+import java.util.List;
 
 /**
  * 商品 Mapper 接口
+ * version 只在管理端修改商品字段时递增（乐观锁）；库存扣减、写回、分桶汇总、热点标记和上下架
+ * 不递增版本，否则购买频繁的商品管理端几乎无法保存。管理端修改库存按差值生效，不依赖版本号
  */
 @Mapper
 public interface ProductMapper extends BaseMapper<Product> {
+
+    /**
+     * 条件扣减库存，库存不足、商品已分桶或为 Redis 热点商品时不更新（返回 0），保证不超卖
+     */
+    @Update("UPDATE product SET stock = stock - #{quantity} "
+            + "WHERE id = #{id} AND stock >= #{quantity} AND bucket_count = 0 AND hot_sold IS NULL")
+    int decreaseStock(@Param("id") Long id, @Param("quantity") int quantity);
+
+    /**
+     * 扣减库存，最低扣到 0（管理端减少库存），热点商品不更新
+     */
+    @Update("UPDATE product SET stock = GREATEST(stock - #{quantity}, 0) "
+            + "WHERE id = #{id} AND hot_sold IS NULL")
+    int decreaseStockToZero(@Param("id") Long id, @Param("quantity") int quantity);
+
+    /**
+     * 归还库存，商品已分桶或为 Redis 热点商品时不更新（返回 0）
+     */
+    @Update("UPDATE product SET stock = stock + #{quantity} "
+            + "WHERE id = #{id} AND bucket_count = 0 AND hot_sold IS NULL")
+    int increaseStock(@Param("id") Long id, @Param("quantity") int quantity);
+
+    /**
+     * 标记为 Redis 热点商品，已写回的累计已售数量从 0 开始
+     */
+    @Update("UPDATE product SET hot_sold = 0 WHERE id = #{id} AND hot_sold IS NULL")
+    int markHot(@Param("id") Long id);
+
+    /**
+     * 热点商品：按 Redis 中的累计已售数量与已写回值之差扣减库存并记录新的累计值。
+     * 赋值从左到右执行，stock 先用旧的 hot_sold 计算；累计值相同或数据库库存不够扣时不更新（返回 0）
+     */
+    @Update("UPDATE product SET stock = stock - (#{sold} - hot_sold), hot_sold = #{sold} "
+            + "WHERE id = #{id} AND hot_sold IS NOT NULL AND hot_sold <> #{sold} AND stock >= #{sold} - hot_sold")
+    int applyHotSold(@Param("id") Long id, @Param("sold") long sold);
+
+    /**
+     * 取消热点：写回剩余的已售数量（sold 为 null 时不扣减）并清除标记，数据库库存不够扣时不更新（返回 0）
+     */
+    @Update("UPDATE product SET stock = stock - (COALESCE(#{sold}, hot_sold) - hot_sold), hot_sold = NULL "
+            + "WHERE id = #{id} AND hot_sold IS NOT NULL AND stock >= COALESCE(#{sold}, hot_sold) - hot_sold")
+    int unmarkHot(@Param("id") Long id, @Param("sold") Long sold);
+
+    /**
+     * 热点商品：管理端库存差值（已在 Redis 中生效）同步到数据库，最低到 0
+     */
+    @Update("UPDATE product SET stock = GREATEST(stock + #{delta}, 0) "
+            + "WHERE id = #{id} AND hot_sold IS NOT NULL")
+    int adjustHotStock(@Param("id") Long id, @Param("delta") int delta);
+
+    /**
+     * 分桶商品：将各桶库存之和回写到商品表（用于展示），未分桶的商品不更新
+     */
+    @Update("UPDATE product SET stock = (SELECT COALESCE(SUM(stock), 0) FROM product_stock_bucket WHERE product_id = #{id}) "
+            + "WHERE id = #{id} AND bucket_count > 0")
+    int refreshStockFromBuckets(@Param("id") Long id);
+
+    /**
+     * 锁定商品行
+     */
+    @Select("SELECT * FROM product WHERE id = #{id} FOR UPDATE")
+    Product selectForUpdate(@Param("id") Long id);
+
+    /**
+     * 修改上下架状态，只写状态列，不回写库存等其他字段
+     */
+    @Update("UPDATE product SET status = #{status} WHERE id = #{id}")
+    int updateStatus(@Param("id") Long id, @Param("status") int status);
+
+    /**
+     * 批量修改上下架状态，一条 UPDATE ... WHERE id IN (...)
+     */
+    @Update("<script>"
+            + "UPDATE product SET status = #{status} WHERE id IN "
+            + "<foreach collection='ids' item='id' open='(' separator=',' close=')'>#{id}</foreach>"
+            + "</script>")
+    int updateStatusBatch(@Param("ids") List<Long> ids, @Param("status") int status);
+
+    /**
+     * 按 ID 顺序流式读取全部商品（MySQL 驱动逐行返回，需在事务内遍历）
+     */
+    @Select("SELECT id, name, price, stock, status, create_time FROM product ORDER BY id")
+    @Options(resultSetType = ResultSetType.FORWARD_ONLY, fetchSize = Integer.MIN_VALUE)
+    Cursor<Product> scanAll();
 }
@@ -0,0 +1,38 @@
+package com.example.springbootdemo.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.example.springbootdemo.entity.ProductStockBucket;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+
+import java.util.List;
+
+/**
+ * 商品库存分桶 Mapper 接口
+ */
+@Mapper
+public interface ProductStockBucketMapper extends BaseMapper<ProductStockBucket> {
+
+    /**
+     * 条件扣减单个桶的库存，库存不足时返回 0
+     */
+    @Update("UPDATE product_stock_bucket SET stock = stock - #{quantity} "
+            + "WHERE product_id = #{productId} AND bucket_no = #{bucketNo} AND stock >= #{quantity}")
+    int decreaseStock(@Param("productId") Long productId, @Param("bucketNo") int bucketNo, @Param("quantity") int quantity);
+
+    /**
+     * 归还库存到指定桶
+     */
+    @Update("UPDATE product_stock_bucket SET stock = stock + #{quantity} "
+            + "WHERE product_id = #{productId} AND bucket_no = #{bucketNo}")
+    int increaseStock(@Param("productId") Long productId, @Param("bucketNo") int bucketNo, @Param("quantity") int quantity);
+
+    /**
+     * 锁定商品的全部桶（用于再平衡、拆分和合并）
+     */
+    @Select("SELECT id, product_id, bucket_no, stock FROM product_stock_bucket "
+            + "WHERE product_id = #{productId} ORDER BY bucket_no FOR UPDATE")
+    List<ProductStockBucket> selectForUpdate(@Param("productId") Long productId);
+}
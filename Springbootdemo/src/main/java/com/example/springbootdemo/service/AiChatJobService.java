@@ -0,0 +1,232 @@
+package com.example.springbootdemo.service;
+
+import com.example.springbootdemo.common.Result;
+import com.example.springbootdemo.config.AiBulkheadChatModel;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.Resource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * AI 聊天异步任务服务
+ * 提交后立即返回任务 ID，模型调用在独立线程池执行，结果存入 Redis，
+ * 客户端通过长轮询获取结果；断线重连后凭任务 ID（或客户端请求 ID）取回结果，不会重复调用模型。
+ * 任务在哪个节点完成都通过 Redis 发布/订阅通知各节点唤醒本地的长轮询，另定期读取任务状态兜底丢失的通知
+ */
+@Service
+public class AiChatJobService {
+
+    private static final Logger logger = LoggerFactory.getLogger(AiChatJobService.class);
+
+    private static final String JOB_KEY = "ai:job:";
+    private static final String CLIENT_KEY = "ai:job:client:";
+    private static final Duration JOB_TTL = Duration.ofHours(24);
+    /** 任务完成通知，消息体为任务 ID */
+    private static final String DONE_CHANNEL = "ai:job:done";
+
+    public static final String STATUS_PENDING = "PENDING";
+    public static final String STATUS_DONE = "DONE";
+    public static final String STATUS_FAILED = "FAILED";
+
+    @Resource
+    private AiChatService aiChatService;
+
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Resource
+    private RedisMessageListenerContainer redisMessageListenerContainer;
+
+    @Resource
+    @Qualifier("aiJobExecutor")
+    private ThreadPoolTaskExecutor aiJobExecutor;
+
+    /** 本节点上等待任务完成的长轮询请求（任务可能在其他节点执行） */
+    private final Map<String, List<DeferredResult<Result<Map<String, Object>>>>> waiters = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void subscribe() {
+        redisMessageListenerContainer.addMessageListener(
+                (Message message, byte[] pattern) -> wake(new String(message.getBody(), StandardCharsets.UTF_8)),
+                new ChannelTopic(DONE_CHANNEL));
+    }
+
+    /**
+     * 提交聊天任务
+     * @param conversationId 会话 ID（可为 null）
+     * @param userMessage 用户消息
+     * @param userId 当前用户 ID（可为 null）
+     * @param clientRequestId 客户端生成的请求 ID，重复提交时返回同一个任务
+     * @return 任务 ID
+     */
+    public String submit(Long conversationId, String userMessage, Long userId, String clientRequestId) {
+        String jobId = UUID.randomUUID().toString().replace("-", "");
+        if (clientRequestId != null && !clientRequestId.isBlank()) {
+            String clientKey = CLIENT_KEY + (userId == null ? "anonymous" : userId) + ":" + clientRequestId;
+            Boolean first = stringRedisTemplate.opsForValue().setIfAbsent(clientKey, jobId, JOB_TTL);
+            if (!Boolean.TRUE.equals(first)) {
+                String existing = stringRedisTemplate.opsForValue().get(clientKey);
+                if (existing != null) {
+                    logger.info("重复提交的 AI 任务，复用 jobId={}", existing);
+                    return existing;
+                }
+            }
+        }
+
+        Map<String, String> job = new HashMap<>();
+        job.put("status", STATUS_PENDING);
+        job.put("userId", userId == null ? "" : String.valueOf(userId));
+        job.put("createdAt", String.valueOf(System.currentTimeMillis()));
+        stringRedisTemplate.opsForHash().putAll(JOB_KEY + jobId, job);
+        stringRedisTemplate.expire(JOB_KEY + jobId, JOB_TTL);
+
+        try {
+            aiJobExecutor.execute(() -> run(jobId, conversationId, userMessage, userId, clientRequestId));
+        } catch (RejectedExecutionException e) {
+            finish(jobId, STATUS_FAILED, Map.of("error", "AI 服务繁忙，请稍后再试"));
+        }
+        return jobId;
+    }
+
+    private void run(String jobId, Long conversationId, String userMessage, Long userId, String clientRequestId) {
+        try {
+            // 任务已在线程池中排队，等待隔离舱许可时不使用交互请求的排队超时
+            Map<String, Object> result = AiBulkheadChatModel.background(
+                    () -> aiChatService.chatWithConversation(conversationId, userMessage, userId, clientRequestId));
+            Map<String, String> fields = new HashMap<>();
+            Object cid = result.get("conversationId");
+            fields.put("conversationId", cid == null ? "" : cid.toString());
+            Object response = result.get("response");
+            fields.put("response", response == null ? "" : response.toString());
+            finish(jobId, STATUS_DONE, fields);
+        } catch (Exception e) {
+            logger.warn("AI 任务执行失败: jobId={}, 错误: {}", jobId, e.getMessage());
+            finish(jobId, STATUS_FAILED, Map.of("error", e.getMessage() == null ? e.toString() : e.getMessage()));
+        }
+    }
+
+    private void finish(String jobId, String status, Map<String, String> fields) {
+        Map<String, String> update = new HashMap<>(fields);
+        update.put("status", status);
+        update.put("finishedAt", String.valueOf(System.currentTimeMillis()));
+        stringRedisTemplate.opsForHash().putAll(JOB_KEY + jobId, update);
+        stringRedisTemplate.expire(JOB_KEY + jobId, JOB_TTL);
+
+        wake(jobId);
+        try {
+            stringRedisTemplate.convertAndSend(DONE_CHANNEL, jobId);
+        } catch (Exception e) {
+            logger.warn("发布 AI 任务完成通知失败: jobId={}, 错误: {}", jobId, e.toString());
+        }
+    }
+
+    /**
+     * 任务已完成时唤醒本节点上等待该任务的长轮询；本节点没有等待者时不读 Redis
+     */
+    private void wake(String jobId) {
+        if (!waiters.containsKey(jobId)) {
+            return;
+        }
+        Map<String, Object> view = getJob(jobId);
+        if (view == null || STATUS_PENDING.equals(view.get("status"))) {
+            return;
+        }
+        List<DeferredResult<Result<Map<String, Object>>>> pending = waiters.remove(jobId);
+        if (pending != null) {
+            for (DeferredResult<Result<Map<String, Object>>> waiter : pending) {
+                waiter.setResult(Result.success(view));
+            }
+        }
+    }
+
+    /**
+     * 定期读取本节点上仍在等待的任务状态，兜底订阅断开期间丢失的完成通知
+     */
+    @Scheduled(fixedDelayString = "${ai.job.wake-check-interval-ms:2000}")
+    public void checkWaiters() {
+        for (String jobId : waiters.keySet()) {
+            try {
+                wake(jobId);
+            } catch (Exception e) {
+                logger.warn("读取 AI 任务状态失败: jobId={}, 错误: {}", jobId, e.toString());
+            }
+        }
+    }
+
+    /**
+     * 查询任务状态
+     * @return 任务信息，任务不存在或已过期时返回 null
+     */
+    public Map<String, Object> getJob(String jobId) {
+        Map<Object, Object> raw = stringRedisTemplate.opsForHash().entries(JOB_KEY + jobId);
+        if (raw == null || raw.isEmpty()) {
+            return null;
+        }
+        Map<String, Object> view = new HashMap<>();
+        view.put("jobId", jobId);
+        raw.forEach((k, v) -> view.put(k.toString(), v));
+        String cid = (String) raw.get("conversationId");
+        if (cid != null && !cid.isEmpty()) {
+            view.put("conversationId", Long.parseLong(cid));
+        }
+        return view;
+    }
+
+    /**
+     * 判断用户是否有权查看任务
+     */
+    public boolean canAccess(Map<String, Object> job, Long userId) {
+        Object owner = job.get("userId");
+        return owner == null || owner.toString().isEmpty()
+                || (userId != null && owner.toString().equals(String.valueOf(userId)));
+    }
+
+    /**
+     * 长轮询等待任务完成，不占用 Servlet 线程
+     * @param jobId 任务 ID
+     * @param timeoutMillis 最长等待时间，超时返回当前状态
+     */
+    public DeferredResult<Result<Map<String, Object>>> await(String jobId, long timeoutMillis) {
+        DeferredResult<Result<Map<String, Object>>> deferred = new DeferredResult<>(timeoutMillis);
+        deferred.onTimeout(() -> {
+            removeWaiter(jobId, deferred);
+            deferred.setResult(Result.success(getJob(jobId)));
+        });
+        deferred.onCompletion(() -> removeWaiter(jobId, deferred));
+
+        waiters.computeIfAbsent(jobId, k -> new CopyOnWriteArrayList<>()).add(deferred);
+        // 注册后再检查一次，避免任务恰好在注册前完成而错过通知
+        Map<String, Object> job = getJob(jobId);
+        if (job != null && !STATUS_PENDING.equals(job.get("status"))) {
+            removeWaiter(jobId, deferred);
+            deferred.setResult(Result.success(job));
+        }
+        return deferred;
+    }
+
+    private void removeWaiter(String jobId, DeferredResult<Result<Map<String, Object>>> deferred) {
+        waiters.computeIfPresent(jobId, (k, list) -> {
+            list.remove(deferred);
+            return list.isEmpty() ? null : list;
+        });
+    }
+}
@@ -18,6 +18,9 @@ import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
 
 import com.example.springbootdemo.entity.Conversation;
 import com.example.springbootdemo.service.ConversationService;
@@ -41,6 +44,9 @@ public class AiChatService {
     @Resource
     private ConversationService conversationService;
 
+    @Resource
+    private AiResponseCache aiResponseCache;
+
     private static final String SYSTEM_MESSAGE = """
             你是一个智能助手，名叫"小智"。
             你的任务是帮助用户解答问题、提供建议和进行友好的对话。
@@ -49,6 +55,12 @@ public class AiChatService {
             回答请使用中文。
             """;
 
+    /** 系统提示词版本，提示词变更后旧的缓存回答自动失效 */
+    private static final String SYSTEM_MESSAGE_VERSION = AiResponseCache.sha256(SYSTEM_MESSAGE).substring(0, 12);
+
+    /** 进行中的请求：相同请求键的并发调用共享同一个结果 */
+    private final Map<String, CompletableFuture<ChatTurn>> inFlight = new ConcurrentHashMap<>();
+
     /**
      * 聊天并保存上下文到数据库
     * @param conversationId 会话 ID（可为 null，表示不关联会话）
@@ -56,6 +68,10 @@ public class AiChatService {
     * @param userId 可选：当前用户 ID（用于将会话绑定到用户）
     */
     public String chat(Long conversationId, String userMessage, Long userId) {
+        return doChat(conversationId, userMessage, userId).response();
+    }
+
+    private ChatTurn doChat(Long conversationId, String userMessage, Long userId) {
         // 如果没有传入会话，或会话不存在，则自动创建会话，标题为首次用户消息（或默认值）
         if (conversationId == null) {
             var res = conversationService.createConversation(userMessage == null ? null : (userMessage.length() > 100 ? userMessage.substring(0, 100) : userMessage), userId);
@@ -102,36 +118,50 @@ public class AiChatService {
             }
         }
 
-        // 调用模型 - 使用 List<ChatMessage> 作为输入（langchain4j 支持）
-        ChatResponse chatResponse;
-        try {
-            chatResponse = qwenChatModel.chat(messages);
-        } catch (NoSuchMethodError | UnsupportedOperationException ex) {
-            // 兼容性降级：尝试使用数组形式
+        // 无上下文的首轮提问可直接复用缓存的回答
+        boolean contextFree = history == null || history.size() <= 1;
+        AiResponseCache.Lookup cached = contextFree ? aiResponseCache.lookup(SYSTEM_MESSAGE_VERSION, userMessage) : null;
+        String answer = cached == null ? null : cached.answer();
+        if (answer != null) {
+            log.info("AI 回复缓存命中，conversationId={}", conversationId);
+        } else {
+            // 调用模型 - 使用 List<ChatMessage> 作为输入（langchain4j 支持）
+            long start = System.currentTimeMillis();
+            ChatResponse chatResponse;
             try {
-                Object[] messageArray = messages.toArray();
-                chatResponse = (ChatResponse) qwenChatModel.getClass().getMethod("chat", Object[].class).invoke(qwenChatModel, (Object) messageArray);
-            } catch (Exception e) {
-                log.error("调用模型失败", e);
-                return "";
+                chatResponse = qwenChatModel.chat(messages);
+            } catch (NoSuchMethodError | UnsupportedOperationException ex) {
+                // 兼容性降级：尝试使用数组形式
+                try {
+                    Object[] messageArray = messages.toArray();
+                    chatResponse = (ChatResponse) qwenChatModel.getClass().getMethod("chat", Object[].class).invoke(qwenChatModel, (Object) messageArray);
+                } catch (Exception e) {
+                    log.error("调用模型失败", e);
+                    return new ChatTurn(conversationId, "");
+                }
+            }
+            if (chatResponse == null) {
+                log.warn("未能获取模型响应，返回空字符串");
+                return new ChatTurn(conversationId, "");
+            }
+            AiMessage aiMessage = chatResponse.aiMessage();
+            if (aiMessage == null) {
+                log.warn("模型返回无 AI 消息，返回空字符串");
+                return new ChatTurn(conversationId, "");
+            }
+            aiResponseCache.recordModelLatency(System.currentTimeMillis() - start);
+            answer = aiMessage.text();
+            log.info("AI 输出：{}", answer);
+            if (contextFree) {
+                aiResponseCache.put(SYSTEM_MESSAGE_VERSION, userMessage, answer, cached.vector());
             }
         }
-        if (chatResponse == null) {
-            log.warn("未能获取模型响应，返回空字符串");
-            return "";
-        }
-        AiMessage aiMessage = chatResponse.aiMessage();
-        if (aiMessage == null) {
-            log.warn("模型返回无 AI 消息，返回空字符串");
-            return "";
-        }
-        log.info("AI 输出：{}", aiMessage.text());
 
         // 保存 AI 回复
         MessageRecord aiRecord = new MessageRecord();
         aiRecord.setConversationId(conversationId);
         aiRecord.setRole("ai");
-        aiRecord.setContent(aiMessage.text());
+        aiRecord.setContent(answer);
         aiRecord.setCreatedAt(LocalDateTime.now());
         messageRecordMapper.insert(aiRecord);
 
@@ -147,7 +177,7 @@ public class AiChatService {
             }
         }
 
-        return aiMessage.text();
+        return new ChatTurn(conversationId, answer);
     }
 
     /**
@@ -158,22 +188,61 @@ public class AiChatService {
      * @return Map包含conversationId和response
      */
     public Map<String, Object> chatWithConversation(Long conversationId, String userMessage, Long userId) {
-        String response = chat(conversationId, userMessage, userId);
-        
-        // 如果conversationId为null，需要查找刚创建的会话
-        if (conversationId == null) {
-            // 通过最新的消息记录找到对应的conversationId
-            QueryWrapper<MessageRecord> qw = new QueryWrapper<>();
-            qw.eq("content", userMessage).eq("role", "user").orderByDesc("created_at").last("LIMIT 1");
-            MessageRecord lastMsg = messageRecordMapper.selectOne(qw);
-            if (lastMsg != null) {
-                conversationId = lastMsg.getConversationId();
+        return chatWithConversation(conversationId, userMessage, userId, null);
+    }
+
+    /**
+     * 聊天并返回conversationId和AI回复，相同请求并发到达时合并为一次模型调用和一轮对话记录
+     * @param conversationId 会话ID（可为null）
+     * @param userMessage 用户消息
+     * @param userId 用户ID
+     * @param idempotencyKey 客户端幂等键（可为null，为null时按会话 + 消息内容去重；匿名用户的新会话不去重）
+     * @return Map包含conversationId和response
+     */
+    public Map<String, Object> chatWithConversation(Long conversationId, String userMessage, Long userId, String idempotencyKey) {
+        boolean hasKey = idempotencyKey != null && !idempotencyKey.isBlank();
+        if (!hasKey && userId == null && conversationId == null) {
+            // 匿名用户开启新会话时无法区分客户端，按内容合并会让不同用户共享同一个会话和回复
+            return toResult(doChat(null, userMessage, null));
+        }
+        String key = (userId == null ? "anonymous" : userId) + ":" + (hasKey
+                ? "key:" + idempotencyKey
+                : conversationId + ":" + AiResponseCache.sha256(userMessage == null ? "" : userMessage));
+
+        CompletableFuture<ChatTurn> mine = new CompletableFuture<>();
+        CompletableFuture<ChatTurn> existing = inFlight.putIfAbsent(key, mine);
+        ChatTurn turn;
+        if (existing != null) {
+            log.info("合并重复的 AI 请求: {}", key);
+            try {
+                turn = existing.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+            }
+        } else {
+            try {
+                turn = doChat(conversationId, userMessage, userId);
+                mine.complete(turn);
+            } catch (RuntimeException | Error e) {
+                mine.completeExceptionally(e);
+                throw e;
+            } finally {
+                inFlight.remove(key, mine);
             }
         }
-        
+        return toResult(turn);
+    }
+
+    private static Map<String, Object> toResult(ChatTurn turn) {
         Map<String, Object> result = new java.util.HashMap<>();
-        result.put("conversationId", conversationId);
-        result.put("response", response);
+        result.put("conversationId", turn.conversationId());
+        result.put("response", turn.response());
         return result;
     }
+
+    /**
+     * 一轮对话的结果
+     */
+    private record ChatTurn(Long conversationId, String response) {
+    }
 }
@@ -0,0 +1,318 @@
+package com.example.springbootdemo.service;
+
+import dev.langchain4j.community.model.dashscope.QwenEmbeddingModel;
+import dev.langchain4j.data.embedding.Embedding;
+import jakarta.annotation.Resource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * AI 回复缓存
+ * 仅用于无上下文的首轮提问：相同（归一化后）问题 + 相同系统提示词版本直接复用已有回答，
+ * 可选开启基于向量相似度的语义匹配（进程内向量索引）；Embedding 模型按 API Key 复用，
+ * 语义未命中时查找阶段算出的向量随结果返回，写入缓存时不再重复计算
+ */
+@Service
+public class AiResponseCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(AiResponseCache.class);
+
+    private static final String KEY_PREFIX = "ai:response:";
+
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Resource
+    private ApiKeyService apiKeyService;
+
+    @Value("${ai.cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${ai.cache.ttl-hours:24}")
+    private long ttlHours;
+
+    @Value("${ai.cache.local-size:1000}")
+    private int localSize;
+
+    @Value("${ai.cache.semantic.enabled:false}")
+    private boolean semanticEnabled;
+
+    @Value("${ai.cache.semantic.threshold:0.95}")
+    private double semanticThreshold;
+
+    @Value("${ai.cache.semantic.index-size:2000}")
+    private int indexSize;
+
+    /** 本地 LRU：key -> 回答 */
+    private final Map<String, String> localCache = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+            return size() > localSize;
+        }
+    };
+
+    /** 当前 API Key 对应的 Embedding 模型，Key 变化时重建 */
+    private volatile EmbeddingClient embeddingClient;
+
+    /** 进程内向量索引（按插入顺序淘汰） */
+    private final Deque<IndexEntry> vectorIndex = new ArrayDeque<>();
+
+    private final AtomicLong exactHits = new AtomicLong();
+    private final AtomicLong semanticHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong savedMillis = new AtomicLong();
+    /** 模型调用耗时的指数滑动平均，用于估算命中节省的时间 */
+    private volatile double avgModelMillis;
+
+    /**
+     * 查找结果
+     * @param answer 命中的回答，未命中时为 null
+     * @param vector 语义查找时计算的问题向量（未开启语义匹配或计算失败时为 null），未命中时传给 {@link #put}
+     */
+    public record Lookup(String answer, float[] vector) {
+        private static final Lookup MISS = new Lookup(null, null);
+    }
+
+    /**
+     * 查找缓存的回答
+     * @param systemVersion 系统提示词版本
+     * @param prompt 用户问题
+     * @return 查找结果，命中时 answer 不为 null
+     */
+    public Lookup lookup(String systemVersion, String prompt) {
+        if (!enabled || prompt == null) {
+            return Lookup.MISS;
+        }
+        String key = cacheKey(systemVersion, prompt);
+        String answer;
+        synchronized (localCache) {
+            answer = localCache.get(key);
+        }
+        if (answer == null) {
+            try {
+                answer = stringRedisTemplate.opsForValue().get(KEY_PREFIX + key);
+                if (answer != null) {
+                    synchronized (localCache) {
+                        localCache.put(key, answer);
+                    }
+                }
+            } catch (Exception ex) {
+                logger.warn("读取 AI 回复缓存失败: {}", ex.toString());
+            }
+        }
+        if (answer != null) {
+            exactHits.incrementAndGet();
+            savedMillis.addAndGet((long) avgModelMillis);
+            return new Lookup(answer, null);
+        }
+
+        float[] vector = semanticEnabled ? embed(prompt) : null;
+        if (vector != null) {
+            answer = semanticLookup(systemVersion, vector);
+            if (answer != null) {
+                semanticHits.incrementAndGet();
+                savedMillis.addAndGet((long) avgModelMillis);
+                return new Lookup(answer, vector);
+            }
+        }
+        misses.incrementAndGet();
+        return new Lookup(null, vector);
+    }
+
+    /**
+     * 写入缓存
+     * @param systemVersion 系统提示词版本
+     * @param prompt 用户问题
+     * @param answer 模型回答
+     * @param vector 查找时计算的问题向量，为 null 时重新计算
+     */
+    public void put(String systemVersion, String prompt, String answer, float[] vector) {
+        if (!enabled || prompt == null || answer == null || answer.isEmpty()) {
+            return;
+        }
+        String key = cacheKey(systemVersion, prompt);
+        synchronized (localCache) {
+            localCache.put(key, answer);
+        }
+        try {
+            stringRedisTemplate.opsForValue().set(KEY_PREFIX + key, answer, Duration.ofHours(ttlHours));
+        } catch (Exception ex) {
+            logger.warn("写入 AI 回复缓存失败: {}", ex.toString());
+        }
+        if (semanticEnabled) {
+            if (vector == null) {
+                vector = embed(prompt);
+            }
+            if (vector != null) {
+                synchronized (vectorIndex) {
+                    vectorIndex.addLast(new IndexEntry(systemVersion, key, vector));
+                    while (vectorIndex.size() > indexSize) {
+                        vectorIndex.removeFirst();
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * 记录一次真实模型调用耗时
+     */
+    public void recordModelLatency(long millis) {
+        double current = avgModelMillis;
+        avgModelMillis = current == 0 ? millis : current * 0.9 + millis * 0.1;
+    }
+
+    /**
+     * 缓存命中统计
+     */
+    public Map<String, Object> stats() {
+        long exact = exactHits.get();
+        long semantic = semanticHits.get();
+        long miss = misses.get();
+        long total = exact + semantic + miss;
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("exactHits", exact);
+        stats.put("semanticHits", semantic);
+        stats.put("misses", miss);
+        stats.put("hitRate", total == 0 ? "0.00%" : String.format("%.2f%%", (exact + semantic) * 100.0 / total));
+        stats.put("savedMillis", savedMillis.get());
+        stats.put("avgModelMillis", (long) avgModelMillis);
+        synchronized (localCache) {
+            stats.put("localSize", localCache.size());
+        }
+        synchronized (vectorIndex) {
+            stats.put("vectorIndexSize", vectorIndex.size());
+        }
+        return stats;
+    }
+
+    private String semanticLookup(String systemVersion, float[] vector) {
+        String bestKey = null;
+        double bestScore = semanticThreshold;
+        synchronized (vectorIndex) {
+            for (IndexEntry entry : vectorIndex) {
+                if (!entry.systemVersion.equals(systemVersion)) {
+                    continue;
+                }
+                double score = dot(vector, entry.vector);
+                if (score >= bestScore) {
+                    bestScore = score;
+                    bestKey = entry.key;
+                }
+            }
+        }
+        if (bestKey == null) {
+            return null;
+        }
+        synchronized (localCache) {
+            String answer = localCache.get(bestKey);
+            if (answer != null) {
+                return answer;
+            }
+        }
+        try {
+            return stringRedisTemplate.opsForValue().get(KEY_PREFIX + bestKey);
+        } catch (Exception ex) {
+            logger.warn("读取 AI 回复缓存失败: {}", ex.toString());
+            return null;
+        }
+    }
+
+    /**
+     * 计算归一化后的向量，失败时返回 null（语义层降级为不可用）
+     */
+    private float[] embed(String prompt) {
+        String apiKey = apiKeyService.getDashscopeApiKey();
+        if (apiKey == null || apiKey.trim().isEmpty()) {
+            return null;
+        }
+        try {
+            EmbeddingClient client = embeddingClient;
+            if (client == null || !client.apiKey().equals(apiKey)) {
+                client = new EmbeddingClient(apiKey, QwenEmbeddingModel.builder().apiKey(apiKey).build());
+                embeddingClient = client;
+            }
+            Embedding embedding = client.model().embed(normalize(prompt)).content();
+            float[] vector = embedding.vector();
+            double norm = 0;
+            for (float v : vector) {
+                norm += v * v;
+            }
+            norm = Math.sqrt(norm);
+            if (norm == 0) {
+                return null;
+            }
+            for (int i = 0; i < vector.length; i++) {
+                vector[i] = (float) (vector[i] / norm);
+            }
+            return vector;
+        } catch (Exception ex) {
+            logger.warn("计算问题向量失败: {}", ex.toString());
+            return null;
+        }
+    }
+
+    private static double dot(float[] a, float[] b) {
+        if (a.length != b.length) {
+            return 0;
+        }
+        double sum = 0;
+        for (int i = 0; i < a.length; i++) {
+            sum += a[i] * b[i];
+        }
+        return sum;
+    }
+
+    /**
+     * 归一化问题文本：去首尾空白、合并空白、转小写、去掉结尾标点
+     */
+    static String normalize(String prompt) {
+        String s = prompt.trim().replaceAll("\\s+", " ").toLowerCase();
+        int end = s.length();
+        while (end > 0 && "?？!！。.~～".indexOf(s.charAt(end - 1)) >= 0) {
+            end--;
+        }
+        return s.substring(0, end);
+    }
+
+    static String cacheKey(String systemVersion, String prompt) {
+        return systemVersion + ":" + sha256(normalize(prompt));
+    }
+
+    /**
+     * 计算 SHA-256 十六进制摘要
+     */
+    public static String sha256(String text) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] hash = digest.digest(text.getBytes(StandardCharsets.UTF_8));
+            StringBuilder sb = new StringBuilder(hash.length * 2);
+            for (byte b : hash) {
+                sb.append(String.format("%02x", b));
+            }
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private record IndexEntry(String systemVersion, String key, float[] vector) {
+    }
+
+    private record EmbeddingClient(String apiKey, QwenEmbeddingModel model) {
+    }
+}
@@ -0,0 +1,224 @@
+package com.example.springbootdemo.service;
+
+import com.example.springbootdemo.entity.Article;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.Resource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * 文章正文缓存（本地 LRU + Redis 两级）
+ * HTTP 校验信息（ETag / Last-Modified）由 updateTime 和 version 生成，文章修改或删除后两级同时失效，
+ * 并通过 Redis 发布/订阅通知其他节点清除本地缓存。缓存中的文章对象为只读，调用方不要修改。
+ * 防止回写旧值：每次失效递增 Redis 中该文章的版本号，加载前读取版本号，写入 Redis 时用脚本校验版本未变；
+ * 本地缓存同样按失效计数校验。失效前已读到旧行的请求不会再把旧正文（或已删除的文章）写回缓存。
+ */
+@Service
+public class ArticleBodyCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(ArticleBodyCache.class);
+
+    private static final String KEY_PREFIX = "article:body:";
+    private static final String VERSION_PREFIX = "article:body:ver:";
+    private static final String CHANNEL = "article:body:invalidate";
+
+    /** 版本号与加载前读取的一致时才写入正文，返回 0 表示期间已失效 */
+    private static final DefaultRedisScript<Long> PUT_IF_VERSION_SCRIPT = new DefaultRedisScript<>(
+            "local v = redis.call('GET', KEYS[2]) or '0' "
+                    + "if v ~= ARGV[1] then return 0 end "
+                    + "redis.call('SET', KEYS[1], ARGV[2], 'PX', ARGV[3]) "
+                    + "return 1",
+            Long.class);
+
+    /** 递增版本号（有效期与正文一致）并删除正文 */
+    private static final DefaultRedisScript<Long> INVALIDATE_SCRIPT = new DefaultRedisScript<>(
+            "local v = redis.call('INCR', KEYS[2]) "
+                    + "redis.call('PEXPIRE', KEYS[2], ARGV[1]) "
+                    + "redis.call('DEL', KEYS[1]) "
+                    + "return v",
+            Long.class);
+
+    /** 当前节点标识，用于忽略自己发布的失效通知 */
+    private final String nodeId = UUID.randomUUID().toString();
+
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Resource
+    private RedisMessageListenerContainer redisMessageListenerContainer;
+
+    @Resource
+    private ObjectMapper objectMapper;
+
+    @Resource
+    private CacheAccessRecorder cacheAccessRecorder;
+
+    @Value("${article.cache.local-size:500}")
+    private int localSize;
+
+    @Value("${article.cache.ttl-minutes:60}")
+    private long ttlMinutes;
+
+    /** 本地 LRU：文章 ID -> 文章 */
+    private final Map<String, Article> localCache = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Article> eldest) {
+            return size() > localSize;
+        }
+    };
+
+    /** 本地失效计数：读取期间发生失效时，读到的文章不写入本地缓存 */
+    private final AtomicLong generation = new AtomicLong();
+
+    private final AtomicLong localHits = new AtomicLong();
+    private final AtomicLong redisHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    @PostConstruct
+    public void subscribe() {
+        redisMessageListenerContainer.addMessageListener(
+                (Message message, byte[] pattern) -> {
+                    String body = new String(message.getBody(), StandardCharsets.UTF_8);
+                    int sep = body.indexOf('|');
+                    if (sep > 0 && !body.substring(0, sep).equals(nodeId)) {
+                        evictLocal(body.substring(sep + 1));
+                    }
+                },
+                new ChannelTopic(CHANNEL));
+    }
+
+    /**
+     * 读取文章，未命中时通过 loader 从数据库加载并写入两级缓存
+     * @return 文章，不存在时返回 null
+     */
+    public Article get(String id, Function<String, Article> loader) {
+        cacheAccessRecorder.record("article", id);
+        Article cached;
+        synchronized (localCache) {
+            cached = localCache.get(id);
+        }
+        if (cached != null) {
+            localHits.incrementAndGet();
+            return cached;
+        }
+
+        long gen = generation.get();
+        String version = null;
+        try {
+            List<String> values = stringRedisTemplate.opsForValue()
+                    .multiGet(Arrays.asList(KEY_PREFIX + id, VERSION_PREFIX + id));
+            String json = values == null ? null : values.get(0);
+            if (json != null) {
+                cached = objectMapper.readValue(json, Article.class);
+                putLocal(id, cached, gen);
+                redisHits.incrementAndGet();
+                return cached;
+            }
+            version = values == null || values.get(1) == null ? "0" : values.get(1);
+        } catch (Exception ex) {
+            logger.warn("读取文章缓存失败: id={}, 错误: {}", id, ex.toString());
+        }
+
+        misses.incrementAndGet();
+        Article article = loader.apply(id);
+        if (article == null || version == null) {
+            // Redis 不可用时无法校验版本，只返回不缓存
+            return article;
+        }
+        try {
+            Long stored = stringRedisTemplate.execute(PUT_IF_VERSION_SCRIPT,
+                    Arrays.asList(KEY_PREFIX + id, VERSION_PREFIX + id), version,
+                    objectMapper.writeValueAsString(article), String.valueOf(Duration.ofMinutes(ttlMinutes).toMillis()));
+            if (stored != null && stored == 1) {
+                putLocal(id, article, gen);
+            }
+        } catch (Exception ex) {
+            logger.warn("写入文章缓存失败: id={}, 错误: {}", id, ex.toString());
+        }
+        return article;
+    }
+
+    /**
+     * 文章修改或删除后调用：清除两级缓存并通知其他节点
+     */
+    public void invalidate(String id) {
+        evictLocal(id);
+        try {
+            stringRedisTemplate.execute(INVALIDATE_SCRIPT, Arrays.asList(KEY_PREFIX + id, VERSION_PREFIX + id),
+                    String.valueOf(Duration.ofMinutes(ttlMinutes).toMillis()));
+            stringRedisTemplate.convertAndSend(CHANNEL, nodeId + "|" + id);
+        } catch (Exception ex) {
+            logger.warn("清除文章缓存失败: id={}, 错误: {}", id, ex.toString());
+        }
+    }
+
+    private void putLocal(String id, Article cached, long gen) {
+        synchronized (localCache) {
+            if (generation.get() == gen) {
+                localCache.put(id, cached);
+            }
+        }
+    }
+
+    private void evictLocal(String id) {
+        synchronized (localCache) {
+            generation.incrementAndGet();
+            localCache.remove(id);
+        }
+    }
+
+    /**
+     * 缓存命中情况
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new HashMap<>();
+        long local = localHits.get();
+        long redis = redisHits.get();
+        long miss = misses.get();
+        long total = local + redis + miss;
+        stats.put("localHits", local);
+        stats.put("redisHits", redis);
+        stats.put("misses", miss);
+        stats.put("hitRate", total == 0 ? "0.00%" : String.format("%.2f%%", (local + redis) * 100.0 / total));
+        synchronized (localCache) {
+            stats.put("localSize", localCache.size());
+        }
+        return stats;
+    }
+
+    /**
+     * 强 ETag：update_time 只精确到秒，加上版本号区分同一秒内的多次修改
+     */
+    public static String etag(Article article) {
+        return "\"" + Long.toHexString(lastModified(article)) + "-"
+                + (article.getVersion() == null ? 0 : article.getVersion()) + "\"";
+    }
+
+    /**
+     * 最后修改时间（毫秒），没有更新时间时返回 -1
+     */
+    public static long lastModified(Article article) {
+        return article.getUpdateTime() == null ? -1
+                : article.getUpdateTime().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
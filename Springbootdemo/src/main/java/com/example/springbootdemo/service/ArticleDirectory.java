@@ -0,0 +1,246 @@
+package com.example.springbootdemo.service;
+
+import com.example.springbootdemo.dto.ArticleSummary;
+import com.example.springbootdemo.mapper.ArticleMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.Resource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 文章目录快照
+ * 缓存按 position 排序的文章目录（不含内容），首次读取时从数据库加载。
+ * 单篇文章新增、修改、移动、删除后只按主键重新读取该文章，在有序快照中二分定位后替换，不重新加载和排序整个目录；
+ * 批量重新编号后才整体失效。变更通过 Redis 发布/订阅通知其他节点做同样的更新。快照为只读，调用方不要修改。
+ */
+@Service
+public class ArticleDirectory {
+
+    private static final Logger logger = LoggerFactory.getLogger(ArticleDirectory.class);
+
+    private static final String CHANNEL = "article:directory";
+
+    /** 通知其他节点整体失效 */
+    private static final String RELOAD = "*";
+
+    /** 当前节点标识，用于忽略自己发布的变更通知 */
+    private final String nodeId = UUID.randomUUID().toString();
+
+    /** 每次失效或增量更新加一，加载期间发生变更时不保存加载结果，避免缓存旧目录 */
+    private final AtomicLong generation = new AtomicLong();
+
+    @Resource
+    private ArticleMapper articleMapper;
+
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Resource
+    private RedisMessageListenerContainer redisMessageListenerContainer;
+
+    private volatile Snapshot snapshot;
+
+    /** 收到其他节点的变更通知时回调（如全文检索索引同步） */
+    private final List<Runnable> remoteChangeListeners = new CopyOnWriteArrayList<>();
+
+    @PostConstruct
+    public void subscribe() {
+        redisMessageListenerContainer.addMessageListener(
+                (Message message, byte[] pattern) -> onRemoteChange(new String(message.getBody(), StandardCharsets.UTF_8)),
+                new ChannelTopic(CHANNEL));
+    }
+
+    /**
+     * 注册其他节点文章变更（新增、修改、删除、移动）时的回调，回调在消息监听线程上执行，应尽快返回
+     */
+    public void addRemoteChangeListener(Runnable listener) {
+        remoteChangeListeners.add(listener);
+    }
+
+    /**
+     * 全部文章目录（position 升序，创建时间倒序）
+     */
+    public List<ArticleSummary> list() {
+        return Collections.unmodifiableList(Arrays.asList(current().items));
+    }
+
+    /**
+     * 获取文章目录项，不存在时返回 null
+     */
+    public ArticleSummary get(String id) {
+        return current().byId.get(id);
+    }
+
+    private Snapshot current() {
+        Snapshot s = snapshot;
+        if (s != null) {
+            return s;
+        }
+        long gen = generation.get();
+        Snapshot loaded = Snapshot.of(articleMapper.selectArticleDirectory().toArray(new ArticleSummary[0]));
+        synchronized (this) {
+            if (generation.get() == gen) {
+                snapshot = loaded;
+            }
+        }
+        return loaded;
+    }
+
+    /**
+     * 指定作者的文章目录
+     */
+    public List<ArticleSummary> listByAuthor(String author) {
+        List<ArticleSummary> result = new ArrayList<>();
+        for (ArticleSummary summary : current().items) {
+            if (author.equals(summary.getAuthor())) {
+                result.add(summary);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 单篇文章在本节点新增、修改或移动后调用：按主键重新读取该文章更新本地快照，并通知其他节点
+     */
+    public void onArticleChanged(String id) {
+        apply(id, articleMapper.selectArticleSummaryById(id));
+        publish(id);
+    }
+
+    /**
+     * 单篇文章在本节点删除后调用
+     */
+    public void onArticleDeleted(String id) {
+        apply(id, null);
+        publish(id);
+    }
+
+    /**
+     * 批量写入（重新编号）后调用：失效本地快照并通知其他节点，下次读取时重新加载
+     */
+    public void invalidate() {
+        invalidateLocal();
+        publish(RELOAD);
+    }
+
+    private synchronized void invalidateLocal() {
+        generation.incrementAndGet();
+        snapshot = null;
+    }
+
+    /**
+     * 增量更新：先移除旧条目，summary 不为 null 时按目录顺序插入
+     */
+    private synchronized void apply(String id, ArticleSummary summary) {
+        generation.incrementAndGet();
+        Snapshot s = snapshot;
+        if (s == null) {
+            // 尚未加载（或正在加载，结果因 generation 变化被丢弃），下次读取时整体加载即可
+            return;
+        }
+        ArticleSummary[] items = s.items;
+        ArticleSummary old = s.byId.get(id);
+        if (old != null) {
+            int index = Arrays.binarySearch(items, old, Snapshot.ORDER);
+            if (index < 0) {
+                snapshot = null;
+                return;
+            }
+            ArticleSummary[] removed = new ArticleSummary[items.length - 1];
+            System.arraycopy(items, 0, removed, 0, index);
+            System.arraycopy(items, index + 1, removed, index, items.length - index - 1);
+            items = removed;
+        }
+        if (summary != null) {
+            int insert = -Arrays.binarySearch(items, summary, Snapshot.ORDER) - 1;
+            ArticleSummary[] added = new ArticleSummary[items.length + 1];
+            System.arraycopy(items, 0, added, 0, insert);
+            added[insert] = summary;
+            System.arraycopy(items, insert, added, insert + 1, items.length - insert);
+            items = added;
+        }
+        snapshot = Snapshot.sorted(items);
+    }
+
+    private void publish(String id) {
+        try {
+            stringRedisTemplate.convertAndSend(CHANNEL, nodeId + ":" + id);
+        } catch (Exception ex) {
+            logger.warn("发布文章目录变更失败: {}", ex.toString());
+        }
+    }
+
+    /**
+     * 消息格式：节点ID:文章ID（或 * 表示整体失效）
+     */
+    private void onRemoteChange(String body) {
+        int sep = body.indexOf(':');
+        if (sep <= 0 || body.substring(0, sep).equals(nodeId)) {
+            return;
+        }
+        String id = body.substring(sep + 1);
+        try {
+            if (RELOAD.equals(id)) {
+                invalidateLocal();
+            } else {
+                apply(id, articleMapper.selectArticleSummaryById(id));
+            }
+        } catch (Exception ex) {
+            logger.warn("处理文章目录变更通知失败: {}, 错误: {}", body, ex.toString());
+            invalidateLocal();
+        }
+        remoteChangeListeners.forEach(Runnable::run);
+    }
+
+    /**
+     * 不可变快照，items 按目录顺序排列
+     */
+    private static final class Snapshot {
+        /** 与 selectArticleDirectory 一致：position 升序（NULL 在前），创建时间倒序（NULL 在后），ID 升序 */
+        static final Comparator<ArticleSummary> ORDER = Comparator
+                .comparing(ArticleSummary::getPosition, Comparator.nullsFirst(Comparator.<Integer>naturalOrder()))
+                .thenComparing(ArticleSummary::getCreateTime, Comparator.nullsLast(Comparator.reverseOrder()))
+                .thenComparing(ArticleSummary::getId);
+
+        final ArticleSummary[] items;
+        final Map<String, ArticleSummary> byId;
+
+        private Snapshot(ArticleSummary[] items, Map<String, ArticleSummary> byId) {
+            this.items = items;
+            this.byId = byId;
+        }
+
+        /**
+         * 数据库加载的行：按 Java 比较器再排一次，保证与增量更新时二分查找的顺序一致（已有序时只需线性时间）
+         */
+        static Snapshot of(ArticleSummary[] rows) {
+            Arrays.sort(rows, ORDER);
+            return sorted(rows);
+        }
+
+        static Snapshot sorted(ArticleSummary[] items) {
+            Map<String, ArticleSummary> byId = new HashMap<>(items.length * 2);
+            for (ArticleSummary item : items) {
+                byId.put(item.getId(), item);
+            }
+            return new Snapshot(items, Collections.unmodifiableMap(byId));
+        }
+    }
+}
@@ -0,0 +1,706 @@
+package com.example.springbootdemo.service;
+
+import com.example.springbootdemo.dto.ArticleSummary;
+import com.example.springbootdemo.entity.Article;
+import com.example.springbootdemo.mapper.ArticleMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import org.apache.ibatis.cursor.Cursor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 文章全文检索（BM25）
+ * 对标题、分类、正文建立内存倒排索引：中日韩文字按单字 + 二元组切分，其他按单词切分，
+ * 标题和分类的词频加权。文章增删改时增量更新（删除只打标记，删除文档过多时压缩），
+ * 并定期把索引写成紧凑的二进制快照；启动时内存映射读取快照，再按文章版本号与数据库对账，
+ * 只重建有变化的文章，没有快照时从数据库流式全量构建。
+ * 多节点部署时，其他节点写入文章后经文章目录的失效通知触发对账，另定期对账兜底丢失的通知。
+ */
+@Service
+public class ArticleSearchIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(ArticleSearchIndex.class);
+
+    private static final int MAGIC = 0x41534931; // "ASI1"
+
+    /** 倒排项把文档序号和词频打包成一个 int：高 24 位序号，低 8 位词频 */
+    private static final int MAX_TF = 255;
+    private static final int MAX_DOCS = 1 << 24;
+
+    private static final int TITLE_WEIGHT = 3;
+    private static final int CATEGORY_WEIGHT = 2;
+    private static final int MAX_WORD_LENGTH = 40;
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    @Resource
+    private ArticleMapper articleMapper;
+
+    @Resource
+    private TransactionTemplate transactionTemplate;
+
+    @Resource
+    private ArticleDirectory articleDirectory;
+
+    /** 没有变更通知时的对账周期 */
+    @Value("${article.search.reconcile-interval-ms:300000}")
+    private long reconcileIntervalMillis;
+
+    @Value("${article.search.snapshot-path:data/article-index.bin}")
+    private String snapshotPath;
+
+    @Value("${article.search.max-content-chars:20000}")
+    private int maxContentChars;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /** 文档表，下标为文档序号，已删除的位置为 null */
+    private List<Doc> docs = new ArrayList<>();
+    private Map<String, Integer> docNoById = new HashMap<>();
+    private Map<String, IntList> postings = new HashMap<>();
+    private int liveCount;
+    private long liveLength;
+    private int deadCount;
+
+    private volatile boolean ready;
+    private volatile boolean dirty;
+    private volatile long lastSavedAt;
+
+    /** 收到其他节点的文章变更通知，等待对账 */
+    private final AtomicBoolean syncRequested = new AtomicBoolean();
+    private volatile long lastReconciledAt;
+
+    @PostConstruct
+    public void subscribe() {
+        articleDirectory.addRemoteChangeListener(() -> syncRequested.set(true));
+    }
+
+    /**
+     * 启动后在后台加载快照并与数据库对账
+     */
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        long start = System.currentTimeMillis();
+        try {
+            if (loadSnapshot()) {
+                if (reconcile()) {
+                    saveSnapshot();
+                }
+            } else {
+                rebuild();
+            }
+            ready = true;
+            logger.info("文章检索索引就绪：{} 篇文章，{} 个词项，耗时 {} ms",
+                    liveCount, postings.size(), System.currentTimeMillis() - start);
+        } catch (Exception ex) {
+            logger.error("文章检索索引构建失败: {}", ex.toString(), ex);
+        }
+    }
+
+    /**
+     * 索引是否已可用
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * 检索文章，按 BM25 得分倒序
+     * @param query 查询文本
+     * @param limit 最多返回条数
+     */
+    public List<Hit> search(String query, int limit) {
+        Set<String> terms = queryTerms(query);
+        if (terms.isEmpty() || limit <= 0) {
+            return new ArrayList<>();
+        }
+        lock.readLock().lock();
+        try {
+            if (liveCount == 0) {
+                return new ArrayList<>();
+            }
+            double avgLength = (double) liveLength / liveCount;
+            float[] scores = new float[docs.size()];
+            // 得分可能为 0，是否已加入候选单独记录，避免同一文章重复返回
+            BitSet seen = new BitSet(docs.size());
+            IntList touched = new IntList(64);
+            for (String term : terms) {
+                IntList list = postings.get(term);
+                if (list == null) {
+                    continue;
+                }
+                // 文档频率只统计仍有效的倒排项（已删除、已修改的旧文档在压缩前仍留在列表中）
+                int df = 0;
+                for (int i = 0; i < list.size; i++) {
+                    if (docs.get(list.data[i] >>> 8) != null) {
+                        df++;
+                    }
+                }
+                if (df == 0) {
+                    continue;
+                }
+                double idf = Math.log(1 + Math.max(0, liveCount - df + 0.5) / (df + 0.5));
+                for (int i = 0; i < list.size; i++) {
+                    int entry = list.data[i];
+                    int docNo = entry >>> 8;
+                    Doc doc = docs.get(docNo);
+                    if (doc == null) {
+                        continue;
+                    }
+                    int tf = entry & MAX_TF;
+                    double norm = K1 * (1 - B + B * doc.length / avgLength);
+                    if (!seen.get(docNo)) {
+                        seen.set(docNo);
+                        touched.add(docNo);
+                    }
+                    scores[docNo] += (float) (idf * tf * (K1 + 1) / (tf + norm));
+                }
+            }
+
+            // 小顶堆取前 limit 个
+            PriorityQueue<Integer> heap = new PriorityQueue<>(limit + 1,
+                    (a, b) -> Float.compare(scores[a], scores[b]));
+            for (int i = 0; i < touched.size; i++) {
+                int docNo = touched.data[i];
+                heap.offer(docNo);
+                if (heap.size() > limit) {
+                    heap.poll();
+                }
+            }
+            Hit[] hits = new Hit[heap.size()];
+            for (int i = hits.length - 1; i >= 0; i--) {
+                int docNo = heap.poll();
+                hits[i] = new Hit(docs.get(docNo).id, scores[docNo]);
+            }
+            return Arrays.asList(hits);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 新增或替换文章的索引
+     */
+    public void index(Article article) {
+        if (article == null || article.getId() == null) {
+            return;
+        }
+        Map<String, Integer> freqs = termFrequencies(article);
+        int length = 0;
+        for (int f : freqs.values()) {
+            length += f;
+        }
+        int version = article.getVersion() == null ? 0 : article.getVersion();
+
+        lock.writeLock().lock();
+        try {
+            Integer existing = docNoById.get(article.getId());
+            if (existing != null && docs.get(existing).version > version) {
+                // 全量构建时读到的旧版本，不覆盖已增量更新的新版本
+                return;
+            }
+            removeLocked(article.getId());
+            if (docs.size() >= MAX_DOCS) {
+                compactLocked();
+                if (docs.size() >= MAX_DOCS) {
+                    logger.warn("文章检索索引已满，跳过文章: {}", article.getId());
+                    return;
+                }
+            }
+            int docNo = docs.size();
+            docs.add(new Doc(article.getId(), length, version, millis(article.getUpdateTime())));
+            docNoById.put(article.getId(), docNo);
+            for (Map.Entry<String, Integer> e : freqs.entrySet()) {
+                postings.computeIfAbsent(e.getKey(), k -> new IntList(4))
+                        .add(docNo << 8 | Math.min(e.getValue(), MAX_TF));
+            }
+            liveCount++;
+            liveLength += length;
+            dirty = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 从数据库重新读取文章并更新索引（文章不存在时移除）
+     */
+    public void reindex(String id) {
+        Article article = articleMapper.selectArticleById(id);
+        if (article == null) {
+            remove(id);
+        } else {
+            index(article);
+        }
+    }
+
+    /**
+     * 移除文章的索引
+     */
+    public void remove(String id) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(id);
+            if (deadCount > 1000 && deadCount > liveCount) {
+                compactLocked();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void removeLocked(String id) {
+        Integer docNo = docNoById.remove(id);
+        if (docNo == null) {
+            return;
+        }
+        Doc doc = docs.set(docNo, null);
+        liveCount--;
+        liveLength -= doc.length;
+        deadCount++;
+        dirty = true;
+    }
+
+    /**
+     * 压缩：去掉已删除文档的倒排项并重新编号
+     */
+    private void compactLocked() {
+        int[] remap = new int[docs.size()];
+        List<Doc> compacted = new ArrayList<>(liveCount);
+        Map<String, Integer> byId = new HashMap<>(liveCount * 2);
+        for (int i = 0; i < docs.size(); i++) {
+            Doc doc = docs.get(i);
+            if (doc == null) {
+                remap[i] = -1;
+            } else {
+                remap[i] = compacted.size();
+                byId.put(doc.id, compacted.size());
+                compacted.add(doc);
+            }
+        }
+        Iterator<IntList> it = postings.values().iterator();
+        while (it.hasNext()) {
+            IntList list = it.next();
+            list.remap(remap);
+            if (list.size == 0) {
+                it.remove();
+            }
+        }
+        docs = compacted;
+        docNoById = byId;
+        deadCount = 0;
+    }
+
+    /**
+     * 从数据库流式全量构建
+     */
+    public void rebuild() {
+        lock.writeLock().lock();
+        try {
+            docs = new ArrayList<>();
+            docNoById = new HashMap<>();
+            postings = new HashMap<>();
+            liveCount = 0;
+            liveLength = 0;
+            deadCount = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        // Cursor 需要在同一个连接上遍历完，放在事务内
+        transactionTemplate.executeWithoutResult(status -> {
+            try (Cursor<Article> cursor = articleMapper.scanArticlesForIndex()) {
+                for (Article article : cursor) {
+                    index(article);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        dirty = true;
+        saveSnapshot();
+    }
+
+    /**
+     * 其他节点有文章变更，或距上次对账超过对账周期时对账；变更合并到同一次对账，快照由定期保存写入
+     */
+    @Scheduled(fixedDelayString = "${article.search.sync-delay-ms:2000}")
+    public void syncIfNeeded() {
+        if (!ready) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        if (!syncRequested.getAndSet(false) && now - lastReconciledAt < reconcileIntervalMillis) {
+            return;
+        }
+        try {
+            reconcile();
+        } catch (Exception ex) {
+            syncRequested.set(true);
+            logger.warn("文章检索索引对账失败: {}", ex.toString());
+        }
+    }
+
+    /**
+     * 与数据库对账：版本或更新时间不一致的文章重新索引，数据库中已不存在的文章移除
+     * @return 索引是否有变化
+     */
+    private synchronized boolean reconcile() {
+        long startedAt = System.currentTimeMillis();
+        lastReconciledAt = startedAt;
+        List<ArticleSummary> rows = articleMapper.selectArticleDirectory();
+        Set<String> seen = new HashSet<>(rows.size() * 2);
+        int changed = 0;
+        for (ArticleSummary row : rows) {
+            seen.add(row.getId());
+            Doc doc = getDoc(row.getId());
+            int version = row.getVersion() == null ? 0 : row.getVersion();
+            if (doc == null || doc.version != version || doc.updatedAt != millis(row.getUpdateTime())) {
+                reindex(row.getId());
+                changed++;
+            }
+        }
+        List<String> stale = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            for (Map.Entry<String, Integer> e : docNoById.entrySet()) {
+                // 对账期间本节点新写入的文章不在查询结果中，不当作已删除（更新时间只精确到秒，留 1 秒余量）
+                if (!seen.contains(e.getKey()) && docs.get(e.getValue()).updatedAt < startedAt - 1000) {
+                    stale.add(e.getKey());
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        stale.forEach(this::remove);
+        if (changed == 0 && stale.isEmpty()) {
+            return false;
+        }
+        logger.info("文章检索索引对账完成：重建 {} 篇，移除 {} 篇", changed, stale.size());
+        return true;
+    }
+
+    private Doc getDoc(String id) {
+        lock.readLock().lock();
+        try {
+            Integer docNo = docNoById.get(id);
+            return docNo == null ? null : docs.get(docNo);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 定期保存快照（有变更时）
+     */
+    @Scheduled(fixedDelayString = "${article.search.save-interval-ms:300000}")
+    public void saveIfDirty() {
+        if (ready && dirty) {
+            saveSnapshot();
+        }
+    }
+
+    @PreDestroy
+    public void onShutdown() {
+        if (ready && dirty) {
+            saveSnapshot();
+        }
+    }
+
+    /**
+     * 写入快照：只写存活文档（顺带压缩编号），先写临时文件再原子替换
+     * 格式：MAGIC | 文档数 | [id, 长度, 版本, 更新时间]... | 词项数 | [词项, 倒排项数, 倒排项...]...
+     */
+    public synchronized void saveSnapshot() {
+        Path path = Paths.get(snapshotPath);
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        lock.readLock().lock();
+        try {
+            dirty = false;
+            if (path.getParent() != null) {
+                Files.createDirectories(path.getParent());
+            }
+            int[] remap = new int[docs.size()];
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp), 1 << 16))) {
+                out.writeInt(MAGIC);
+                out.writeInt(liveCount);
+                int next = 0;
+                for (int i = 0; i < docs.size(); i++) {
+                    Doc doc = docs.get(i);
+                    if (doc == null) {
+                        remap[i] = -1;
+                        continue;
+                    }
+                    remap[i] = next++;
+                    writeString(out, doc.id);
+                    out.writeInt(doc.length);
+                    out.writeInt(doc.version);
+                    out.writeLong(doc.updatedAt);
+                }
+                out.writeInt(postings.size());
+                for (Map.Entry<String, IntList> e : postings.entrySet()) {
+                    IntList list = e.getValue();
+                    int n = 0;
+                    for (int i = 0; i < list.size; i++) {
+                        if (remap[list.data[i] >>> 8] >= 0) {
+                            n++;
+                        }
+                    }
+                    writeString(out, e.getKey());
+                    out.writeInt(n);
+                    for (int i = 0; i < list.size; i++) {
+                        int entry = list.data[i];
+                        int docNo = remap[entry >>> 8];
+                        if (docNo >= 0) {
+                            out.writeInt(docNo << 8 | (entry & MAX_TF));
+                        }
+                    }
+                }
+            }
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            lastSavedAt = System.currentTimeMillis();
+            logger.info("文章检索索引快照已保存: {}，{} 篇文章", path.toAbsolutePath(), liveCount);
+        } catch (IOException ex) {
+            dirty = true;
+            logger.warn("保存文章检索索引快照失败: {}", ex.toString());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 内存映射读取快照
+     * @return 是否成功加载
+     */
+    private boolean loadSnapshot() {
+        Path path = Paths.get(snapshotPath);
+        if (!Files.isRegularFile(path)) {
+            return false;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buf.getInt() != MAGIC) {
+                logger.warn("文章检索索引快照格式不匹配，忽略: {}", path);
+                return false;
+            }
+            int docCount = buf.getInt();
+            List<Doc> loadedDocs = new ArrayList<>(docCount);
+            Map<String, Integer> byId = new HashMap<>(docCount * 2);
+            long totalLength = 0;
+            for (int i = 0; i < docCount; i++) {
+                Doc doc = new Doc(readString(buf), buf.getInt(), buf.getInt(), buf.getLong());
+                byId.put(doc.id, i);
+                loadedDocs.add(doc);
+                totalLength += doc.length;
+            }
+            int termCount = buf.getInt();
+            Map<String, IntList> loadedPostings = new HashMap<>(termCount * 2);
+            for (int i = 0; i < termCount; i++) {
+                String term = readString(buf);
+                int n = buf.getInt();
+                if (n == 0) {
+                    continue;
+                }
+                IntList list = new IntList(n);
+                buf.asIntBuffer().get(list.data, 0, n);
+                buf.position(buf.position() + n * Integer.BYTES);
+                list.size = n;
+                loadedPostings.put(term, list);
+            }
+
+            lock.writeLock().lock();
+            try {
+                docs = loadedDocs;
+                docNoById = byId;
+                postings = loadedPostings;
+                liveCount = docCount;
+                liveLength = totalLength;
+                deadCount = 0;
+                dirty = false;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            logger.info("已加载文章检索索引快照: {} 篇文章，{} 个词项", docCount, loadedPostings.size());
+            return true;
+        } catch (Exception ex) {
+            logger.warn("读取文章检索索引快照失败，将全量重建: {}", ex.toString());
+            return false;
+        }
+    }
+
+    /**
+     * 索引状态
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new HashMap<>();
+        lock.readLock().lock();
+        try {
+            stats.put("ready", ready);
+            stats.put("documents", liveCount);
+            stats.put("deletedDocuments", deadCount);
+            stats.put("terms", postings.size());
+        } finally {
+            lock.readLock().unlock();
+        }
+        stats.put("lastSavedAt", lastSavedAt);
+        return stats;
+    }
+
+    /**
+     * 文档词频：标题、分类加权，正文最多取 max-content-chars 个字符
+     */
+    private Map<String, Integer> termFrequencies(Article article) {
+        Map<String, Integer> freqs = new HashMap<>();
+        addTerms(freqs, article.getTitle(), TITLE_WEIGHT);
+        addTerms(freqs, article.getCategory(), CATEGORY_WEIGHT);
+        String content = article.getContent();
+        if (content != null && content.length() > maxContentChars) {
+            content = content.substring(0, maxContentChars);
+        }
+        addTerms(freqs, content, 1);
+        return freqs;
+    }
+
+    private static void addTerms(Map<String, Integer> freqs, String text, int weight) {
+        TextTokenizer.forEachRun(text, (run, cjk) -> {
+            if (cjk) {
+                for (int i = 0; i < run.length(); i++) {
+                    freqs.merge(run.substring(i, i + 1), weight, Integer::sum);
+                    if (i + 1 < run.length()) {
+                        freqs.merge(run.substring(i, i + 2), weight, Integer::sum);
+                    }
+                }
+            } else if (run.length() <= MAX_WORD_LENGTH) {
+                freqs.merge(run, weight, Integer::sum);
+            }
+        });
+    }
+
+    /**
+     * 查询词项：中日韩文字单字查单字、多字查二元组，其他按完整单词
+     */
+    static Set<String> queryTerms(String text) {
+        Set<String> terms = new LinkedHashSet<>();
+        if (text == null || text.isBlank()) {
+            return terms;
+        }
+        TextTokenizer.forEachRun(text, (run, cjk) -> {
+            if (cjk && run.length() > 1) {
+                for (int i = 0; i + 1 < run.length(); i++) {
+                    terms.add(run.substring(i, i + 2));
+                }
+            } else if (run.length() <= MAX_WORD_LENGTH) {
+                terms.add(run);
+            }
+        });
+        return terms;
+    }
+
+    private static long millis(LocalDateTime time) {
+        return time == null ? 0 : time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buf) {
+        byte[] bytes = new byte[buf.getInt()];
+        buf.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 检索命中
+     */
+    public record Hit(String id, float score) {
+    }
+
+    private static final class Doc {
+        final String id;
+        final int length;
+        final int version;
+        final long updatedAt;
+
+        Doc(String id, int length, int version, long updatedAt) {
+            this.id = id;
+            this.length = length;
+            this.version = version;
+            this.updatedAt = updatedAt;
+        }
+    }
+
+    /**
+     * 可增长的 int 数组（倒排表）
+     */
+    private static final class IntList {
+        int[] data;
+        int size;
+
+        IntList(int capacity) {
+            data = new int[Math.max(capacity, 1)];
+        }
+
+        void add(int value) {
+            if (size == data.length) {
+                data = Arrays.copyOf(data, size * 2);
+            }
+            data[size++] = value;
+        }
+
+        /**
+         * 按新编号改写倒排项，丢弃已删除的文档
+         */
+        void remap(int[] remap) {
+            int n = 0;
+            for (int i = 0; i < size; i++) {
+                int docNo = remap[data[i] >>> 8];
+                if (docNo >= 0) {
+                    data[n++] = docNo << 8 | (data[i] & MAX_TF);
+                }
+            }
+            size = n;
+        }
+    }
+}
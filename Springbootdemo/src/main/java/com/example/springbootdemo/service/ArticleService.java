@@ -1,5 +1,6 @@
 package com.example.springbootdemo.service;
 
+import com.example.springbootdemo.dto.ArticleSummary;
 import com.example.springbootdemo.entity.Article;
 import java.util.List;
 
@@ -16,7 +17,7 @@ public interface ArticleService {
     Article createArticle(Article article);
 
     /**
-     * 根据ID获取文章
+     * 根据ID获取文章（优先读取正文缓存，返回对象为只读）
      * @param id 文章ID
      * @return 文章对象
      */
@@ -36,12 +37,51 @@ public interface ArticleService {
     List<Article> getArticlesByUser(String userId);
 
     /**
-     * 更新文章
+     * 获取文章目录（不含内容，读取缓存的目录快照）
+     * @return 文章目录
+     */
+    List<ArticleSummary> getArticleDirectory();
+
+    /**
+     * 获取指定用户的文章目录（不含内容）
+     * @param userId 用户ID
+     * @return 文章目录
+     */
+    List<ArticleSummary> getArticleDirectoryByUser(String userId);
+
+    /**
+     * 全文检索文章（标题、分类、正文），按相关度排序
+     * @param keyword 关键词
+     * @param limit 最多返回条数
+     * @return 文章目录项
+     */
+    List<ArticleSummary> searchArticles(String keyword, int limit);
+
+    /**
+     * 更新文章（只写入非空字段）
+     * 携带 version 时使用乐观锁，版本不一致抛出 IllegalStateException
      * @param article 文章对象
-     * @return 更新后的文章
+     * @return 本次修改的字段、更新时间和新版本号（不重新读取整行）
      */
     Article updateArticle(Article article);
 
+    /**
+     * 调整文章顺序：放到 prevId 与 nextId 之间，只修改该文章一行的 position
+     * 相邻文章之间没有空隙时，在同一事务内先重新编号再放入
+     * @param id 文章ID
+     * @param prevId 移动后的前一篇文章ID（移到最前时为 null）
+     * @param nextId 移动后的后一篇文章ID（移到最后时为 null）
+     * @return 文章新的 position
+     */
+    int moveArticle(String id, String prevId, String nextId);
+
+    /**
+     * 按当前顺序重新编号全部文章的 position，恢复相邻文章之间的间隔
+     * 正文缓存中的 position 不随之刷新，文章顺序以目录为准
+     * @return 修改的行数
+     */
+    int rebalancePositions();
+
     /**
      * 删除文章
      * @param id 文章ID
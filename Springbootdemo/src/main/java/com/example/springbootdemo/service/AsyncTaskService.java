@@ -20,6 +20,9 @@ public class AsyncTaskService {
     @Resource
     private CacheManager cacheManager;
 
+    @Resource
+    private CacheWarmUpService cacheWarmUpService;
+
     /**
      * 异步清除缓存
      * 用于在数据更新后异步清理相关缓存
@@ -65,14 +68,14 @@ public class AsyncTaskService {
 
     /**
      * 异步预热缓存
-     * 在系统启动或定时任务中调用，提前加载热点数据
+     * 按热点 key 快照回放加载指定区域（启动时的预热由 CacheWarmUpService 同步完成）
      */
     @Async("taskExecutor")
     public void warmUpCacheAsync(String cacheName) {
         try {
             logger.info("开始预热缓存: {}", cacheName);
-            // 可根据具体业务实现缓存预热逻辑
-            // 例如：加载热门用户、活跃好友列表等
+            boolean finished = cacheWarmUpService.warmUp(cacheName);
+            logger.info("缓存预热{}: {}", finished ? "完成" : "超时", cacheName);
         } catch (Exception e) {
             logger.warn("缓存预热失败: {}, 错误: {}", cacheName, e.getMessage());
         }
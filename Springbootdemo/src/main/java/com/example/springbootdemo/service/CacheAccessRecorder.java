@@ -0,0 +1,207 @@
+package com.example.springbootdemo.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.Resource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.zset.Aggregate;
+import org.springframework.data.redis.connection.zset.Weights;
+import org.springframework.data.redis.core.DefaultTypedTuple;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 缓存热点 key 记录（供启动预热使用）
+ * 各节点在本地统计配置区域的 key 访问次数，定期把本周期访问最多的 key 合并到本节点的 Redis 有序集合：
+ * 旧得分先按衰减系数打折再累加，只保留前 N 个。每个节点只衰减自己的集合，每个周期恰好衰减一次；
+ * 读取时把各节点（包括已重启节点在过期前留下的）集合求和合并。
+ * 记录在读取热路径上，只做一次 Map 查找和计数；跟踪的 key 数量有上限，超出后不再跟踪新 key。
+ */
+@Service
+public class CacheAccessRecorder {
+
+    private static final Logger logger = LoggerFactory.getLogger(CacheAccessRecorder.class);
+
+    private static final String KEY_PREFIX = "cache:warmup:";
+
+    /** 当前节点标识，用于本节点快照 key */
+    private final String nodeId = UUID.randomUUID().toString();
+
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+
+    /** 记录热点 key 的区域：Spring Cache 区域名，以及文章正文（article） */
+    @Value("${cache.warmup.regions:user,friendList,friendRequest,article}")
+    private String[] regions;
+
+    /** 每个区域保存的热点 key 数 */
+    @Value("${cache.warmup.top-n:200}")
+    private int topN;
+
+    /** 每个区域本地最多跟踪的 key 数 */
+    @Value("${cache.warmup.track-size:10000}")
+    private int trackSize;
+
+    /** 每次合并时旧得分的衰减系数 */
+    @Value("${cache.warmup.decay:0.5}")
+    private double decay;
+
+    @Value("${cache.warmup.snapshot-ttl-hours:24}")
+    private long snapshotTtlHours;
+
+    /** 区域 -> (key -> 本周期访问次数)；区域集合启动后不变 */
+    private final Map<String, Map<String, LongAdder>> counters = new HashMap<>();
+
+    @PostConstruct
+    public void init() {
+        for (String region : regions) {
+            if (!region.isBlank()) {
+                counters.put(region.trim(), new ConcurrentHashMap<>());
+            }
+        }
+    }
+
+    /**
+     * 记录一次访问，未配置的区域直接忽略
+     */
+    public void record(String region, String key) {
+        Map<String, LongAdder> counts = counters.get(region);
+        if (counts == null || key == null) {
+            return;
+        }
+        LongAdder count = counts.get(key);
+        if (count == null) {
+            if (counts.size() >= trackSize) {
+                return;
+            }
+            count = counts.computeIfAbsent(key, k -> new LongAdder());
+        }
+        count.increment();
+    }
+
+    public Set<String> regions() {
+        return Collections.unmodifiableSet(counters.keySet());
+    }
+
+    /**
+     * 读取区域的热点 key（各节点快照求和），按得分从高到低
+     */
+    public List<String> hotKeys(String region, int limit) {
+        ZSetOperations<String, String> zset = stringRedisTemplate.opsForZSet();
+        String readKey = KEY_PREFIX + region + ":read:" + UUID.randomUUID();
+        try {
+            long since = System.currentTimeMillis() - Duration.ofHours(snapshotTtlHours).toMillis();
+            Set<String> nodes = zset.rangeByScore(nodesKey(region), since, Double.MAX_VALUE);
+            if (nodes == null || nodes.isEmpty()) {
+                return Collections.emptyList();
+            }
+            List<String> nodeKeys = new ArrayList<>();
+            for (String node : nodes) {
+                nodeKeys.add(nodeKey(region, node));
+            }
+            zset.unionAndStore(nodeKeys.get(0), nodeKeys.subList(1, nodeKeys.size()), readKey);
+            Set<String> keys = zset.reverseRange(readKey, 0, limit - 1);
+            return keys == null ? Collections.emptyList() : new ArrayList<>(keys);
+        } catch (Exception ex) {
+            logger.warn("读取热点 key 快照失败: region={}, 错误: {}", region, ex.toString());
+            return Collections.emptyList();
+        } finally {
+            deleteQuietly(readKey);
+        }
+    }
+
+    /**
+     * 定期把本周期的热点 key 合并到 Redis 快照
+     */
+    @Scheduled(fixedDelayString = "${cache.warmup.snapshot-interval-ms:300000}",
+            initialDelayString = "${cache.warmup.snapshot-interval-ms:300000}")
+    public void saveSnapshot() {
+        for (Map.Entry<String, Map<String, LongAdder>> entry : counters.entrySet()) {
+            Map<String, LongAdder> counts = entry.getValue();
+            if (counts.isEmpty()) {
+                continue;
+            }
+            Set<ZSetOperations.TypedTuple<String>> top = new HashSet<>();
+            counts.entrySet().stream()
+                    .map(e -> new DefaultTypedTuple<>(e.getKey(), (double) e.getValue().sum()))
+                    .sorted((a, b) -> Double.compare(b.getScore(), a.getScore()))
+                    .limit(topN)
+                    .forEach(top::add);
+            // 清空后重新计数；清空前后的少量访问丢失不影响热点判断
+            counts.clear();
+            try {
+                merge(entry.getKey(), top);
+            } catch (Exception ex) {
+                logger.warn("保存热点 key 快照失败: region={}, 错误: {}", entry.getKey(), ex.toString());
+            }
+        }
+    }
+
+    /**
+     * 合并到本节点快照：ZADD 到临时 key，再 ZUNIONSTORE（旧得分 * 衰减系数 + 本周期次数），裁剪到前 N 个，
+     * 并在节点索引中登记本节点的更新时间（清理超过快照有效期的节点）
+     */
+    private void merge(String region, Set<ZSetOperations.TypedTuple<String>> top) {
+        String key = nodeKey(region, nodeId);
+        String tmpKey = key + ":tmp";
+        String nodesKey = nodesKey(region);
+        Duration ttl = Duration.ofHours(snapshotTtlHours);
+        ZSetOperations<String, String> zset = stringRedisTemplate.opsForZSet();
+        try {
+            zset.add(tmpKey, top);
+            zset.unionAndStore(key, Collections.singletonList(tmpKey), key, Aggregate.SUM, Weights.of(decay, 1));
+            zset.removeRange(key, 0, -topN - 1);
+            stringRedisTemplate.expire(key, ttl);
+            long now = System.currentTimeMillis();
+            zset.add(nodesKey, nodeId, now);
+            zset.removeRangeByScore(nodesKey, 0, now - ttl.toMillis());
+            stringRedisTemplate.expire(nodesKey, ttl);
+        } finally {
+            deleteQuietly(tmpKey);
+        }
+    }
+
+    /** 节点快照：cache:warmup:区域:节点 */
+    private static String nodeKey(String region, String node) {
+        return KEY_PREFIX + region + ":" + node;
+    }
+
+    /** 节点索引：成员为节点标识，得分为最近一次合并的时间 */
+    private static String nodesKey(String region) {
+        return KEY_PREFIX + region + ":nodes";
+    }
+
+    private void deleteQuietly(String key) {
+        try {
+            stringRedisTemplate.delete(key);
+        } catch (Exception ex) {
+            logger.debug("删除临时 key 失败: {}", key);
+        }
+    }
+
+    /**
+     * 统计信息（用于监控）
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> tracked = new HashMap<>();
+        counters.forEach((region, counts) -> tracked.put(region, counts.size()));
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("trackedKeys", tracked);
+        return stats;
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.springbootdemo.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * 缓存失效事件总线
+ * 在业务方法内部发布失效事件，不依赖 {@code @CacheEvict} 代理（同类内部调用同样生效），key 直接取自方法内的数据。
+ * 事务内发布的事件按事务去重汇总，提交后统一执行，回滚时丢弃；没有事务时立即执行。
+ */
+@Service
+public class CacheInvalidationBus {
+
+    private static final Logger logger = LoggerFactory.getLogger(CacheInvalidationBus.class);
+
+    private final CacheManager cacheManager;
+
+    public CacheInvalidationBus(CacheManager cacheManager) {
+        this.cacheManager = cacheManager;
+    }
+
+    /**
+     * 发布失效事件
+     */
+    public void publish(CacheInvalidationEvent... events) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            deliver(Arrays.asList(events));
+            return;
+        }
+        Batch batch = (Batch) TransactionSynchronizationManager.getResource(this);
+        if (batch == null) {
+            batch = new Batch();
+            TransactionSynchronizationManager.bindResource(this, batch);
+            TransactionSynchronizationManager.registerSynchronization(batch);
+        }
+        for (CacheInvalidationEvent event : events) {
+            batch.events.add(event);
+        }
+    }
+
+    private void deliver(Collection<CacheInvalidationEvent> events) {
+        for (CacheInvalidationEvent event : events) {
+            if (event.key() == null) {
+                continue;
+            }
+            try {
+                Cache cache = cacheManager.getCache(event.cacheName());
+                if (cache != null) {
+                    cache.evict(event.key());
+                }
+            } catch (Exception ex) {
+                logger.warn("缓存失效失败: cache={}, key={}, 错误: {}", event.cacheName(), event.key(), ex.toString());
+            }
+        }
+    }
+
+    /**
+     * 一个事务内的失效事件
+     */
+    private final class Batch implements TransactionSynchronization {
+        final Set<CacheInvalidationEvent> events = new LinkedHashSet<>();
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(CacheInvalidationBus.this);
+            if (status == STATUS_COMMITTED) {
+                // 事务同步已结束，缓存失效立即执行（不会再被事务感知的缓存延迟）
+                deliver(events);
+            }
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.springbootdemo.service;
+
+/**
+ * 缓存失效事件，由 {@link CacheInvalidationBus} 在事务提交后执行
+ * key 与对应 {@code @Cacheable} 的 key 表达式结果一致
+ * @param cacheName 缓存区域
+ * @param key 缓存 key
+ */
+public record CacheInvalidationEvent(String cacheName, Object key) {
+
+    /**
+     * 用户信息（按用户名缓存）
+     */
+    public static CacheInvalidationEvent user(String username) {
+        return new CacheInvalidationEvent("user", "username:" + username);
+    }
+
+    /**
+     * 用户的好友列表
+     */
+    public static CacheInvalidationEvent friendList(Long userId) {
+        return new CacheInvalidationEvent("friendList", userId);
+    }
+
+    /**
+     * 用户收到的待处理好友请求
+     */
+    public static CacheInvalidationEvent friendRequest(Long userId) {
+        return new CacheInvalidationEvent("friendRequest", userId);
+    }
+
+    /**
+     * 用户的未读消息数
+     */
+    public static CacheInvalidationEvent unreadCount(Long userId) {
+        return new CacheInvalidationEvent("unreadCount", userId);
+    }
+}
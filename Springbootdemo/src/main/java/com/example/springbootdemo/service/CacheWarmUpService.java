@@ -0,0 +1,199 @@
+package com.example.springbootdemo.service;
+
+import jakarta.annotation.Resource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * 缓存预热
+ * 启动时按 {@link CacheAccessRecorder} 保存的热点 key 快照，通过各业务方法回放读取，
+ * 把数据加载到 Redis 和本地缓存，同时加载商品目录和文章目录快照。
+ * 回放并发受限，整体有超时；在 ApplicationRunner 中同步执行，完成（或超时）前
+ * 应用的就绪状态保持 REFUSING_TRAFFIC，/health/ready 返回 503，负载均衡不会把流量切过来。
+ */
+@Service
+public class CacheWarmUpService implements ApplicationRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(CacheWarmUpService.class);
+
+    @Resource
+    private CacheAccessRecorder cacheAccessRecorder;
+
+    @Resource
+    private UserService userService;
+
+    @Resource
+    private SocialService socialService;
+
+    @Resource
+    private ArticleService articleService;
+
+    @Resource
+    private ProductCatalog productCatalog;
+
+    @Resource
+    private ArticleDirectory articleDirectory;
+
+    @Resource(name = "taskExecutor")
+    private Executor taskExecutor;
+
+    @Value("${cache.warmup.enabled:true}")
+    private boolean enabled;
+
+    /** 每个区域回放的热点 key 数 */
+    @Value("${cache.warmup.top-n:200}")
+    private int topN;
+
+    /** 同时回放的请求数，避免预热本身压垮数据库 */
+    @Value("${cache.warmup.concurrency:8}")
+    private int concurrency;
+
+    /** 启动预热的最长时间，超时后不再等待，直接开始接收流量 */
+    @Value("${cache.warmup.timeout-ms:30000}")
+    private long timeoutMillis;
+
+    private final AtomicInteger warmed = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+    private volatile boolean completed;
+    private volatile boolean timedOut;
+    private volatile long durationMillis;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!enabled) {
+            completed = true;
+            return;
+        }
+        long start = System.currentTimeMillis();
+        List<Runnable> tasks = new ArrayList<>();
+        tasks.add(productCatalog::size);
+        tasks.add(articleDirectory::list);
+        for (String region : cacheAccessRecorder.regions()) {
+            tasks.addAll(tasksFor(region));
+        }
+        timedOut = !replay(tasks, start + timeoutMillis);
+        durationMillis = System.currentTimeMillis() - start;
+        completed = true;
+        if (timedOut) {
+            logger.warn("缓存预热超时：已加载 {} 个，失败 {} 个，耗时 {} ms", warmed.get(), failed.get(), durationMillis);
+        } else {
+            logger.info("缓存预热完成：已加载 {} 个，失败 {} 个，耗时 {} ms", warmed.get(), failed.get(), durationMillis);
+        }
+    }
+
+    /**
+     * 预热单个区域（运行期间手动触发）
+     * @return 是否在超时前完成
+     */
+    public boolean warmUp(String region) {
+        return replay(tasksFor(region), System.currentTimeMillis() + timeoutMillis);
+    }
+
+    private List<Runnable> tasksFor(String region) {
+        Consumer<String> loader = loader(region);
+        List<Runnable> tasks = new ArrayList<>();
+        if (loader == null) {
+            logger.warn("缓存区域不支持预热: {}", region);
+            return tasks;
+        }
+        for (String key : cacheAccessRecorder.hotKeys(region, topN)) {
+            tasks.add(() -> loader.accept(key));
+        }
+        return tasks;
+    }
+
+    /**
+     * 区域 -> 按缓存 key 回放读取的业务方法（经过代理，结果写入缓存）
+     */
+    private Consumer<String> loader(String region) {
+        switch (region) {
+            case "user":
+                // key 为 'username:' + 用户名
+                return key -> {
+                    if (key.startsWith("username:")) {
+                        userService.getUserByUsername(key.substring("username:".length()));
+                    }
+                };
+            case "friendList":
+                return key -> socialService.getFriendList(Long.valueOf(key));
+            case "friendRequest":
+                return key -> socialService.getPendingFriendRequests(Long.valueOf(key));
+            case "unreadCount":
+                return key -> socialService.getUnreadCount(Long.valueOf(key));
+            case "article":
+                return articleService::getArticleById;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * 并发回放，最多同时执行 concurrency 个
+     * @return 是否在截止时间前全部完成
+     */
+    private boolean replay(List<Runnable> tasks, long deadline) {
+        Semaphore permits = new Semaphore(Math.max(1, concurrency));
+        List<CompletableFuture<Void>> futures = new ArrayList<>(tasks.size());
+        try {
+            for (Runnable task : tasks) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0 || !permits.tryAcquire(remaining, TimeUnit.MILLISECONDS)) {
+                    return false;
+                }
+                futures.add(CompletableFuture.runAsync(() -> {
+                    try {
+                        task.run();
+                        warmed.incrementAndGet();
+                    } catch (Exception ex) {
+                        failed.incrementAndGet();
+                        logger.debug("缓存预热失败: {}", ex.toString());
+                    } finally {
+                        permits.release();
+                    }
+                }, taskExecutor));
+            }
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]))
+                    .get(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+            return true;
+        } catch (TimeoutException ex) {
+            return false;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (Exception ex) {
+            logger.warn("缓存预热异常: {}", ex.toString());
+            return false;
+        }
+    }
+
+    /**
+     * 统计信息（用于监控）
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("completed", completed);
+        stats.put("timedOut", timedOut);
+        stats.put("warmed", warmed.get());
+        stats.put("failed", failed.get());
+        stats.put("durationMillis", durationMillis);
+        stats.putAll(cacheAccessRecorder.stats());
+        return stats;
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.springbootdemo.service;
+
+import com.example.springbootdemo.mapper.MessageRecordMapper;
+import jakarta.annotation.Resource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 会话消息清理服务
+ * 删除会话后在后台分批删除其消息记录，并提供孤儿消息清理任务
+ */
+@Service
+public class ConversationPurgeService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConversationPurgeService.class);
+
+    @Resource
+    private MessageRecordMapper messageRecordMapper;
+
+    @Value("${conversation.purge.batch-size:1000}")
+    private int batchSize;
+
+    @Value("${conversation.purge.pause-millis:20}")
+    private long pauseMillis;
+
+    @Value("${conversation.purge.sweep-on-startup:false}")
+    private boolean sweepOnStartup;
+
+    private final AtomicBoolean sweeping = new AtomicBoolean();
+
+    /**
+     * 异步分批删除会话下的全部消息
+     */
+    @Async("taskExecutor")
+    public void purgeMessagesAsync(Long conversationId) {
+        try {
+            long total = purgeMessages(conversationId);
+            logger.info("会话消息清理完成: conversationId={}, 删除 {} 条", conversationId, total);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            // 失败的会话会在孤儿清理任务中被再次处理
+            logger.warn("会话消息清理失败: conversationId={}, 错误: {}", conversationId, e.getMessage());
+        }
+    }
+
+    /**
+     * 异步清理所有孤儿消息（会话已不存在的消息）
+     */
+    @Async("taskExecutor")
+    public void sweepOrphansAsync() {
+        sweepOrphans();
+    }
+
+    /**
+     * 清理所有孤儿消息，同一时间只允许一个清理任务运行
+     * @return 删除的消息数，已有任务在运行时返回 -1
+     */
+    public long sweepOrphans() {
+        if (!sweeping.compareAndSet(false, true)) {
+            logger.info("孤儿消息清理任务已在运行");
+            return -1;
+        }
+        long total = 0;
+        try {
+            List<Long> orphanIds;
+            while (!(orphanIds = messageRecordMapper.selectOrphanConversationIds(100)).isEmpty()) {
+                for (Long conversationId : orphanIds) {
+                    total += purgeMessages(conversationId);
+                }
+            }
+            logger.info("孤儿消息清理完成，共删除 {} 条", total);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            logger.warn("孤儿消息清理失败: {}", e.getMessage());
+        } finally {
+            sweeping.set(false);
+        }
+        return total;
+    }
+
+    public boolean isSweeping() {
+        return sweeping.get();
+    }
+
+    /**
+     * 启动完成后按配置执行一次孤儿消息清理
+     */
+    @Async("taskExecutor")
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (sweepOnStartup) {
+            sweepOrphans();
+        }
+    }
+
+    /**
+     * 循环执行 DELETE ... LIMIT n，直到该会话没有剩余消息
+     */
+    private long purgeMessages(Long conversationId) throws InterruptedException {
+        long total = 0;
+        int rows;
+        do {
+            rows = messageRecordMapper.deleteBatchByConversationId(conversationId, batchSize);
+            total += rows;
+            if (rows == batchSize && pauseMillis > 0) {
+                // 批次之间稍作停顿，给在线请求让出锁和 IO
+                Thread.sleep(pauseMillis);
+            }
+        } while (rows == batchSize);
+        return total;
+    }
+}
@@ -1,8 +1,27 @@
 package com.example.springbootdemo.service;
 
+import com.example.springbootdemo.common.CursorPage;
 import com.example.springbootdemo.common.Result;
+import com.example.springbootdemo.dto.ConversationSummary;
+import com.example.springbootdemo.entity.MessageRecord;
 
 public interface ConversationService {
     Result<?> createConversation(String title, Long userId);
     Result<?> deleteConversation(Long conversationId);
+
+    /**
+     * 按 (updated_at, id) 倒序游标分页查询会话摘要
+     * @param userId 用户 ID，为 null 时只返回未绑定用户的会话
+     * @param cursor 上一页返回的 nextCursor，首页传 null
+     * @param size 每页数量
+     */
+    CursorPage<ConversationSummary> pageConversationSummaries(Long userId, String cursor, int size);
+
+    /**
+     * 按消息 ID 游标向前分页查询历史消息（返回结果按时间正序）
+     * @param conversationId 会话 ID
+     * @param beforeId 只返回 ID 小于该值的消息，首页传 null 表示从最新消息开始
+     * @param size 每页数量
+     */
+    CursorPage<MessageRecord> pageMessages(Long conversationId, Long beforeId, int size);
 }
@@ -0,0 +1,100 @@
+package com.example.springbootdemo.service;
+
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * 库存服务接口
+ */
+public interface InventoryService {
+
+    /**
+     * 扣减库存（购买/预占），库存不足时返回 false，不会超卖
+     * @param productId 商品ID
+     * @param quantity 数量
+     * @return 是否扣减成功
+     */
+    boolean deduct(Long productId, int quantity);
+
+    /**
+     * 下单时扣减库存：在订单事务内调用，数据库中的扣减随事务提交或回滚；
+     * 热点商品在 Redis 中扣减并记录预占，订单提交后调用 {@link #confirmReservation}，
+     * 失败时调用 {@link #cancelReservation}，两者都未执行（进程崩溃）时由 {@link #reconcileReservations} 处理
+     * @param productId 商品ID
+     * @param quantity 数量
+     * @param reservationId 预占ID（与订单上的 reservation_id 一致）
+     * @return 是否扣减成功
+     */
+    boolean deduct(Long productId, int quantity, String reservationId);
+
+    /**
+     * 订单已提交：删除热点商品的预占记录（非热点商品没有记录，不做任何事）
+     * @param productId 商品ID
+     * @param reservationId 预占ID
+     */
+    void confirmReservation(Long productId, String reservationId);
+
+    /**
+     * 订单未写入：归还热点商品预占的库存，重复调用只归还一次（非热点商品的扣减已随事务回滚）
+     * @param productId 商品ID
+     * @param reservationId 预占ID
+     * @param quantity 数量
+     */
+    void cancelReservation(Long productId, String reservationId, int quantity);
+
+    /**
+     * 对账超过指定时间仍未确认的预占：订单已存在则确认，否则归还库存
+     * @param olderThanMillis 预占时长超过该值才处理（应远大于下单事务的最长耗时）
+     * @param committed 判断预占ID对应的订单是否已写入
+     * @return 归还的预占数
+     */
+    int reconcileReservations(long olderThanMillis, Predicate<String> committed);
+
+    /**
+     * 归还库存（取消购买/释放预占）
+     * @param productId 商品ID
+     * @param quantity 数量
+     */
+    void release(Long productId, int quantity);
+
+    /**
+     * 将商品标记为热点：库存加载到 Redis，此后以 Redis 为准原子扣减，
+     * 累计已售数量记录在 Redis 中，异步写回数据库
+     * @param productId 商品ID
+     * @return Redis 中的库存
+     */
+    int markHot(Long productId);
+
+    /**
+     * 取消热点标记，Redis 停止售卖，剩余的已售数量写回数据库
+     * @param productId 商品ID
+     */
+    void unmarkHot(Long productId);
+
+    /**
+     * 管理端修改库存：锁定商品行后按目标值与当前库存的差值增减（分桶商品加减在各桶之和上，
+     * 热点商品以 INCRBY 语义加到 Redis），期间并发售出的数量不会丢失；不刷新商品目录，由调用方合并后发布
+     * @param productId 商品ID
+     * @param target 目标库存
+     * @return 调整后商品行上的库存
+     */
+    int setStock(Long productId, int target);
+
+    /**
+     * 将商品库存拆分到多个分桶行，并发购买落到不同的行上
+     * @param productId 商品ID
+     * @param bucketCount 分桶数
+     */
+    void splitStock(Long productId, int bucketCount);
+
+    /**
+     * 合并分桶库存回商品表
+     * @param productId 商品ID
+     */
+    void mergeStock(Long productId);
+
+    /**
+     * 库存运行指标：热点库存与数据库不一致的告警次数、写回失败次数等
+     */
+    Map<String, Object> stats();
+}
@@ -0,0 +1,35 @@
+package com.example.springbootdemo.service;
+
+import com.example.springbootdemo.entity.Order;
+
+import java.util.List;
+
+/**
+ * 订单服务接口
+ */
+public interface OrderService {
+
+    /**
+     * 下单：扣减库存并创建订单
+     * @param userId 用户ID
+     * @param productId 商品ID
+     * @param quantity 数量
+     * @return 创建的订单
+     */
+    Order createOrder(Long userId, Long productId, int quantity);
+
+    /**
+     * 获取用户的订单列表
+     * @param userId 用户ID
+     * @return 订单列表（按创建时间倒序）
+     */
+    List<Order> getOrdersByUser(Long userId);
+
+    /**
+     * 取消订单并归还库存
+     * @param orderId 订单ID
+     * @param userId 用户ID
+     * @return 是否取消成功
+     */
+    boolean cancelOrder(Long orderId, Long userId);
+}
@@ -0,0 +1,293 @@
+package com.example.springbootdemo.service;
+
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.example.springbootdemo.entity.Product;
+import com.example.springbootdemo.mapper.ProductMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.Resource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 上架商品目录（用户端只读缓存）
+ * 在内存中维护上架商品的不可变快照（按 ID 排序的数组 + ID 索引），
+ * 商品变更时增量更新，并通过 Redis 发布/订阅通知其他节点刷新对应商品，另定期全量重建兜底丢失的通知。
+ * 同时维护商品名称的倒排索引，供用户端搜索使用。
+ * 快照中的商品对象为只读，调用方不要修改。
+ */
+@Service
+public class ProductCatalog {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductCatalog.class);
+
+    private static final String CHANNEL = "product:catalog";
+
+    /** 通知其他节点全量重建快照 */
+    private static final String RELOAD = "*";
+
+    /** 当前节点标识，用于忽略自己发布的变更通知 */
+    private final String nodeId = UUID.randomUUID().toString();
+
+    @Resource
+    private ProductMapper productMapper;
+
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Resource
+    private RedisMessageListenerContainer redisMessageListenerContainer;
+
+    private volatile Snapshot snapshot;
+
+    /** 重建和增量更新互斥；重建时持锁查询数据库，使用 ReentrantLock 而非 synchronized，虚拟线程等待时不占用载体线程 */
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final ProductSearchIndex searchIndex = new ProductSearchIndex();
+
+    @PostConstruct
+    public void subscribe() {
+        redisMessageListenerContainer.addMessageListener(
+                (Message message, byte[] pattern) -> onRemoteChange(new String(message.getBody(), StandardCharsets.UTF_8)),
+                new ChannelTopic(CHANNEL));
+    }
+
+    /**
+     * 所有上架商品（按 ID 升序）
+     */
+    public List<Product> list() {
+        return Collections.unmodifiableList(Arrays.asList(current().products));
+    }
+
+    /**
+     * 获取上架商品，不存在或未上架时返回 null
+     */
+    public Product get(Long id) {
+        return id == null ? null : current().byId.get(id);
+    }
+
+    /**
+     * 上架商品数量
+     */
+    public int size() {
+        return current().products.length;
+    }
+
+    /**
+     * 搜索上架商品（名称分词 + 价格区间 + 排序），结果为只读商品对象
+     * @param keyword 关键词，为空时不按名称过滤
+     * @param minPrice 最低价格（含），可为 null
+     * @param maxPrice 最高价格（含），可为 null
+     * @param sort 排序字段：price / createTime，其他值按 ID 排序
+     * @param asc 是否升序
+     */
+    public List<Product> search(String keyword, BigDecimal minPrice, BigDecimal maxPrice, String sort, boolean asc) {
+        current();
+        return searchIndex.search(keyword, minPrice, maxPrice, sort, asc);
+    }
+
+    /**
+     * 商品在本节点写入后调用：更新本地快照并通知其他节点
+     */
+    public void onProductChanged(Product product) {
+        if (product == null || product.getId() == null) {
+            return;
+        }
+        apply(product.getId(), product);
+        publish(product.getId());
+    }
+
+    /**
+     * 商品在本节点写入后调用：从数据库重新读取该商品
+     */
+    public void onProductChanged(Long id) {
+        if (id == null) {
+            return;
+        }
+        apply(id, productMapper.selectById(id));
+        publish(id);
+    }
+
+    /**
+     * 商品在本节点删除后调用
+     */
+    public void onProductDeleted(Long id) {
+        if (id == null) {
+            return;
+        }
+        apply(id, null);
+        publish(id);
+    }
+
+    /**
+     * 批量写入（批量上下架、导入）后调用：全量重建本地快照并通知其他节点重建
+     */
+    public void onProductsChanged() {
+        reload();
+        publish(RELOAD);
+    }
+
+    /**
+     * 从数据库全量重建快照
+     */
+    public void reload() {
+        lock.lock();
+        try {
+            QueryWrapper<Product> queryWrapper = new QueryWrapper<>();
+            queryWrapper.eq("status", 1);
+            List<Product> rows = productMapper.selectList(queryWrapper);
+            Product[] products = rows.toArray(new Product[0]);
+            searchIndex.rebuild(products);
+            snapshot = Snapshot.of(products);
+            logger.info("商品目录快照已重建，上架商品 {} 个", rows.size());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 定期全量重建，兜底重连期间丢失或处理失败的变更通知，避免本节点长期返回过期的价格和库存
+     */
+    @Scheduled(fixedDelayString = "${product.catalog.resync-interval-ms:60000}",
+            initialDelayString = "${product.catalog.resync-interval-ms:60000}")
+    public void resync() {
+        if (snapshot == null) {
+            return;
+        }
+        try {
+            reload();
+        } catch (Exception ex) {
+            logger.warn("商品目录定期重建失败: {}", ex.toString());
+        }
+    }
+
+    private Snapshot current() {
+        Snapshot s = snapshot;
+        if (s == null) {
+            lock.lock();
+            try {
+                if (snapshot == null) {
+                    reload();
+                }
+                s = snapshot;
+            } finally {
+                lock.unlock();
+            }
+        }
+        return s;
+    }
+
+    /**
+     * 增量更新：product 为 null 或未上架时从快照移除，否则插入或替换
+     */
+    private void apply(Long id, Product product) {
+        lock.lock();
+        try {
+            if (snapshot == null) {
+                // 尚未加载，下次读取时全量构建即可
+                return;
+            }
+            Product[] old = snapshot.products;
+            boolean onShelf = product != null && Integer.valueOf(1).equals(product.getStatus());
+            int index = Arrays.binarySearch(old, probe(id), Snapshot.BY_ID);
+            Product[] next;
+            if (index >= 0) {
+                if (onShelf) {
+                    next = old.clone();
+                    next[index] = product;
+                } else {
+                    next = new Product[old.length - 1];
+                    System.arraycopy(old, 0, next, 0, index);
+                    System.arraycopy(old, index + 1, next, index, old.length - index - 1);
+                }
+            } else if (onShelf) {
+                int insert = -index - 1;
+                next = new Product[old.length + 1];
+                System.arraycopy(old, 0, next, 0, insert);
+                next[insert] = product;
+                System.arraycopy(old, insert, next, insert + 1, old.length - insert);
+            } else {
+                return;
+            }
+            snapshot = Snapshot.of(next);
+            if (onShelf) {
+                searchIndex.put(product);
+            } else {
+                searchIndex.remove(id);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void publish(Object id) {
+        try {
+            stringRedisTemplate.convertAndSend(CHANNEL, nodeId + ":" + id);
+        } catch (Exception ex) {
+            logger.warn("发布商品目录变更失败: {}", ex.toString());
+        }
+    }
+
+    private void onRemoteChange(String body) {
+        int sep = body.lastIndexOf(':');
+        if (sep <= 0 || body.substring(0, sep).equals(nodeId)) {
+            return;
+        }
+        try {
+            if (RELOAD.equals(body.substring(sep + 1))) {
+                reload();
+                return;
+            }
+            Long id = Long.parseLong(body.substring(sep + 1));
+            apply(id, productMapper.selectById(id));
+        } catch (Exception ex) {
+            logger.warn("处理商品目录变更通知失败: {}, 错误: {}", body, ex.toString());
+        }
+    }
+
+    private static Product probe(Long id) {
+        Product p = new Product();
+        p.setId(id);
+        return p;
+    }
+
+    /**
+     * 不可变快照
+     */
+    private static final class Snapshot {
+        static final Comparator<Product> BY_ID = Comparator.comparing(Product::getId);
+
+        final Product[] products;
+        final Map<Long, Product> byId;
+
+        private Snapshot(Product[] products, Map<Long, Product> byId) {
+            this.products = products;
+            this.byId = byId;
+        }
+
+        static Snapshot of(Product[] products) {
+            Arrays.sort(products, BY_ID);
+            Map<Long, Product> byId = new HashMap<>(products.length * 2);
+            for (Product p : products) {
+                byId.put(p.getId(), p);
+            }
+            return new Snapshot(products, Collections.unmodifiableMap(byId));
+        }
+    }
+}
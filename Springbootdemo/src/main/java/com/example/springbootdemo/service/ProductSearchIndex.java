@@ -0,0 +1,209 @@
+package com.example.springbootdemo.service;
+
+import com.example.springbootdemo.entity.Product;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 商品名称倒排索引（由 {@link ProductCatalog} 维护，仅包含上架商品）
+ * 中日韩文字按单字 + 相邻二元组切分，其他字母数字按单词切分并索引前缀，
+ * 查询时对所有词项的倒排表求交集，不需要 LIKE '%x%' 扫表。
+ * 写操作由目录在持锁状态下串行调用，读操作无锁。
+ */
+class ProductSearchIndex {
+
+    /** 单词前缀最多索引的长度，更长的查询词按完整单词匹配 */
+    private static final int MAX_PREFIX = 20;
+
+    private volatile Map<String, Set<Long>> postings = new ConcurrentHashMap<>();
+    private volatile Map<Long, Product> docs = new ConcurrentHashMap<>();
+    private volatile Map<Long, Set<String>> termsByDoc = new ConcurrentHashMap<>();
+
+    /**
+     * 全量重建，构建完成后整体替换，查询不会看到空索引
+     */
+    synchronized void rebuild(Product[] products) {
+        Map<String, Set<Long>> newPostings = new ConcurrentHashMap<>();
+        Map<Long, Product> newDocs = new ConcurrentHashMap<>();
+        Map<Long, Set<String>> newTerms = new ConcurrentHashMap<>();
+        for (Product product : products) {
+            Set<String> terms = indexTerms(product.getName());
+            for (String term : terms) {
+                newPostings.computeIfAbsent(term, k -> ConcurrentHashMap.newKeySet()).add(product.getId());
+            }
+            newDocs.put(product.getId(), product);
+            newTerms.put(product.getId(), terms);
+        }
+        postings = newPostings;
+        docs = newDocs;
+        termsByDoc = newTerms;
+    }
+
+    /**
+     * 新增或替换商品
+     */
+    synchronized void put(Product product) {
+        Long id = product.getId();
+        Set<String> terms = indexTerms(product.getName());
+        Set<String> old = termsByDoc.get(id);
+        if (old != null) {
+            for (String term : old) {
+                if (!terms.contains(term)) {
+                    removePosting(term, id);
+                }
+            }
+        }
+        for (String term : terms) {
+            postings.computeIfAbsent(term, k -> ConcurrentHashMap.newKeySet()).add(id);
+        }
+        termsByDoc.put(id, terms);
+        docs.put(id, product);
+    }
+
+    /**
+     * 移除商品
+     */
+    synchronized void remove(Long id) {
+        docs.remove(id);
+        Set<String> old = termsByDoc.remove(id);
+        if (old != null) {
+            for (String term : old) {
+                removePosting(term, id);
+            }
+        }
+    }
+
+    private void removePosting(String term, Long id) {
+        postings.computeIfPresent(term, (k, ids) -> {
+            ids.remove(id);
+            return ids.isEmpty() ? null : ids;
+        });
+    }
+
+    /**
+     * 检索商品
+     * @param keyword 关键词，为空时不按名称过滤
+     * @param minPrice 最低价格（含），可为 null
+     * @param maxPrice 最高价格（含），可为 null
+     * @param sort 排序字段：price / createTime，其他值按 ID 排序
+     * @param asc 是否升序
+     */
+    List<Product> search(String keyword, BigDecimal minPrice, BigDecimal maxPrice, String sort, boolean asc) {
+        Map<Long, Product> docs = this.docs;
+        List<String> terms = queryTerms(keyword);
+        List<Product> hits = new ArrayList<>();
+        if (terms.isEmpty()) {
+            for (Product product : docs.values()) {
+                if (inRange(product, minPrice, maxPrice)) {
+                    hits.add(product);
+                }
+            }
+        } else {
+            Map<String, Set<Long>> postings = this.postings;
+            List<Set<Long>> lists = new ArrayList<>(terms.size());
+            for (String term : terms) {
+                Set<Long> ids = postings.get(term);
+                if (ids == null) {
+                    return Collections.emptyList();
+                }
+                lists.add(ids);
+            }
+            // 从最短的倒排表开始求交集
+            lists.sort(Comparator.comparingInt(Set::size));
+            Set<Long> smallest = lists.get(0);
+            outer:
+            for (Long id : smallest) {
+                for (int i = 1; i < lists.size(); i++) {
+                    if (!lists.get(i).contains(id)) {
+                        continue outer;
+                    }
+                }
+                Product product = docs.get(id);
+                if (product != null && inRange(product, minPrice, maxPrice)) {
+                    hits.add(product);
+                }
+            }
+        }
+        hits.sort(comparator(sort, asc));
+        return hits;
+    }
+
+    private static boolean inRange(Product product, BigDecimal minPrice, BigDecimal maxPrice) {
+        if (minPrice == null && maxPrice == null) {
+            return true;
+        }
+        BigDecimal price = product.getPrice();
+        if (price == null) {
+            return false;
+        }
+        return (minPrice == null || price.compareTo(minPrice) >= 0)
+                && (maxPrice == null || price.compareTo(maxPrice) <= 0);
+    }
+
+    private static Comparator<Product> comparator(String sort, boolean asc) {
+        Comparator<Product> byId = Comparator.comparing(Product::getId);
+        Comparator<Product> primary;
+        if ("price".equalsIgnoreCase(sort)) {
+            primary = Comparator.comparing(Product::getPrice, Comparator.nullsLast(Comparator.naturalOrder()));
+        } else if ("createTime".equalsIgnoreCase(sort)) {
+            primary = Comparator.comparing(Product::getCreateTime, Comparator.nullsLast(Comparator.naturalOrder()));
+        } else {
+            return asc ? byId : byId.reversed();
+        }
+        return (asc ? primary : primary.reversed()).thenComparing(byId);
+    }
+
+    /**
+     * 索引词项：中日韩文字的单字和二元组，其他单词的全部前缀
+     */
+    static Set<String> indexTerms(String text) {
+        Set<String> terms = new LinkedHashSet<>();
+        if (text == null) {
+            return terms;
+        }
+        TextTokenizer.forEachRun(text, (run, cjk) -> {
+            if (cjk) {
+                for (int i = 0; i < run.length(); i++) {
+                    terms.add(run.substring(i, i + 1));
+                    if (i + 1 < run.length()) {
+                        terms.add(run.substring(i, i + 2));
+                    }
+                }
+            } else {
+                for (int len = 1; len <= Math.min(run.length(), MAX_PREFIX); len++) {
+                    terms.add(run.substring(0, len));
+                }
+                terms.add(run);
+            }
+        });
+        return terms;
+    }
+
+    /**
+     * 查询词项：中日韩文字单字查单字、多字查二元组，其他单词按前缀匹配
+     */
+    static List<String> queryTerms(String text) {
+        List<String> terms = new ArrayList<>();
+        if (text == null || text.isBlank()) {
+            return terms;
+        }
+        TextTokenizer.forEachRun(text, (run, cjk) -> {
+            if (cjk && run.length() > 1) {
+                for (int i = 0; i + 1 < run.length(); i++) {
+                    terms.add(run.substring(i, i + 2));
+                }
+            } else {
+                terms.add(run);
+            }
+        });
+        return terms;
+    }
+}
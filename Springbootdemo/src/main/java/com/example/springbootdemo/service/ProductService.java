@@ -3,6 +3,7 @@ package com.example.springbootdemo.service;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.example.springbootdemo.entity.Product;
 
+import java.math.BigDecimal;
 import java.util.List;
 
 /**
@@ -18,9 +19,10 @@ public interface ProductService {
     Product createProduct(Product product);
 
     /**
-     * 修改商品
+     * 修改商品（只写入非空字段）
+     * 携带 version 时使用乐观锁，版本不一致抛出 IllegalStateException
      * @param product 商品对象
-     * @return 更新后的商品
+     * @return 更新后的商品（本次修改合并到目录中的商品上，含新版本号），不重新读取数据库
      */
     Product updateProduct(Product product);
 
@@ -79,4 +81,33 @@ public interface ProductService {
      * @return 分页结果
      */
     Page<Product> getOnShelfProductsByPage(Integer pageNum, Integer pageSize);
+
+    /**
+     * 获取上架商品详情（用户端）
+     * @param id 商品ID
+     * @return 商品对象，不存在或未上架时返回 null
+     */
+    Product getOnShelfProductById(Long id);
+
+    /**
+     * 批量上架或下架
+     * @param ids 商品ID列表
+     * @param status 1=上架，0=下架
+     * @return 更新的行数
+     */
+    int batchUpdateStatus(List<Long> ids, int status);
+
+    /**
+     * 搜索上架商品（用户端）
+     * @param keyword 关键词，为空时不按名称过滤
+     * @param minPrice 最低价格（含），可为 null
+     * @param maxPrice 最高价格（含），可为 null
+     * @param sort 排序字段：price / createTime，为空时按 ID 排序
+     * @param order 排序方向：asc / desc
+     * @param pageNum 页码
+     * @param pageSize 每页数量
+     * @return 分页结果
+     */
+    Page<Product> searchOnShelfProducts(String keyword, BigDecimal minPrice, BigDecimal maxPrice,
+                                        String sort, String order, Integer pageNum, Integer pageSize);
 }
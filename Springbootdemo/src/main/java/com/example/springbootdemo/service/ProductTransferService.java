@@ -0,0 +1,28 @@
+package com.example.springbootdemo.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Map;
+
+/**
+ * 商品批量导入导出服务接口
+ */
+public interface ProductTransferService {
+
+    /**
+     * 流式导入商品，逐行解析并分批插入
+     * CSV 首行为表头，须包含 name、price 列，可选 stock、status 列；JSON 为商品对象数组
+     * @param in 输入流
+     * @param format csv / json
+     * @return 导入结果：imported 导入条数、skipped 跳过条数、errors 错误明细（最多 100 条）
+     */
+    Map<String, Object> importProducts(InputStream in, String format) throws IOException;
+
+    /**
+     * 流式导出全部商品，不在内存中保留完整列表
+     * @param out 输出流
+     * @param format csv / json
+     */
+    void exportProducts(OutputStream out, String format) throws IOException;
+}
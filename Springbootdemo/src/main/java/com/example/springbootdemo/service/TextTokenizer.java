@@ -0,0 +1,50 @@
+package com.example.springbootdemo.service;
+
+import java.util.Locale;
+
+/**
+ * 中日韩文字感知的分词工具（供商品、文章的内存倒排索引使用）
+ * 将文本切分为连续的中日韩文字段和字母数字段，其余字符作为分隔符，字母统一转小写
+ */
+final class TextTokenizer {
+
+    private TextTokenizer() {
+    }
+
+    /**
+     * 逐段回调
+     */
+    static void forEachRun(String text, RunConsumer consumer) {
+        if (text == null) {
+            return;
+        }
+        text = text.toLowerCase(Locale.ROOT);
+        int start = -1;
+        boolean startCjk = false;
+        for (int i = 0; i <= text.length(); i++) {
+            char c = i < text.length() ? text.charAt(i) : ' ';
+            boolean cjk = isCjk(c);
+            boolean word = cjk || Character.isLetterOrDigit(c);
+            if (start >= 0 && (!word || cjk != startCjk)) {
+                consumer.accept(text.substring(start, i), startCjk);
+                start = -1;
+            }
+            if (word && start < 0) {
+                start = i;
+                startCjk = cjk;
+            }
+        }
+    }
+
+    static boolean isCjk(char c) {
+        Character.UnicodeScript script = Character.UnicodeScript.of(c);
+        return script == Character.UnicodeScript.HAN
+                || script == Character.UnicodeScript.HIRAGANA
+                || script == Character.UnicodeScript.KATAKANA
+                || script == Character.UnicodeScript.HANGUL;
+    }
+
+    interface RunConsumer {
+        void accept(String run, boolean cjk);
+    }
+}
@@ -1,14 +1,24 @@
 package com.example.springbootdemo.service.impl;
 
+import com.example.springbootdemo.common.IdGenerator;
+import com.example.springbootdemo.dto.ArticleSummary;
 import com.example.springbootdemo.entity.Article;
 import com.example.springbootdemo.mapper.ArticleMapper;
+import com.example.springbootdemo.service.ArticleBodyCache;
+import com.example.springbootdemo.service.ArticleDirectory;
+import com.example.springbootdemo.service.ArticleSearchIndex;
 import com.example.springbootdemo.service.ArticleService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
-import java.util.UUID;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -19,29 +29,50 @@ import org.slf4j.LoggerFactory;
 public class ArticleServiceImpl implements ArticleService {
 
     private final ArticleMapper articleMapper;
+    private final ArticleDirectory articleDirectory;
+    private final ArticleBodyCache articleBodyCache;
+    private final ArticleSearchIndex articleSearchIndex;
+    private final TransactionTemplate transactionTemplate;
     private static final Logger logger = LoggerFactory.getLogger(ArticleServiceImpl.class);
 
-    public ArticleServiceImpl(ArticleMapper articleMapper) {
+    /** 新文章和重新编号时相邻文章 position 的间隔 */
+    @Value("${article.position.gap:1024}")
+    private int positionGap;
+
+    /** 相邻文章 position 的间隔小于该值时，定时任务重新编号 */
+    @Value("${article.position.min-gap:8}")
+    private int minPositionGap;
+
+    public ArticleServiceImpl(ArticleMapper articleMapper, ArticleDirectory articleDirectory,
+                              ArticleBodyCache articleBodyCache, ArticleSearchIndex articleSearchIndex,
+                              TransactionTemplate transactionTemplate) {
         this.articleMapper = articleMapper;
+        this.articleDirectory = articleDirectory;
+        this.articleBodyCache = articleBodyCache;
+        this.articleSearchIndex = articleSearchIndex;
+        this.transactionTemplate = transactionTemplate;
     }
 
     @Override
     public Article createArticle(Article article) {
-        // 生成唯一ID
-        String id = UUID.randomUUID().toString();
+        // 生成按时间递增的唯一ID（UUIDv7），插入总是追加在主键索引末尾
+        String id = IdGenerator.uuidV7();
         article.setId(id);
         article.setCreateTime(LocalDateTime.now());
         article.setUpdateTime(LocalDateTime.now());
         
-        // 如果没有传 position，则设置为0
+        // 如果没有传 position，则放在最前面，与原第一篇之间留出间隔
         if (article.getPosition() == null) {
-            article.setPosition(0);
+            article.setPosition(headPosition());
         }
+        article.setVersion(0);
         
         // 保存到 MySQL
         try {
             int rows = articleMapper.insertArticle(article);
             logger.info("Inserted article into MySQL, rows={}", rows);
+            articleDirectory.onArticleChanged(id);
+            articleSearchIndex.index(article);
             return article;
         } catch (Exception ex) {
             logger.error("Failed to save article to MySQL: {}", ex.toString(), ex);
@@ -52,7 +83,8 @@ public class ArticleServiceImpl implements ArticleService {
     @Override
     public Article getArticleById(String id) {
         try {
-            return articleMapper.selectArticleById(id);
+            // 先查本地 / Redis 缓存，未命中再读 MySQL
+            return articleBodyCache.get(id, articleMapper::selectArticleById);
         } catch (Exception ex) {
             logger.error("Failed to read article from MySQL: {}", ex.toString(), ex);
             return null;
@@ -83,35 +115,219 @@ public class ArticleServiceImpl implements ArticleService {
         }
     }
 
+    @Override
+    public List<ArticleSummary> getArticleDirectory() {
+        try {
+            return articleDirectory.list();
+        } catch (Exception ex) {
+            logger.error("Failed to read article directory: {}", ex.toString(), ex);
+            return new ArrayList<>();
+        }
+    }
+
+    @Override
+    public List<ArticleSummary> getArticleDirectoryByUser(String userId) {
+        if (userId == null) {
+            return new ArrayList<>();
+        }
+        try {
+            return articleDirectory.listByAuthor(userId);
+        } catch (Exception ex) {
+            logger.error("Failed to read user article directory: {}", ex.toString(), ex);
+            return new ArrayList<>();
+        }
+    }
+
+    @Override
+    public List<ArticleSummary> searchArticles(String keyword, int limit) {
+        if (!articleSearchIndex.isReady()) {
+            throw new IllegalStateException("文章索引正在构建，请稍后再试");
+        }
+        List<ArticleSummary> result = new ArrayList<>();
+        for (ArticleSearchIndex.Hit hit : articleSearchIndex.search(keyword, limit)) {
+            ArticleSummary summary = articleDirectory.get(hit.id());
+            if (summary != null) {
+                result.add(summary);
+            }
+        }
+        return result;
+    }
+
     @Override
     public Article updateArticle(Article article) {
         if (article.getId() == null) {
             throw new IllegalArgumentException("文章ID不能为空");
         }
         
-        Article existingArticle = getArticleById(article.getId());
-        if (existingArticle == null) {
-            throw new IllegalArgumentException("文章不存在");
-        }
-
-        // 合并非空字段，避免覆盖已有数据
-        if (article.getTitle() != null) existingArticle.setTitle(article.getTitle());
-        if (article.getContent() != null) existingArticle.setContent(article.getContent());
-        if (article.getAuthor() != null) existingArticle.setAuthor(article.getAuthor());
-        if (article.getCategory() != null) existingArticle.setCategory(article.getCategory());
-        if (article.getPosition() != null) existingArticle.setPosition(article.getPosition());
+        // 创建时间不允许修改
+        article.setCreateTime(null);
+        article.setUpdateTime(LocalDateTime.now());
 
-        existingArticle.setUpdateTime(LocalDateTime.now());
-        
-        // 更新 MySQL
+        // 只写入非空字段（不读取也不回写未修改的 TEXT 内容）；携带 version 时校验版本
+        int rows;
         try {
-            int rows = articleMapper.updateArticle(existingArticle);
+            rows = articleMapper.updateArticle(article);
             logger.info("Updated article in MySQL, rows={}", rows);
-            return existingArticle;
         } catch (Exception ex) {
             logger.error("Failed to update article in MySQL: {}", ex.toString(), ex);
             throw new RuntimeException("更新文章失败", ex);
         }
+        if (rows == 0) {
+            // 仅在失败时读取一次，区分文章不存在与版本冲突
+            if (article.getVersion() == null || articleMapper.selectArticleById(article.getId()) == null) {
+                throw new IllegalArgumentException("文章不存在");
+            }
+            throw new IllegalStateException("文章已被其他人修改，请刷新后重试");
+        }
+        articleDirectory.onArticleChanged(article.getId());
+        articleBodyCache.invalidate(article.getId());
+        if (article.getTitle() != null || article.getCategory() != null || article.getContent() != null) {
+            // 本次只写入了修改的字段，重新读取整行更新全文索引
+            articleSearchIndex.reindex(article.getId());
+        }
+        if (article.getVersion() != null) {
+            article.setVersion(article.getVersion() + 1);
+        }
+        return article;
+    }
+
+    /**
+     * 目录第一篇文章之前的位置（与目录排序一致：新文章排在最前）
+     */
+    private int headPosition() {
+        List<ArticleSummary> list = articleDirectory.list();
+        if (list.isEmpty() || list.get(0).getPosition() == null) {
+            return 0;
+        }
+        // 间隔用尽时与第一篇相同，按创建时间倒序仍排在最前，等待定时任务重新编号
+        return (int) Math.max((long) list.get(0).getPosition() - positionGap, Integer.MIN_VALUE);
+    }
+
+    @Override
+    public int moveArticle(String id, String prevId, String nextId) {
+        if (id == null || id.equals(prevId) || id.equals(nextId)) {
+            throw new IllegalArgumentException("文章ID无效");
+        }
+        if (prevId == null && nextId == null) {
+            throw new IllegalArgumentException("请指定相邻文章");
+        }
+        Integer position;
+        AtomicBoolean rebalanced = new AtomicBoolean();
+        try {
+            position = transactionTemplate.execute(status -> {
+                Integer p = placeBetween(id, prevId, nextId);
+                if (p == null) {
+                    // 相邻文章之间没有空隙：在同一事务内重新编号后再放入
+                    int rows = articleMapper.rebalancePositions(positionGap);
+                    logger.info("Rebalanced article positions before move, rows={}", rows);
+                    rebalanced.set(true);
+                    p = placeBetween(id, prevId, nextId);
+                    if (p == null) {
+                        throw new IllegalStateException("文章顺序已变化，请刷新后重试");
+                    }
+                }
+                articleMapper.updatePosition(id, p);
+                return p;
+            });
+        } catch (IllegalArgumentException | IllegalStateException ex) {
+            throw ex;
+        } catch (Exception ex) {
+            logger.error("Failed to move article in MySQL: {}", ex.toString(), ex);
+            throw new RuntimeException("调整文章顺序失败", ex);
+        }
+        logger.info("Moved article {} to position {}", id, position);
+        if (rebalanced.get()) {
+            // 同一事务内重新编号了全部文章，整体失效
+            articleDirectory.invalidate();
+        } else {
+            articleDirectory.onArticleChanged(id);
+        }
+        articleBodyCache.invalidate(id);
+        return position;
+    }
+
+    /**
+     * 锁定文章及相邻文章并计算新位置（取两侧 position 的中点）
+     * @return 新的 position，相邻文章之间没有空隙（或旧数据没有 position）时返回 null
+     */
+    private Integer placeBetween(String id, String prevId, String nextId) {
+        List<String> ids = new ArrayList<>(3);
+        ids.add(id);
+        if (prevId != null) {
+            ids.add(prevId);
+        }
+        if (nextId != null) {
+            ids.add(nextId);
+        }
+        Map<String, Integer> positions = new HashMap<>();
+        for (Article row : articleMapper.selectPositionsForUpdate(ids)) {
+            positions.put(row.getId(), row.getPosition());
+        }
+        if (!positions.containsKey(id)) {
+            throw new IllegalArgumentException("文章不存在");
+        }
+        if ((prevId != null && !positions.containsKey(prevId)) || (nextId != null && !positions.containsKey(nextId))) {
+            throw new IllegalStateException("相邻文章已被删除，请刷新后重试");
+        }
+        Integer prev = prevId == null ? null : positions.get(prevId);
+        Integer next = nextId == null ? null : positions.get(nextId);
+        if ((prevId != null && prev == null) || (nextId != null && next == null)) {
+            return null;
+        }
+        if (prev == null) {
+            long p = (long) next - positionGap;
+            return p < Integer.MIN_VALUE ? null : (int) p;
+        }
+        if (next == null) {
+            long p = (long) prev + positionGap;
+            return p > Integer.MAX_VALUE ? null : (int) p;
+        }
+        if (prev > next) {
+            throw new IllegalStateException("文章顺序已变化，请刷新后重试");
+        }
+        if ((long) next - prev < 2) {
+            return null;
+        }
+        return (int) (prev + ((long) next - prev) / 2);
+    }
+
+    @Override
+    public int rebalancePositions() {
+        int rows;
+        try {
+            // 一条语句按当前顺序重新编号，顺序不变
+            rows = articleMapper.rebalancePositions(positionGap);
+        } catch (Exception ex) {
+            logger.error("Failed to rebalance article positions: {}", ex.toString(), ex);
+            throw new RuntimeException("重新编号文章顺序失败", ex);
+        }
+        logger.info("Rebalanced article positions, rows={}", rows);
+        if (rows > 0) {
+            articleDirectory.invalidate();
+        }
+        return rows;
+    }
+
+    /**
+     * 定时检查目录中相邻文章的 position 间隔，空隙不足（或存在没有 position 的旧数据）时重新编号
+     * 只读取内存中的目录快照；多个节点同时执行时结果相同
+     */
+    @Scheduled(fixedDelayString = "${article.position.rebalance-interval-ms:600000}")
+    public void rebalanceIfNeeded() {
+        try {
+            List<ArticleSummary> list = articleDirectory.list();
+            Integer prev = null;
+            for (int i = 0; i < list.size(); i++) {
+                Integer p = list.get(i).getPosition();
+                if (p == null || (i > 0 && (long) p - prev < minPositionGap)) {
+                    rebalancePositions();
+                    return;
+                }
+                prev = p;
+            }
+        } catch (Exception ex) {
+            logger.warn("Failed to check article positions: {}", ex.toString());
+        }
     }
 
     @Override
@@ -120,6 +336,11 @@ public class ArticleServiceImpl implements ArticleService {
         try {
             int rows = articleMapper.deleteArticle(id);
             logger.info("Deleted article in MySQL, rows={}", rows);
+            if (rows > 0) {
+                articleDirectory.onArticleDeleted(id);
+                articleBodyCache.invalidate(id);
+                articleSearchIndex.remove(id);
+            }
             return rows > 0;
         } catch (Exception ex) {
             logger.error("Failed to delete article in MySQL: {}", ex.toString(), ex);
@@ -1,20 +1,41 @@
 package com.example.springbootdemo.service.impl;
 
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.example.springbootdemo.common.CursorPage;
 import com.example.springbootdemo.common.Result;
+import com.example.springbootdemo.dto.ConversationSummary;
 import com.example.springbootdemo.entity.Conversation;
+import com.example.springbootdemo.entity.MessageRecord;
 import com.example.springbootdemo.mapper.ConversationMapper;
+import com.example.springbootdemo.mapper.MessageRecordMapper;
+import com.example.springbootdemo.service.ConversationPurgeService;
 import com.example.springbootdemo.service.ConversationService;
 import org.springframework.stereotype.Service;
 
 import jakarta.annotation.Resource;
 import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 @Service
 public class ConversationServiceImpl implements ConversationService {
 
+    /** 最后一条消息预览长度 */
+    private static final int PREVIEW_LENGTH = 50;
+
     @Resource
     private ConversationMapper conversationMapper;
 
+    @Resource
+    private MessageRecordMapper messageRecordMapper;
+
+    @Resource
+    private ConversationPurgeService conversationPurgeService;
+
     @Override
     public Result<?> createConversation(String title, Long userId) {
         Conversation c = new Conversation();
@@ -29,7 +50,93 @@ public class ConversationServiceImpl implements ConversationService {
     @Override
     public Result<?> deleteConversation(Long conversationId) {
         int deleted = conversationMapper.deleteById(conversationId);
-        if (deleted > 0) return Result.success("删除成功");
+        if (deleted > 0) {
+            // 会话立即删除，消息记录在后台分批清理
+            conversationPurgeService.purgeMessagesAsync(conversationId);
+            return Result.success("删除成功");
+        }
         return Result.error("没有找到会话");
     }
+
+    @Override
+    public CursorPage<ConversationSummary> pageConversationSummaries(Long userId, String cursor, int size) {
+        QueryWrapper<Conversation> qw = new QueryWrapper<>();
+        qw.select("id", "title", "updated_at");
+        if (userId != null) {
+            qw.eq("user_id", userId);
+        } else {
+            qw.isNull("user_id");
+        }
+        // 游标格式：<updated_at ISO 时间>,<id>；updated_at 非空（db/conversation_updated_at.sql）
+        if (cursor != null && !cursor.isEmpty()) {
+            int comma = cursor.lastIndexOf(',');
+            if (comma <= 0) {
+                throw new IllegalArgumentException("无效的分页游标");
+            }
+            LocalDateTime updatedAt;
+            long id;
+            try {
+                updatedAt = LocalDateTime.parse(cursor.substring(0, comma));
+                id = Long.parseLong(cursor.substring(comma + 1));
+            } catch (DateTimeParseException | NumberFormatException e) {
+                throw new IllegalArgumentException("无效的分页游标");
+            }
+            qw.and(w -> w.lt("updated_at", updatedAt)
+                    .or(o -> o.eq("updated_at", updatedAt).lt("id", id)));
+        }
+        qw.orderByDesc("updated_at", "id").last("LIMIT " + (size + 1));
+        List<Conversation> rows = conversationMapper.selectList(qw);
+
+        boolean hasMore = rows.size() > size;
+        if (hasMore) {
+            rows = rows.subList(0, size);
+        }
+
+        Map<Long, String> previews = new HashMap<>();
+        if (!rows.isEmpty()) {
+            List<Long> ids = new ArrayList<>(rows.size());
+            for (Conversation c : rows) {
+                ids.add(c.getId());
+            }
+            for (MessageRecord m : messageRecordMapper.selectLastMessagePreviews(ids, PREVIEW_LENGTH)) {
+                previews.put(m.getConversationId(), m.getContent());
+            }
+        }
+
+        List<ConversationSummary> items = new ArrayList<>(rows.size());
+        for (Conversation c : rows) {
+            ConversationSummary summary = new ConversationSummary();
+            summary.setId(c.getId());
+            summary.setTitle(c.getTitle());
+            summary.setUpdatedAt(c.getUpdatedAt());
+            summary.setLastMessagePreview(previews.get(c.getId()));
+            items.add(summary);
+        }
+
+        String nextCursor = null;
+        if (hasMore) {
+            Conversation last = rows.get(rows.size() - 1);
+            nextCursor = last.getUpdatedAt() + "," + last.getId();
+        }
+        return CursorPage.of(items, nextCursor);
+    }
+
+    @Override
+    public CursorPage<MessageRecord> pageMessages(Long conversationId, Long beforeId, int size) {
+        QueryWrapper<MessageRecord> qw = new QueryWrapper<>();
+        qw.eq("conversation_id", conversationId)
+                .lt(beforeId != null, "id", beforeId)
+                .orderByDesc("id")
+                .last("LIMIT " + (size + 1));
+        List<MessageRecord> rows = messageRecordMapper.selectList(qw);
+
+        boolean hasMore = rows.size() > size;
+        if (hasMore) {
+            rows = new ArrayList<>(rows.subList(0, size));
+        }
+        // 查询为倒序，返回前反转为时间正序
+        Collections.reverse(rows);
+        String nextCursor = hasMore && !rows.isEmpty() ? String.valueOf(rows.get(0).getId()) : null;
+        return CursorPage.of(rows, nextCursor);
+    }
 }
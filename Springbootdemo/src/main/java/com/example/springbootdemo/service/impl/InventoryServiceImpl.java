@@ -0,0 +1,644 @@
+package com.example.springbootdemo.service.impl;
+
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.example.springbootdemo.entity.Product;
+import com.example.springbootdemo.entity.ProductStockBucket;
+import com.example.springbootdemo.mapper.ProductMapper;
+import com.example.springbootdemo.mapper.ProductStockBucketMapper;
+import com.example.springbootdemo.service.InventoryService;
+import com.example.springbootdemo.service.ProductCatalog;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/**
+ * 库存服务实现类
+ * 普通商品直接执行条件 UPDATE 扣减；热点商品的库存以 Redis 为准，用 Lua 原子扣减，
+ * 同一脚本内累加该商品的累计已售数量（Redis 中持久保存，节点重启不丢失），
+ * 定时任务按累计值与数据库中已写回的累计值（product.hot_sold）之差写回，重复执行不会重复扣减；
+ * 商品行上的 hot_sold 非空即为热点商品，数据库扣减和归还带 hot_sold IS NULL 条件，
+ * Redis 不可用或热点库存未加载时热点商品拒绝扣减，不会出现 Redis 与数据库各自售卖。
+ * 分桶商品的库存拆分在 product_stock_bucket 的多行中，并发购买随机落到不同的桶上。
+ * 商品目录中的分桶数只用来选择先尝试的路径：商品行的扣减和归还带 bucket_count = 0 条件，
+ * 分桶的扣减要求桶行存在，目录滞后时以数据库中的商品行重试另一条路径。
+ * 下单时扣减在订单事务内执行：数据库中的扣减随事务回滚；热点商品的扣减在同一脚本内记录预占，
+ * 订单提交后删除，没有写入订单的预占由对账任务归还。
+ */
+@Service
+public class InventoryServiceImpl implements InventoryService {
+
+    private static final Logger logger = LoggerFactory.getLogger(InventoryServiceImpl.class);
+
+    /** 热点商品的可售库存 */
+    private static final String HOT_STOCK_KEY = "stock:hot:";
+    /** 热点商品标记以来的累计已售数量（归还时减少） */
+    private static final String HOT_SOLD_KEY = "stock:hot:sold:";
+    /** 热点商品 ID 集合，定时任务据此写回 */
+    private static final String HOT_IDS_KEY = "stock:hot:ids";
+    /** 热点商品的预占记录（field = 商品ID:预占ID，value = 数量:时间戳），订单写入后删除 */
+    private static final String RESERVATIONS_KEY = "stock:hot:reservations";
+
+    /**
+     * KEYS: 库存, 累计已售, 预占记录；ARGV: 数量, 预占 field（空串表示不记录）, 预占 value
+     * 返回值：-2 表示非热点商品（Redis 中无库存），-1 表示库存不足，否则为扣减后的剩余库存
+     */
+    private static final DefaultRedisScript<Long> DEDUCT_SCRIPT = new DefaultRedisScript<>(
+            "local s = redis.call('GET', KEYS[1]) "
+                    + "if not s then return -2 end "
+                    + "if tonumber(s) < tonumber(ARGV[1]) then return -1 end "
+                    + "redis.call('INCRBY', KEYS[2], ARGV[1]) "
+                    + "if ARGV[2] ~= '' then redis.call('HSET', KEYS[3], ARGV[2], ARGV[3]) end "
+                    + "return redis.call('DECRBY', KEYS[1], ARGV[1])",
+            Long.class);
+
+    /**
+     * 取消预占：删除预占记录成功的一方才归还，重复调用只归还一次
+     * KEYS: 库存, 累计已售, 预占记录；ARGV: 预占 field, 数量
+     * 返回值：0 表示没有该预占，1 表示已归还到 Redis，2 表示商品已取消热点（由调用方归还到数据库）
+     */
+    private static final DefaultRedisScript<Long> CANCEL_RESERVATION_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('HDEL', KEYS[3], ARGV[1]) == 0 then return 0 end "
+                    + "if redis.call('EXISTS', KEYS[1]) == 0 then return 2 end "
+                    + "redis.call('DECRBY', KEYS[2], ARGV[2]) "
+                    + "redis.call('INCRBY', KEYS[1], ARGV[2]) "
+                    + "return 1",
+            Long.class);
+
+    /**
+     * 热点商品存在时才归还，返回 -2 表示非热点商品
+     */
+    private static final DefaultRedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('EXISTS', KEYS[1]) == 0 then return -2 end "
+                    + "redis.call('DECRBY', KEYS[2], ARGV[1]) "
+                    + "return redis.call('INCRBY', KEYS[1], ARGV[1])",
+            Long.class);
+
+    /**
+     * 加载热点库存，已加载时返回当前库存不做修改
+     * ARGV: 数据库库存, 数据库已写回的累计已售, 是否首次标记（1 时忽略残留的累计已售）
+     * 库存 = 数据库库存 - 尚未写回的已售数量
+     */
+    private static final DefaultRedisScript<Long> LOAD_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('EXISTS', KEYS[1]) == 1 then return tonumber(redis.call('GET', KEYS[1])) end "
+                    + "local applied = tonumber(ARGV[2]) "
+                    + "local sold = applied "
+                    + "if ARGV[3] == '0' then sold = tonumber(redis.call('GET', KEYS[2]) or ARGV[2]) end "
+                    + "local stock = tonumber(ARGV[1]) - (sold - applied) "
+                    + "if stock < 0 then stock = 0 end "
+                    + "redis.call('SET', KEYS[2], sold) "
+                    + "redis.call('SET', KEYS[1], stock) "
+                    + "return stock",
+            Long.class);
+
+    /**
+     * 管理端按差值调整热点库存（最低到 0），返回实际调整量；未加载时返回 nil
+     */
+    private static final DefaultRedisScript<Long> ADJUST_SCRIPT = new DefaultRedisScript<>(
+            "local s = redis.call('GET', KEYS[1]) "
+                    + "if not s then return false end "
+                    + "local n = tonumber(s) + tonumber(ARGV[1]) "
+                    + "if n < 0 then n = 0 end "
+                    + "redis.call('SET', KEYS[1], n) "
+                    + "return n - tonumber(s)",
+            Long.class);
+
+    /**
+     * 取消热点：删除库存停止售卖，返回累计已售（不存在时返回 nil）
+     */
+    private static final DefaultRedisScript<Long> UNMARK_SCRIPT = new DefaultRedisScript<>(
+            "redis.call('DEL', KEYS[1]) "
+                    + "local sold = redis.call('GET', KEYS[2]) "
+                    + "if not sold then return false end "
+                    + "return tonumber(sold)",
+            Long.class);
+
+    private final ProductMapper productMapper;
+    private final ProductStockBucketMapper productStockBucketMapper;
+    private final ProductCatalog productCatalog;
+    private final StringRedisTemplate stringRedisTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    /** 本节点最近一次写回的累计已售数量，未变化时跳过写回（只是优化，准确值在数据库） */
+    private final Map<Long, Long> flushedSold = new ConcurrentHashMap<>();
+
+    /** 库存已变化、需要刷新商品目录的商品 */
+    private final Set<Long> dirtyProducts = ConcurrentHashMap.newKeySet();
+
+    private final AtomicLong driftAlarms = new AtomicLong();
+    private final AtomicLong flushFailures = new AtomicLong();
+
+    public InventoryServiceImpl(ProductMapper productMapper, ProductStockBucketMapper productStockBucketMapper,
+                                ProductCatalog productCatalog, StringRedisTemplate stringRedisTemplate,
+                                TransactionTemplate transactionTemplate) {
+        this.productMapper = productMapper;
+        this.productStockBucketMapper = productStockBucketMapper;
+        this.productCatalog = productCatalog;
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    @Override
+    public boolean deduct(Long productId, int quantity) {
+        return deduct(productId, quantity, null);
+    }
+
+    @Override
+    public boolean deduct(Long productId, int quantity, String reservationId) {
+        if (productId == null || quantity <= 0) {
+            throw new IllegalArgumentException("商品ID或数量无效");
+        }
+        Long remaining;
+        try {
+            remaining = stringRedisTemplate.execute(DEDUCT_SCRIPT, reservationKeys(productId), String.valueOf(quantity),
+                    reservationId == null ? "" : productId + ":" + reservationId,
+                    quantity + ":" + System.currentTimeMillis());
+        } catch (Exception ex) {
+            logger.warn("Redis stock script failed, checking database: {}", ex.toString());
+            remaining = null;
+        }
+        if (remaining != null && remaining != -2) {
+            return remaining != -1;
+        }
+        int buckets = bucketCount(productId);
+        if (buckets > 0) {
+            Boolean deducted = deductFromBuckets(productId, buckets, quantity);
+            if (deducted != null) {
+                return deducted;
+            }
+            // 分桶已合并回商品行
+        }
+        // 非热点商品：数据库条件扣减（热点商品不满足 hot_sold IS NULL，不会扣减）
+        if (productMapper.decreaseStock(productId, quantity) > 0) {
+            dirtyProducts.add(productId);
+            return true;
+        }
+        // 库存不足，或目录滞后、商品已经分桶，或为热点商品而 Redis 不可用
+        Product product = productMapper.selectById(productId);
+        if (product == null) {
+            return false;
+        }
+        if (product.getHotSold() != null) {
+            throw new IllegalStateException("库存服务繁忙，请稍后再试");
+        }
+        if (product.getBucketCount() != null && product.getBucketCount() > 0) {
+            return Boolean.TRUE.equals(deductFromBuckets(productId, product.getBucketCount(), quantity));
+        }
+        return false;
+    }
+
+    @Override
+    public void release(Long productId, int quantity) {
+        if (productId == null || quantity <= 0) {
+            throw new IllegalArgumentException("商品ID或数量无效");
+        }
+        Long result = executeScript(RELEASE_SCRIPT, productId, quantity);
+        if (result != null && result != -2) {
+            return;
+        }
+        int buckets = bucketCount(productId);
+        if (buckets > 0 && productStockBucketMapper.increaseStock(productId,
+                ThreadLocalRandom.current().nextInt(buckets), quantity) > 0) {
+            dirtyProducts.add(productId);
+            return;
+        }
+        if (productMapper.increaseStock(productId, quantity) > 0) {
+            dirtyProducts.add(productId);
+            return;
+        }
+        // 热点商品而 Redis 不可用，或目录滞后：以数据库中的商品行为准
+        Product product = productMapper.selectById(productId);
+        if (product != null && product.getHotSold() != null) {
+            throw new IllegalStateException("库存服务繁忙，请稍后再试");
+        }
+        if (product != null && product.getBucketCount() != null && product.getBucketCount() > 0
+                && productStockBucketMapper.increaseStock(productId,
+                ThreadLocalRandom.current().nextInt(product.getBucketCount()), quantity) > 0) {
+            dirtyProducts.add(productId);
+            return;
+        }
+        logger.warn("Failed to release stock for product {}, quantity={}", productId, quantity);
+    }
+
+    @Override
+    public void confirmReservation(Long productId, String reservationId) {
+        try {
+            stringRedisTemplate.opsForHash().delete(RESERVATIONS_KEY, productId + ":" + reservationId);
+        } catch (Exception ex) {
+            // 预占记录留在 Redis 中，由对账任务按订单已存在处理
+            logger.warn("Failed to confirm stock reservation {}: {}", reservationId, ex.toString());
+        }
+    }
+
+    @Override
+    public void cancelReservation(Long productId, String reservationId, int quantity) {
+        Long result;
+        try {
+            result = stringRedisTemplate.execute(CANCEL_RESERVATION_SCRIPT, reservationKeys(productId),
+                    productId + ":" + reservationId, String.valueOf(quantity));
+        } catch (Exception ex) {
+            // 预占记录仍在，由对账任务归还
+            logger.warn("Failed to cancel stock reservation {}: {}", reservationId, ex.toString());
+            return;
+        }
+        if (result != null && result == 2) {
+            // 预占后商品已取消热点，已售数量已写回数据库，归还到数据库
+            release(productId, quantity);
+        }
+    }
+
+    @Override
+    public int reconcileReservations(long olderThanMillis, Predicate<String> committed) {
+        Map<Object, Object> entries = stringRedisTemplate.opsForHash().entries(RESERVATIONS_KEY);
+        long deadline = System.currentTimeMillis() - olderThanMillis;
+        int released = 0;
+        for (Map.Entry<Object, Object> entry : entries.entrySet()) {
+            String field = String.valueOf(entry.getKey());
+            String value = String.valueOf(entry.getValue());
+            int fieldSep = field.indexOf(':');
+            int valueSep = value.indexOf(':');
+            if (fieldSep <= 0 || valueSep <= 0) {
+                continue;
+            }
+            if (Long.parseLong(value.substring(valueSep + 1)) > deadline) {
+                continue;
+            }
+            Long productId = Long.valueOf(field.substring(0, fieldSep));
+            String reservationId = field.substring(fieldSep + 1);
+            try {
+                if (committed.test(reservationId)) {
+                    confirmReservation(productId, reservationId);
+                } else {
+                    cancelReservation(productId, reservationId, Integer.parseInt(value.substring(0, valueSep)));
+                    released++;
+                    logger.warn("Released stock of abandoned reservation {}, product={}", reservationId, productId);
+                }
+            } catch (Exception ex) {
+                logger.warn("Failed to reconcile stock reservation {}: {}", reservationId, ex.toString());
+            }
+        }
+        return released;
+    }
+
+    /**
+     * 先在数据库中标记（锁定商品行，之后数据库不再扣减该商品），再按锁定时读到的库存加载到 Redis；
+     * 两步之间的购买请求因两边都不可扣减而快速失败，不会超卖。已是热点商品时补齐 Redis 中缺失的库存
+     */
+    @Override
+    public int markHot(Long productId) {
+        Product product = transactionTemplate.execute(status -> {
+            Product locked = productMapper.selectForUpdate(productId);
+            if (locked == null) {
+                throw new IllegalArgumentException("商品不存在");
+            }
+            if (locked.getBucketCount() != null && locked.getBucketCount() > 0) {
+                throw new IllegalArgumentException("分桶商品不能再标记为 Redis 热点商品");
+            }
+            if (locked.getHotSold() == null) {
+                productMapper.markHot(productId);
+            }
+            return locked;
+        });
+        boolean fresh = product.getHotSold() == null;
+        int stock = product.getStock() == null ? 0 : product.getStock();
+        Long loaded = stringRedisTemplate.execute(LOAD_SCRIPT, hotKeys(productId), String.valueOf(stock),
+                String.valueOf(fresh ? 0 : product.getHotSold()), fresh ? "1" : "0");
+        stringRedisTemplate.opsForSet().add(HOT_IDS_KEY, String.valueOf(productId));
+        productCatalog.onProductChanged(productId);
+        logger.info("Product marked hot: {}, stock={}", productId, loaded);
+        return loaded == null ? stock : loaded.intValue();
+    }
+
+    /**
+     * 先删除 Redis 库存停止售卖，再用一条 UPDATE 写回剩余的已售数量并清除热点标记
+     */
+    @Override
+    public void unmarkHot(Long productId) {
+        Long sold = stringRedisTemplate.execute(UNMARK_SCRIPT, hotKeys(productId));
+        if (productMapper.unmarkHot(productId, sold) == 0) {
+            Product product = productMapper.selectById(productId);
+            if (product != null && product.getHotSold() != null) {
+                driftAlarm("Stock drift on hot product {}: database stock {} cannot cover {} sold in Redis",
+                        productId, product.getStock(), sold == null ? 0 : sold - product.getHotSold());
+                throw new IllegalStateException("热点库存与数据库不一致，请核对库存后重试");
+            }
+        }
+        stringRedisTemplate.delete(HOT_SOLD_KEY + productId);
+        stringRedisTemplate.opsForSet().remove(HOT_IDS_KEY, String.valueOf(productId));
+        flushedSold.remove(productId);
+        productCatalog.onProductChanged(productId);
+        logger.info("Product unmarked hot: {}", productId);
+    }
+
+    @Override
+    public int setStock(Long productId, int target) {
+        if (productId == null) {
+            throw new IllegalArgumentException("商品ID不能为空");
+        }
+        if (target < 0) {
+            throw new IllegalArgumentException("库存不能为负数");
+        }
+        // 锁定商品行后按与当前库存的差值调整：普通商品和分桶商品在事务内完成，热点商品在事务外调整 Redis
+        Product locked = transactionTemplate.execute(status -> {
+            Product product = productMapper.selectForUpdate(productId);
+            if (product == null) {
+                throw new IllegalArgumentException("商品不存在");
+            }
+            if (product.getHotSold() != null) {
+                return product;
+            }
+            int delta = target - (product.getStock() == null ? 0 : product.getStock());
+            if (delta == 0) {
+                return null;
+            }
+            if (product.getBucketCount() == null || product.getBucketCount() == 0) {
+                if (delta > 0) {
+                    productMapper.increaseStock(productId, delta);
+                } else {
+                    productMapper.decreaseStockToZero(productId, -delta);
+                }
+                return null;
+            }
+            // 分桶商品：商品行的库存是各桶之和的展示值，差值加减在锁定的各桶之和上，期间已售出的数量不会被覆盖
+            List<ProductStockBucket> buckets = productStockBucketMapper.selectForUpdate(productId);
+            int total = Math.max(sum(buckets) + delta, 0);
+            rewriteBuckets(buckets, total);
+            Product update = new Product();
+            update.setId(productId);
+            update.setStock(total);
+            productMapper.updateById(update);
+            return null;
+        });
+        if (locked == null) {
+            logger.info("Product stock set: {}, stock={}", productId, target);
+            return target;
+        }
+        int current = locked.getStock() == null ? 0 : locked.getStock();
+        int applied = adjustHotStock(productId, target - current);
+        logger.info("Hot product stock adjusted: {}, delta={}", productId, applied);
+        return Math.max(current + applied, 0);
+    }
+
+    /**
+     * 热点商品：差值先加到 Redis（准确来源，INCRBY 语义，不覆盖期间的售出），再把实际调整量加到数据库
+     * @return 实际调整量（Redis 库存最低到 0）
+     */
+    private int adjustHotStock(Long productId, int delta) {
+        if (delta == 0) {
+            return 0;
+        }
+        Long applied = stringRedisTemplate.execute(ADJUST_SCRIPT,
+                Collections.singletonList(HOT_STOCK_KEY + productId), String.valueOf(delta));
+        if (applied == null) {
+            throw new IllegalStateException("热点库存尚未加载，请重新标记热点后再修改库存");
+        }
+        try {
+            if (productMapper.adjustHotStock(productId, applied.intValue()) == 0) {
+                driftAlarm("Hot stock of product {} adjusted by {} in Redis, but product is no longer hot",
+                        productId, applied);
+            }
+        } catch (RuntimeException ex) {
+            driftAlarm("Hot stock of product {} adjusted by {} in Redis, database update failed: {}",
+                    productId, applied, ex.toString());
+            throw ex;
+        }
+        return applied.intValue();
+    }
+
+    @Override
+    public void splitStock(Long productId, int bucketCount) {
+        if (bucketCount <= 0) {
+            throw new IllegalArgumentException("分桶数必须大于0");
+        }
+        redistribute(productId, bucketCount);
+        logger.info("Product stock split: {}, buckets={}", productId, bucketCount);
+    }
+
+    @Override
+    public void mergeStock(Long productId) {
+        transactionTemplate.executeWithoutResult(status -> {
+            Product product = productMapper.selectForUpdate(productId);
+            if (product == null) {
+                throw new IllegalArgumentException("商品不存在");
+            }
+            int total = sum(productStockBucketMapper.selectForUpdate(productId));
+            productStockBucketMapper.delete(new QueryWrapper<ProductStockBucket>().eq("product_id", productId));
+            Product update = new Product();
+            update.setId(productId);
+            update.setStock(total);
+            update.setBucketCount(0);
+            productMapper.updateById(update);
+        });
+        productCatalog.onProductChanged(productId);
+        logger.info("Product stock merged: {}", productId);
+    }
+
+    /**
+     * 重新分桶：总量取现有分桶之和（未分桶时取商品库存），平均分配到 bucketCount 个桶
+     */
+    private void redistribute(Long productId, int bucketCount) {
+        transactionTemplate.executeWithoutResult(status -> {
+            Product product = productMapper.selectForUpdate(productId);
+            if (product == null) {
+                throw new IllegalArgumentException("商品不存在");
+            }
+            if (product.getHotSold() != null) {
+                throw new IllegalArgumentException("Redis 热点商品不能再分桶，请先取消热点标记");
+            }
+            List<ProductStockBucket> existing = productStockBucketMapper.selectForUpdate(productId);
+            int amount;
+            if (existing.isEmpty()) {
+                amount = product.getStock() == null ? 0 : product.getStock();
+            } else {
+                amount = sum(existing);
+            }
+            productStockBucketMapper.delete(new QueryWrapper<ProductStockBucket>().eq("product_id", productId));
+            for (int i = 0; i < bucketCount; i++) {
+                ProductStockBucket bucket = new ProductStockBucket();
+                bucket.setProductId(productId);
+                bucket.setBucketNo(i);
+                bucket.setStock(share(amount, bucketCount, i));
+                productStockBucketMapper.insert(bucket);
+            }
+            Product update = new Product();
+            update.setId(productId);
+            update.setStock(amount);
+            update.setBucketCount(bucketCount);
+            productMapper.updateById(update);
+        });
+        productCatalog.onProductChanged(productId);
+    }
+
+    /**
+     * 从随机桶开始依次尝试条件扣减；所有桶单独都不够时，锁定全部桶合并扣减并重新均衡
+     * @return 是否扣减成功；商品已没有分桶（已合并）时返回 null
+     */
+    private Boolean deductFromBuckets(Long productId, int buckets, int quantity) {
+        int start = ThreadLocalRandom.current().nextInt(buckets);
+        for (int i = 0; i < buckets; i++) {
+            if (productStockBucketMapper.decreaseStock(productId, (start + i) % buckets, quantity) > 0) {
+                dirtyProducts.add(productId);
+                return true;
+            }
+        }
+        Boolean deducted = transactionTemplate.execute(status -> {
+            List<ProductStockBucket> locked = productStockBucketMapper.selectForUpdate(productId);
+            if (locked.isEmpty()) {
+                return null;
+            }
+            int total = sum(locked);
+            if (total < quantity) {
+                return false;
+            }
+            rewriteBuckets(locked, total - quantity);
+            return true;
+        });
+        if (Boolean.TRUE.equals(deducted)) {
+            dirtyProducts.add(productId);
+        }
+        return deducted;
+    }
+
+    /**
+     * 将 total 平均写回已锁定的各桶
+     */
+    private void rewriteBuckets(List<ProductStockBucket> locked, int total) {
+        for (ProductStockBucket bucket : locked) {
+            int target = share(total, locked.size(), bucket.getBucketNo() % locked.size());
+            if (bucket.getStock() == null || bucket.getStock() != target) {
+                bucket.setStock(target);
+                productStockBucketMapper.updateById(bucket);
+            }
+        }
+    }
+
+    private int bucketCount(Long productId) {
+        Product product = productCatalog.get(productId);
+        return product == null || product.getBucketCount() == null ? 0 : product.getBucketCount();
+    }
+
+    private static int sum(List<ProductStockBucket> buckets) {
+        int total = 0;
+        for (ProductStockBucket bucket : buckets) {
+            total += bucket.getStock() == null ? 0 : bucket.getStock();
+        }
+        return total;
+    }
+
+    /**
+     * 将 total 平均分成 n 份，余数分给编号靠前的桶
+     */
+    private static int share(int total, int n, int index) {
+        return total / n + (index < total % n ? 1 : 0);
+    }
+
+    /**
+     * 定时将热点商品的已售数量写回数据库，汇总分桶库存（SQL 只更新已分桶的商品），并刷新商品目录中的库存
+     */
+    @Scheduled(fixedDelayString = "${inventory.flush-interval-ms:200}")
+    public void flushPending() {
+        Set<String> hotIds;
+        try {
+            hotIds = stringRedisTemplate.opsForSet().members(HOT_IDS_KEY);
+        } catch (Exception ex) {
+            logger.warn("Failed to read hot product ids: {}", ex.toString());
+            hotIds = Collections.emptySet();
+        }
+        for (String id : hotIds == null ? Collections.<String>emptySet() : hotIds) {
+            try {
+                flush(Long.valueOf(id));
+            } catch (Exception ex) {
+                // 累计值仍在 Redis 中，下次重试
+                flushFailures.incrementAndGet();
+                logger.error("Failed to flush stock for product {}: {}", id, ex.toString(), ex);
+            }
+        }
+        for (Long productId : dirtyProducts) {
+            dirtyProducts.remove(productId);
+            try {
+                productMapper.refreshStockFromBuckets(productId);
+                productCatalog.onProductChanged(productId);
+            } catch (Exception ex) {
+                logger.warn("Failed to refresh catalog for product {}: {}", productId, ex.toString());
+            }
+        }
+    }
+
+    /**
+     * 按 Redis 中的累计已售数量与数据库中已写回的累计值之差扣减数据库库存；
+     * 重复执行、多个节点同时执行或节点重启后执行都不会重复扣减。数据库库存不够扣时告警，不做修正
+     */
+    private void flush(Long productId) {
+        String value = stringRedisTemplate.opsForValue().get(HOT_SOLD_KEY + productId);
+        if (value == null) {
+            return;
+        }
+        long sold = Long.parseLong(value);
+        if (Long.valueOf(sold).equals(flushedSold.get(productId))) {
+            return;
+        }
+        if (productMapper.applyHotSold(productId, sold) > 0) {
+            flushedSold.put(productId, sold);
+            dirtyProducts.add(productId);
+            return;
+        }
+        Product product = productMapper.selectById(productId);
+        if (product == null || product.getHotSold() == null) {
+            // 已取消热点标记（或商品已删除）
+            flushedSold.remove(productId);
+            stringRedisTemplate.opsForSet().remove(HOT_IDS_KEY, String.valueOf(productId));
+            return;
+        }
+        if (product.getHotSold() == sold) {
+            flushedSold.put(productId, sold);
+            return;
+        }
+        driftAlarm("Stock drift on hot product {}: database stock {} cannot cover {} sold in Redis",
+                productId, product.getStock(), sold - product.getHotSold());
+    }
+
+    private void driftAlarm(String message, Object... args) {
+        driftAlarms.incrementAndGet();
+        logger.error(message, args);
+    }
+
+    @Override
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("driftAlarms", driftAlarms.get());
+        stats.put("flushFailures", flushFailures.get());
+        stats.put("pendingCatalogRefresh", dirtyProducts.size());
+        return stats;
+    }
+
+    private static List<String> hotKeys(Long productId) {
+        return Arrays.asList(HOT_STOCK_KEY + productId, HOT_SOLD_KEY + productId);
+    }
+
+    private static List<String> reservationKeys(Long productId) {
+        return Arrays.asList(HOT_STOCK_KEY + productId, HOT_SOLD_KEY + productId, RESERVATIONS_KEY);
+    }
+
+    private Long executeScript(DefaultRedisScript<Long> script, Long productId, int quantity) {
+        try {
+            return stringRedisTemplate.execute(script, hotKeys(productId), String.valueOf(quantity));
+        } catch (Exception ex) {
+            logger.warn("Redis stock script failed, checking database: {}", ex.toString());
+            return null;
+        }
+    }
+}
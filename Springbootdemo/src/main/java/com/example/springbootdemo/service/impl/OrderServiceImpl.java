@@ -0,0 +1,152 @@
+package com.example.springbootdemo.service.impl;
+
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.update.UpdateWrapper;
+import com.example.springbootdemo.entity.Order;
+import com.example.springbootdemo.entity.Product;
+import com.example.springbootdemo.mapper.OrderMapper;
+import com.example.springbootdemo.service.InventoryService;
+import com.example.springbootdemo.service.OrderService;
+import com.example.springbootdemo.service.ProductService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * 订单服务实现类
+ * 扣减库存和写订单在同一事务内：数据库中的扣减（条件更新 / 分桶）随订单一起提交或回滚；
+ * 热点商品在 Redis 中扣减并记录预占（预占ID 写在订单上），提交后确认，失败时归还，
+ * 进程在两者之间崩溃时由定时对账任务按订单是否存在确认或归还。
+ */
+@Service
+public class OrderServiceImpl implements OrderService {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderServiceImpl.class);
+
+    private final OrderMapper orderMapper;
+    private final ProductService productService;
+    private final InventoryService inventoryService;
+    private final TransactionTemplate transactionTemplate;
+
+    /** 预占超过该时长仍未确认才对账，需远大于下单事务的最长耗时 */
+    @Value("${order.reservation.timeout-ms:60000}")
+    private long reservationTimeoutMillis;
+
+    public OrderServiceImpl(OrderMapper orderMapper, ProductService productService, InventoryService inventoryService,
+                            TransactionTemplate transactionTemplate) {
+        this.orderMapper = orderMapper;
+        this.productService = productService;
+        this.inventoryService = inventoryService;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    @Override
+    public Order createOrder(Long userId, Long productId, int quantity) {
+        if (userId == null) {
+            throw new IllegalArgumentException("请先登录");
+        }
+        if (quantity <= 0) {
+            throw new IllegalArgumentException("购买数量必须大于0");
+        }
+        Product product = productService.getOnShelfProductById(productId);
+        if (product == null) {
+            throw new IllegalArgumentException("商品不存在或未上架");
+        }
+        // 先校验价格再扣库存，避免扣减后因价格缺失失败而没有归还
+        if (product.getPrice() == null || product.getPrice().signum() < 0) {
+            throw new IllegalStateException("商品价格未设置，暂不可购买");
+        }
+        String reservationId = UUID.randomUUID().toString();
+        Order order = new Order();
+        order.setUserId(userId);
+        order.setProductId(productId);
+        order.setQuantity(quantity);
+        order.setUnitPrice(product.getPrice());
+        order.setTotalAmount(product.getPrice().multiply(BigDecimal.valueOf(quantity)));
+        order.setStatus(0);
+        order.setCreateTime(LocalDateTime.now());
+        order.setUpdateTime(LocalDateTime.now());
+        order.setReservationId(reservationId);
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                if (!inventoryService.deduct(productId, quantity, reservationId)) {
+                    throw new IllegalArgumentException("库存不足");
+                }
+                orderMapper.insert(order);
+            });
+        } catch (RuntimeException ex) {
+            // 数据库中的扣减已回滚；热点商品的预占在此归还（没有预占时不做任何事）
+            inventoryService.cancelReservation(productId, reservationId, quantity);
+            if (ex instanceof IllegalArgumentException || ex instanceof IllegalStateException) {
+                throw ex;
+            }
+            logger.error("Failed to create order, stock reservation cancelled: {}", ex.toString(), ex);
+            throw new RuntimeException("创建订单失败", ex);
+        }
+        inventoryService.confirmReservation(productId, reservationId);
+        logger.info("Created order: {}, product={}, quantity={}", order.getId(), productId, quantity);
+        return order;
+    }
+
+    /**
+     * 对账热点商品的库存预占：超时仍未确认的，订单已写入则确认，否则归还库存（写订单前进程崩溃或超时）
+     */
+    @Scheduled(fixedDelayString = "${order.reservation.check-interval-ms:30000}")
+    public void reconcileReservations() {
+        try {
+            int released = inventoryService.reconcileReservations(reservationTimeoutMillis,
+                    reservationId -> orderMapper.selectCount(
+                            new QueryWrapper<Order>().eq("reservation_id", reservationId)) > 0);
+            if (released > 0) {
+                logger.warn("Released {} abandoned stock reservations", released);
+            }
+        } catch (Exception ex) {
+            logger.warn("Failed to reconcile stock reservations: {}", ex.toString());
+        }
+    }
+
+    @Override
+    public List<Order> getOrdersByUser(Long userId) {
+        QueryWrapper<Order> queryWrapper = new QueryWrapper<>();
+        queryWrapper.eq("user_id", userId)
+                   .orderByDesc("create_time");
+        return orderMapper.selectList(queryWrapper);
+    }
+
+    @Override
+    public boolean cancelOrder(Long orderId, Long userId) {
+        Order order = orderMapper.selectById(orderId);
+        if (order == null || !order.getUserId().equals(userId)) {
+            throw new IllegalArgumentException("订单不存在");
+        }
+        // 条件更新保证同一订单只会归还一次库存
+        int rows = orderMapper.update(null, new UpdateWrapper<Order>()
+                .set("status", 1)
+                .set("update_time", LocalDateTime.now())
+                .eq("id", orderId)
+                .eq("status", 0));
+        if (rows == 0) {
+            return false;
+        }
+        try {
+            inventoryService.release(order.getProductId(), order.getQuantity());
+        } catch (RuntimeException ex) {
+            // 热点库存暂不可用时库存未归还，恢复订单状态，稍后可再次取消
+            orderMapper.update(null, new UpdateWrapper<Order>()
+                    .set("status", 0)
+                    .eq("id", orderId)
+                    .eq("status", 1));
+            throw ex;
+        }
+        logger.info("Cancelled order: {}", orderId);
+        return true;
+    }
+}
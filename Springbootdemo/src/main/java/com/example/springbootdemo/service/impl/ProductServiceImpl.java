@@ -1,16 +1,20 @@
 package com.example.springbootdemo.service.impl;
 
-import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.update.UpdateWrapper;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.example.springbootdemo.entity.Product;
 import com.example.springbootdemo.mapper.ProductMapper;
+import com.example.springbootdemo.service.InventoryService;
+import com.example.springbootdemo.service.ProductCatalog;
 import com.example.springbootdemo.service.ProductService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
+import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Objects;
 
 /**
  * 商品服务实现类
@@ -19,10 +23,17 @@ import java.util.List;
 public class ProductServiceImpl implements ProductService {
 
     private final ProductMapper productMapper;
+    private final ProductCatalog productCatalog;
+    private final InventoryService inventoryService;
     private static final Logger logger = LoggerFactory.getLogger(ProductServiceImpl.class);
 
-    public ProductServiceImpl(ProductMapper productMapper) {
+    /** 单条 IN 语句最多包含的 ID 数 */
+    private static final int BATCH_STATUS_CHUNK = 1000;
+
+    public ProductServiceImpl(ProductMapper productMapper, ProductCatalog productCatalog, InventoryService inventoryService) {
         this.productMapper = productMapper;
+        this.productCatalog = productCatalog;
+        this.inventoryService = inventoryService;
     }
 
     @Override
@@ -34,9 +45,14 @@ public class ProductServiceImpl implements ProductService {
         if (product.getStock() == null) {
             product.setStock(0);
         }
+        // 分桶、热点只能通过库存接口设置
+        product.setBucketCount(0);
+        product.setHotSold(null);
+        product.setVersion(0);
         try {
             productMapper.insert(product);
             logger.info("Created product: {}", product.getId());
+            productCatalog.onProductChanged(product);
             return product;
         } catch (Exception ex) {
             logger.error("Failed to create product: {}", ex.toString(), ex);
@@ -49,18 +65,83 @@ public class ProductServiceImpl implements ProductService {
         if (product.getId() == null) {
             throw new IllegalArgumentException("商品ID不能为空");
         }
-        Product existingProduct = productMapper.selectById(product.getId());
-        if (existingProduct == null) {
-            throw new IllegalArgumentException("商品不存在");
+        // 分桶数、热点标记只能通过库存接口修改，创建时间不允许修改
+        product.setBucketCount(null);
+        product.setHotSold(null);
+        product.setCreateTime(null);
+        if (product.getName() == null && product.getPrice() == null && product.getStock() == null
+                && product.getStatus() == null && product.getVersion() == null) {
+            throw new IllegalArgumentException("没有需要更新的字段");
+        }
+        // 库存不随其他字段写入：由库存服务锁定商品行后按差值调整，避免覆盖期间售出的数量
+        Integer targetStock = product.getStock();
+        product.setStock(null);
+        if (targetStock != null && targetStock < 0) {
+            throw new IllegalArgumentException("库存不能为负数");
         }
+        int rows;
         try {
-            productMapper.updateById(product);
-            logger.info("Updated product: {}", product.getId());
-            return productMapper.selectById(product.getId());
+            // 只更新非空字段；携带 version 时由乐观锁插件追加版本条件，成功后 version 回填为新版本；
+            // 未携带时直接递增版本
+            if (product.getVersion() != null) {
+                rows = productMapper.updateById(product);
+            } else {
+                rows = productMapper.update(product,
+                        new UpdateWrapper<Product>().eq("id", product.getId()).setSql("version = version + 1"));
+            }
         } catch (Exception ex) {
             logger.error("Failed to update product: {}", ex.toString(), ex);
             throw new RuntimeException("更新商品失败", ex);
         }
+        if (rows == 0) {
+            // 仅在失败时读取一次，区分商品不存在与版本冲突
+            if (productMapper.selectById(product.getId()) == null) {
+                throw new IllegalArgumentException("商品不存在");
+            }
+            throw new IllegalStateException("商品已被其他人修改，请刷新后重试");
+        }
+        logger.info("Updated product: {}", product.getId());
+        if (targetStock != null) {
+            product.setStock(inventoryService.setStock(product.getId(), targetStock));
+        }
+
+        Product cached = productCatalog.get(product.getId());
+        if (cached != null) {
+            // 目录中已有完整数据，合并本次修改即为更新后的商品，无需重新读取
+            Product merged = merge(cached, product);
+            productCatalog.onProductChanged(merged);
+            return merged;
+        }
+        if (Integer.valueOf(1).equals(product.getStatus())) {
+            // 未在目录中的商品被上架，目录需要完整数据
+            productCatalog.onProductChanged(product.getId());
+            Product loaded = productCatalog.get(product.getId());
+            if (loaded != null) {
+                return loaded;
+            }
+        }
+        return product;
+    }
+
+    /**
+     * 将修改的非空字段合并到目录中的只读商品副本上；未携带 version 时新版本为目录中的版本加一
+     */
+    private static Product merge(Product base, Product changes) {
+        Product merged = new Product();
+        merged.setId(base.getId());
+        merged.setName(changes.getName() != null ? changes.getName() : base.getName());
+        merged.setPrice(changes.getPrice() != null ? changes.getPrice() : base.getPrice());
+        merged.setStock(changes.getStock() != null ? changes.getStock() : base.getStock());
+        merged.setStatus(changes.getStatus() != null ? changes.getStatus() : base.getStatus());
+        merged.setBucketCount(base.getBucketCount());
+        merged.setHotSold(base.getHotSold());
+        if (changes.getVersion() != null) {
+            merged.setVersion(changes.getVersion());
+        } else if (base.getVersion() != null) {
+            merged.setVersion(base.getVersion() + 1);
+        }
+        merged.setCreateTime(base.getCreateTime());
+        return merged;
     }
 
     @Override
@@ -68,6 +149,9 @@ public class ProductServiceImpl implements ProductService {
         try {
             int rows = productMapper.deleteById(id);
             logger.info("Deleted product: {}, rows={}", id, rows);
+            if (rows > 0) {
+                productCatalog.onProductDeleted(id);
+            }
             return rows > 0;
         } catch (Exception ex) {
             logger.error("Failed to delete product: {}", ex.toString(), ex);
@@ -108,44 +192,69 @@ public class ProductServiceImpl implements ProductService {
 
     @Override
     public boolean onShelf(Long id) {
-        Product product = productMapper.selectById(id);
-        if (product == null) {
-            throw new IllegalArgumentException("商品不存在");
-        }
-        product.setStatus(1);
+        int rows = updateStatus(id, 1);
+        logger.info("Product on shelf: {}, rows={}", id, rows);
+        // 上架需要完整数据放入目录
+        productCatalog.onProductChanged(id);
+        return rows > 0;
+    }
+
+    @Override
+    public boolean offShelf(Long id) {
+        int rows = updateStatus(id, 0);
+        logger.info("Product off shelf: {}, rows={}", id, rows);
+        Product removed = new Product();
+        removed.setId(id);
+        removed.setStatus(0);
+        productCatalog.onProductChanged(removed);
+        return rows > 0;
+    }
+
+    /**
+     * 只更新状态列（并递增版本），不回写库存等其他字段，避免覆盖并发扣减的库存
+     */
+    private int updateStatus(Long id, int status) {
+        int rows;
         try {
-            int rows = productMapper.updateById(product);
-            logger.info("Product on shelf: {}, rows={}", id, rows);
-            return rows > 0;
+            rows = productMapper.updateStatus(id, status);
         } catch (Exception ex) {
-            logger.error("Failed to put product on shelf: {}", ex.toString(), ex);
-            return false;
+            logger.error("Failed to update product status: {}", ex.toString(), ex);
+            return 0;
         }
+        if (rows == 0) {
+            throw new IllegalArgumentException("商品不存在");
+        }
+        return rows;
     }
 
     @Override
-    public boolean offShelf(Long id) {
-        Product product = productMapper.selectById(id);
-        if (product == null) {
-            throw new IllegalArgumentException("商品不存在");
+    public int batchUpdateStatus(List<Long> ids, int status) {
+        if (ids == null || ids.isEmpty()) {
+            return 0;
         }
-        product.setStatus(0);
+        List<Long> distinct = ids.stream().filter(Objects::nonNull).distinct().toList();
+        int rows = 0;
         try {
-            int rows = productMapper.updateById(product);
-            logger.info("Product off shelf: {}, rows={}", id, rows);
-            return rows > 0;
+            for (int from = 0; from < distinct.size(); from += BATCH_STATUS_CHUNK) {
+                List<Long> chunk = distinct.subList(from, Math.min(from + BATCH_STATUS_CHUNK, distinct.size()));
+                rows += productMapper.updateStatusBatch(chunk, status);
+            }
         } catch (Exception ex) {
-            logger.error("Failed to take product off shelf: {}", ex.toString(), ex);
-            return false;
+            logger.error("Failed to batch update product status: {}", ex.toString(), ex);
+            throw new RuntimeException("批量修改商品状态失败", ex);
+        } finally {
+            // 无论成功多少，都以数据库为准重建目录
+            productCatalog.onProductsChanged();
         }
+        logger.info("Batch updated product status to {}: {} ids, rows={}", status, distinct.size(), rows);
+        return rows;
     }
 
     @Override
     public List<Product> getOnShelfProducts() {
         try {
-            QueryWrapper<Product> queryWrapper = new QueryWrapper<>();
-            queryWrapper.eq("status", 1);
-            return productMapper.selectList(queryWrapper);
+            // 直接读取内存中的上架商品快照，不访问数据库
+            return productCatalog.list();
         } catch (Exception ex) {
             logger.error("Failed to get on-shelf products: {}", ex.toString(), ex);
             throw new RuntimeException("获取上架商品列表失败", ex);
@@ -155,13 +264,36 @@ public class ProductServiceImpl implements ProductService {
     @Override
     public Page<Product> getOnShelfProductsByPage(Integer pageNum, Integer pageSize) {
         try {
-            Page<Product> page = new Page<>(pageNum, pageSize);
-            QueryWrapper<Product> queryWrapper = new QueryWrapper<>();
-            queryWrapper.eq("status", 1);
-            return productMapper.selectPage(page, queryWrapper);
+            List<Product> all = productCatalog.list();
+            Page<Product> page = new Page<>(pageNum, pageSize, all.size());
+            int from = (int) Math.min((long) Math.max(pageNum - 1, 0) * pageSize, all.size());
+            int to = Math.min(from + pageSize, all.size());
+            page.setRecords(all.subList(from, to));
+            return page;
         } catch (Exception ex) {
             logger.error("Failed to get on-shelf products by page: {}", ex.toString(), ex);
             throw new RuntimeException("分页查询上架商品失败", ex);
         }
     }
+
+    @Override
+    public Product getOnShelfProductById(Long id) {
+        return productCatalog.get(id);
+    }
+
+    @Override
+    public Page<Product> searchOnShelfProducts(String keyword, BigDecimal minPrice, BigDecimal maxPrice,
+                                               String sort, String order, Integer pageNum, Integer pageSize) {
+        try {
+            List<Product> hits = productCatalog.search(keyword, minPrice, maxPrice, sort, !"desc".equalsIgnoreCase(order));
+            Page<Product> page = new Page<>(pageNum, pageSize, hits.size());
+            int from = (int) Math.min((long) Math.max(pageNum - 1, 0) * pageSize, hits.size());
+            int to = Math.min(from + pageSize, hits.size());
+            page.setRecords(hits.subList(from, to));
+            return page;
+        } catch (Exception ex) {
+            logger.error("Failed to search products: {}", ex.toString(), ex);
+            throw new RuntimeException("搜索商品失败", ex);
+        }
+    }
 }
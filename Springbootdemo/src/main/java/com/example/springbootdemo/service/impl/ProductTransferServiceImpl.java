@@ -0,0 +1,385 @@
+package com.example.springbootdemo.service.impl;
+
+import com.example.springbootdemo.entity.Product;
+import com.example.springbootdemo.mapper.ProductMapper;
+import com.example.springbootdemo.service.ProductCatalog;
+import com.example.springbootdemo.service.ProductTransferService;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 商品批量导入导出服务实现类
+ * 导入：边解析边通过 BATCH 执行器插入，每 batch-size 行提交一次（配合连接串 rewriteBatchedStatements 合并为多值 INSERT）；
+ * 导出：MyBatis Cursor 流式读取，逐行写出
+ */
+@Service
+public class ProductTransferServiceImpl implements ProductTransferService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductTransferServiceImpl.class);
+
+    private static final int MAX_ERRORS = 100;
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private final SqlSessionFactory sqlSessionFactory;
+    private final ProductMapper productMapper;
+    private final ProductCatalog productCatalog;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate readOnlyTransaction;
+
+    @Value("${product.import.batch-size:1000}")
+    private int batchSize;
+
+    public ProductTransferServiceImpl(SqlSessionFactory sqlSessionFactory, ProductMapper productMapper,
+                                      ProductCatalog productCatalog, ObjectMapper objectMapper,
+                                      TransactionTemplate transactionTemplate) {
+        this.sqlSessionFactory = sqlSessionFactory;
+        this.productMapper = productMapper;
+        this.productCatalog = productCatalog;
+        this.objectMapper = objectMapper;
+        this.readOnlyTransaction = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    @Override
+    public Map<String, Object> importProducts(InputStream in, String format) throws IOException {
+        boolean json = isJson(format);
+        ImportContext ctx = new ImportContext();
+        try (SqlSession session = sqlSessionFactory.openSession(ExecutorType.BATCH, false)) {
+            ctx.session = session;
+            ctx.mapper = session.getMapper(ProductMapper.class);
+            if (json) {
+                readJson(in, ctx);
+            } else {
+                readCsv(in, ctx);
+            }
+            ctx.commit();
+        } catch (IllegalArgumentException ex) {
+            throw ex;
+        } catch (RuntimeException ex) {
+            logger.error("Product import aborted after {} rows: {}", ctx.imported, ex.toString(), ex);
+            throw new RuntimeException("导入中断，已导入 " + ctx.imported + " 条: " + ex.getMessage(), ex);
+        } finally {
+            if (ctx.imported > 0 && ctx.onShelf) {
+                productCatalog.onProductsChanged();
+            }
+        }
+        logger.info("Imported products: imported={}, skipped={}", ctx.imported, ctx.skipped);
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("imported", ctx.imported);
+        result.put("skipped", ctx.skipped);
+        result.put("errors", ctx.errors);
+        return result;
+    }
+
+    private void readCsv(InputStream in, ImportContext ctx) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        String headerLine = reader.readLine();
+        if (headerLine == null) {
+            return;
+        }
+        if (headerLine.startsWith("\uFEFF")) {
+            // Excel 导出的 UTF-8 BOM
+            headerLine = headerLine.substring(1);
+        }
+        List<String> header = parseCsvLine(headerLine);
+        int nameIdx = indexOf(header, "name");
+        int priceIdx = indexOf(header, "price");
+        int stockIdx = indexOf(header, "stock");
+        int statusIdx = indexOf(header, "status");
+        if (nameIdx < 0 || priceIdx < 0) {
+            throw new IllegalArgumentException("CSV 表头必须包含 name 和 price 列");
+        }
+
+        String line;
+        int lineNo = 1;
+        while ((line = reader.readLine()) != null) {
+            lineNo++;
+            if (line.isBlank()) {
+                continue;
+            }
+            List<String> cols = parseCsvLine(line);
+            try {
+                Product product = new Product();
+                product.setName(column(cols, nameIdx));
+                String price = column(cols, priceIdx);
+                product.setPrice(price == null ? null : new BigDecimal(price));
+                String stock = column(cols, stockIdx);
+                product.setStock(stock == null ? null : Integer.valueOf(stock));
+                String status = column(cols, statusIdx);
+                product.setStatus(status == null ? null : Integer.valueOf(status));
+                ctx.accept(lineNo, product);
+            } catch (NumberFormatException e) {
+                ctx.reject(lineNo, "数字格式错误");
+            }
+        }
+    }
+
+    private void readJson(InputStream in, ImportContext ctx) throws IOException {
+        try (JsonParser parser = objectMapper.getFactory().createParser(in)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new IllegalArgumentException("JSON 内容必须是商品数组");
+            }
+            int index = 0;
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                index++;
+                JsonNode node = parser.readValueAsTree();
+                try {
+                    Product product = new Product();
+                    product.setName(text(node, "name"));
+                    String price = text(node, "price");
+                    product.setPrice(price == null ? null : new BigDecimal(price));
+                    String stock = text(node, "stock");
+                    product.setStock(stock == null ? null : Integer.valueOf(stock));
+                    String status = text(node, "status");
+                    product.setStatus(status == null ? null : Integer.valueOf(status));
+                    ctx.accept(index, product);
+                } catch (NumberFormatException e) {
+                    ctx.reject(index, "数字格式错误");
+                }
+            }
+        }
+    }
+
+    @Override
+    public void exportProducts(OutputStream out, String format) throws IOException {
+        boolean json = isJson(format);
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        // Cursor 需要在同一个连接上遍历完，放在只读事务内
+        readOnlyTransaction.executeWithoutResult(status -> {
+            try (Cursor<Product> cursor = productMapper.scanAll()) {
+                if (json) {
+                    writeJson(cursor, writer);
+                } else {
+                    writeCsv(cursor, writer);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        writer.flush();
+    }
+
+    private void writeCsv(Cursor<Product> cursor, Writer writer) throws IOException {
+        writer.write("id,name,price,stock,status,createTime\n");
+        for (Product p : cursor) {
+            writer.write(String.valueOf(p.getId()));
+            writer.write(',');
+            writer.write(csvField(p.getName()));
+            writer.write(',');
+            writer.write(p.getPrice() == null ? "" : p.getPrice().toPlainString());
+            writer.write(',');
+            writer.write(p.getStock() == null ? "" : p.getStock().toString());
+            writer.write(',');
+            writer.write(p.getStatus() == null ? "" : p.getStatus().toString());
+            writer.write(',');
+            writer.write(p.getCreateTime() == null ? "" : p.getCreateTime().format(TIME_FORMAT));
+            writer.write('\n');
+        }
+    }
+
+    private void writeJson(Cursor<Product> cursor, Writer writer) throws IOException {
+        JsonGenerator gen = objectMapper.getFactory().createGenerator(writer);
+        gen.writeStartArray();
+        for (Product p : cursor) {
+            gen.writeStartObject();
+            gen.writeNumberField("id", p.getId());
+            gen.writeStringField("name", p.getName());
+            if (p.getPrice() != null) {
+                gen.writeNumberField("price", p.getPrice());
+            }
+            if (p.getStock() != null) {
+                gen.writeNumberField("stock", p.getStock());
+            }
+            if (p.getStatus() != null) {
+                gen.writeNumberField("status", p.getStatus());
+            }
+            if (p.getCreateTime() != null) {
+                gen.writeStringField("createTime", p.getCreateTime().format(TIME_FORMAT));
+            }
+            gen.writeEndObject();
+        }
+        gen.writeEndArray();
+        gen.flush();
+    }
+
+    private static boolean isJson(String format) {
+        if (format == null || "csv".equalsIgnoreCase(format)) {
+            return false;
+        }
+        if ("json".equalsIgnoreCase(format)) {
+            return true;
+        }
+        throw new IllegalArgumentException("不支持的格式: " + format);
+    }
+
+    private static int indexOf(List<String> header, String name) {
+        for (int i = 0; i < header.size(); i++) {
+            if (header.get(i).trim().toLowerCase(Locale.ROOT).equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static String column(List<String> cols, int index) {
+        if (index < 0 || index >= cols.size()) {
+            return null;
+        }
+        String value = cols.get(index).trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    private static String text(JsonNode node, String field) {
+        JsonNode value = node.get(field);
+        if (value == null || value.isNull()) {
+            return null;
+        }
+        String text = value.asText().trim();
+        return text.isEmpty() ? null : text;
+    }
+
+    /**
+     * 解析一行 CSV，支持双引号包裹和 "" 转义（不支持字段内换行）
+     */
+    private static List<String> parseCsvLine(String line) {
+        List<String> cols = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"') {
+                    if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                        current.append('"');
+                        i++;
+                    } else {
+                        quoted = false;
+                    }
+                } else {
+                    current.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                cols.add(current.toString());
+                current.setLength(0);
+            } else {
+                current.append(c);
+            }
+        }
+        cols.add(current.toString());
+        return cols;
+    }
+
+    private static String csvField(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') >= 0 || value.indexOf('"') >= 0 || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0) {
+            return "\"" + value.replace("\"", "\"\"") + "\"";
+        }
+        return value;
+    }
+
+    /**
+     * 单次导入的状态：校验、攒批插入和统计
+     */
+    private final class ImportContext {
+        SqlSession session;
+        ProductMapper mapper;
+        int pending;
+        int imported;
+        int skipped;
+        boolean onShelf;
+        final List<String> errors = new ArrayList<>();
+
+        void accept(int row, Product product) {
+            String error = validate(product);
+            if (error != null) {
+                reject(row, error);
+                return;
+            }
+            if (product.getStock() == null) {
+                product.setStock(0);
+            }
+            if (product.getStatus() == null) {
+                product.setStatus(0);
+            }
+            product.setBucketCount(0);
+            product.setVersion(0);
+            product.setCreateTime(LocalDateTime.now());
+            onShelf |= product.getStatus() == 1;
+            mapper.insert(product);
+            if (++pending >= batchSize) {
+                commit();
+            }
+        }
+
+        void reject(int row, String message) {
+            skipped++;
+            if (errors.size() < MAX_ERRORS) {
+                errors.add("第 " + row + " 条: " + message);
+            }
+        }
+
+        void commit() {
+            if (pending == 0) {
+                return;
+            }
+            session.commit();
+            imported += pending;
+            pending = 0;
+        }
+
+        private String validate(Product product) {
+            if (product.getName() == null || product.getName().isBlank()) {
+                return "商品名称不能为空";
+            }
+            if (product.getName().length() > 255) {
+                return "商品名称过长";
+            }
+            if (product.getPrice() == null || product.getPrice().signum() < 0) {
+                return "商品价格不能为空或负数";
+            }
+            if (product.getStock() != null && product.getStock() < 0) {
+                return "库存不能为负数";
+            }
+            if (product.getStatus() != null && product.getStatus() != 0 && product.getStatus() != 1) {
+                return "状态只能为 0 或 1";
+            }
+            return null;
+        }
+    }
+}
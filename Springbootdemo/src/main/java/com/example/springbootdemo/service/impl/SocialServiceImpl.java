@@ -7,11 +7,11 @@ import com.example.springbootdemo.entity.Message;
 import com.example.springbootdemo.mapper.FriendMapper;
 import com.example.springbootdemo.mapper.FriendRequestMapper;
 import com.example.springbootdemo.mapper.MessageMapper;
+import com.example.springbootdemo.service.CacheInvalidationBus;
+import com.example.springbootdemo.service.CacheInvalidationEvent;
 import com.example.springbootdemo.service.SocialService;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
-import org.springframework.cache.annotation.Caching;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -34,7 +34,11 @@ public class SocialServiceImpl implements SocialService {
     private MessageMapper messageMapper;
     
     @Autowired
-    private com.example.springbootdemo.mapper.UserMapper userMapper;    @Override
+    private com.example.springbootdemo.mapper.UserMapper userMapper;
+
+    @Autowired
+    private CacheInvalidationBus cacheInvalidationBus;
+    @Override
     @Transactional
     public void sendFriendRequestByUsername(Long fromUserId, String toUsername) {
         if (toUsername == null || toUsername.trim().isEmpty()) {
@@ -84,15 +88,12 @@ public class SocialServiceImpl implements SocialService {
         friendRequest.setCreatedAt(LocalDateTime.now());
         friendRequest.setUpdatedAt(LocalDateTime.now());
         friendRequestMapper.insert(friendRequest);
+        // 接收方的待处理请求列表已变化
+        cacheInvalidationBus.publish(CacheInvalidationEvent.friendRequest(toUserId));
     }
 
     @Override
     @Transactional
-    @Caching(evict = {
-        @CacheEvict(value = "friendList", key = "#friendRequest.fromUserId"),
-        @CacheEvict(value = "friendList", key = "#friendRequest.toUserId"),
-        @CacheEvict(value = "friendRequest", key = "#userId")
-    })
     public void acceptFriendRequest(Long requestId, Long userId) {
         FriendRequest friendRequest = friendRequestMapper.selectById(requestId);
         if (friendRequest == null) {
@@ -122,6 +123,12 @@ public class SocialServiceImpl implements SocialService {
         friend2.setFriendId(friendRequest.getFromUserId());
         friend2.setCreatedAt(LocalDateTime.now());
         friendMapper.insert(friend2);
+
+        // 提交后失效双方好友列表和接收方的待处理请求
+        cacheInvalidationBus.publish(
+                CacheInvalidationEvent.friendList(friendRequest.getFromUserId()),
+                CacheInvalidationEvent.friendList(friendRequest.getToUserId()),
+                CacheInvalidationEvent.friendRequest(userId));
     }
 
     @Override
@@ -142,10 +149,11 @@ public class SocialServiceImpl implements SocialService {
         friendRequest.setStatus(2);
         friendRequest.setUpdatedAt(LocalDateTime.now());
         friendRequestMapper.updateById(friendRequest);
+        cacheInvalidationBus.publish(CacheInvalidationEvent.friendRequest(userId));
     }
 
     @Override
-    @Cacheable(value = "friendRequest", key = "#userId")
+    @Cacheable(value = "friendRequest", key = "#userId", sync = true)
     public List<FriendRequest> getPendingFriendRequests(Long userId) {
         QueryWrapper<FriendRequest> queryWrapper = new QueryWrapper<>();
         queryWrapper.eq("to_user_id", userId)
@@ -163,7 +171,7 @@ public class SocialServiceImpl implements SocialService {
     }
 
     @Override
-    @Cacheable(value = "friendList", key = "#userId")
+    @Cacheable(value = "friendList", key = "#userId", sync = true)
     public List<Friend> getFriendList(Long userId) {
         QueryWrapper<Friend> queryWrapper = new QueryWrapper<>();
         queryWrapper.eq("user_id", userId)
@@ -218,8 +226,6 @@ public class SocialServiceImpl implements SocialService {
     
     @Override
     @Transactional
-    // 移除缓存清理注解，因为已经不使用聊天消息缓存了
-    @CacheEvict(value = "unreadCount", key = "#toUserId")
     public Message sendMessage(Long fromUserId, Long toUserId, String content) {
         System.out.println("=== 发送消息 ===");
         System.out.println("发送者ID: " + fromUserId);
@@ -242,6 +248,8 @@ public class SocialServiceImpl implements SocialService {
         message.setIsRead(0);
         message.setTimestamp(LocalDateTime.now());
         messageMapper.insert(message);
+        // 在方法内发布失效事件：经 sendMessage(..., persist) 等同类方法调用时同样生效
+        cacheInvalidationBus.publish(CacheInvalidationEvent.unreadCount(toUserId));
         
         System.out.println("✅ 消息发送成功，消息ID: " + message.getId());
         return message;
@@ -259,7 +267,7 @@ public class SocialServiceImpl implements SocialService {
             message.setTimestamp(LocalDateTime.now());
             return message;
         }
-        // persist == true：调用原有持久化实现（包含缓存清理注解）
+        // persist == true：调用原有持久化实现（包含缓存失效）
         return sendMessage(fromUserId, toUserId, content);
     }
 
@@ -285,7 +293,7 @@ public class SocialServiceImpl implements SocialService {
     }
 
     @Override
-    @Cacheable(value = "unreadCount", key = "#userId")
+    @Cacheable(value = "unreadCount", key = "#userId", sync = true)
     public int getUnreadCount(Long userId) {
         QueryWrapper<Message> queryWrapper = new QueryWrapper<>();
         queryWrapper.eq("to_user_id", userId)
@@ -295,7 +303,6 @@ public class SocialServiceImpl implements SocialService {
 
     @Override
     @Transactional
-    @CacheEvict(value = "unreadCount", key = "#userId")
     public void markAsRead(Long messageId, Long userId) {
         Message message = messageMapper.selectById(messageId);
         if (message == null) {
@@ -306,5 +313,6 @@ public class SocialServiceImpl implements SocialService {
         }
         message.setIsRead(1);
         messageMapper.updateById(message);
+        cacheInvalidationBus.publish(CacheInvalidationEvent.unreadCount(userId));
     }
 }
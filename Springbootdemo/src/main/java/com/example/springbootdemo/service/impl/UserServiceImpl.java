@@ -5,9 +5,10 @@ import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.example.springbootdemo.entity.User;
 import com.example.springbootdemo.mapper.UserMapper;
+import com.example.springbootdemo.service.CacheInvalidationBus;
+import com.example.springbootdemo.service.CacheInvalidationEvent;
 import com.example.springbootdemo.service.UserService;
 import jakarta.annotation.Resource;
-import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.stereotype.Service;
@@ -25,6 +26,9 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User> implements Us
 	@Resource
 	private StringRedisTemplate stringRedisTemplate;
 
+	@Resource
+	private CacheInvalidationBus cacheInvalidationBus;
+
     private static final Logger logger = LoggerFactory.getLogger(UserServiceImpl.class);
 
 	@Override
@@ -49,7 +53,6 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User> implements Us
 	}
 
 	@Override
-	@CacheEvict(value = "user", key = "'username:' + #user.username")
 	public String register(User user) {
 		LambdaQueryWrapper<User> queryWrapper = new LambdaQueryWrapper<>();
 		queryWrapper.eq(User::getUsername, user.getUsername());
@@ -83,9 +86,26 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User> implements Us
 		}
 
 		save(user);
+		cacheInvalidationBus.publish(CacheInvalidationEvent.user(user.getUsername()));
 		return null;
 	}
 
+	@Override
+	public boolean updateById(User user) {
+		// 用户名可能被修改，新旧用户名的缓存都要失效
+		User before = user.getId() == null ? null : getById(user.getId());
+		boolean updated = super.updateById(user);
+		if (updated) {
+			if (before != null) {
+				cacheInvalidationBus.publish(CacheInvalidationEvent.user(before.getUsername()));
+			}
+			if (user.getUsername() != null) {
+				cacheInvalidationBus.publish(CacheInvalidationEvent.user(user.getUsername()));
+			}
+		}
+		return updated;
+	}
+
 	@Override
 	public boolean changeId(Long oldId, Long newId) {
 		if (oldId == null || newId == null) return false;
@@ -95,11 +115,16 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User> implements Us
 		// newId 不能已存在
 		User exist = getById(newId);
 		if (exist != null) return false;		int updated = baseMapper.changeId(oldId, newId);
+		if (updated > 0) {
+			// 按用户名缓存的用户信息中包含旧 id
+			cacheInvalidationBus.publish(CacheInvalidationEvent.user(oldUser.getUsername()));
+		}
 		return updated > 0;
 	}
 
 	@Override
-	@Cacheable(value = "user", key = "'username:' + #username", unless = "#result == null")
+	// sync 不支持 unless；两级缓存不缓存 null，效果相同
+	@Cacheable(value = "user", key = "'username:' + #username", sync = true)
 	public User getUserByUsername(String username) {
 		if (username == null || username.trim().isEmpty()) {		return null;
 		}
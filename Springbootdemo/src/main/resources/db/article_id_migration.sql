@@ -0,0 +1,44 @@
+-- 文章主键迁移：随机 UUID -> 按创建时间递增的 UUIDv7
+-- 前置条件：已执行 optimistic_lock.sql（article.version 列）
+-- 执行前停止应用（迁移期间不能有文章写入），执行后清除 Redis 中的文章缓存并重启应用（migrate-articles.sh ids 会完成这些步骤）
+-- 新 ID = create_time 的毫秒时间戳 + MD5(旧 ID) 的随机位：同一旧 ID 总是得到同一新 ID；已经是 UUIDv7 的 ID 保持不变
+
+-- 1. 旧 ID -> 新 ID 映射（迁移后保留，用于旧链接跳转或回滚）
+CREATE TABLE IF NOT EXISTS `article_id_map` (
+  `old_id` VARCHAR(64) NOT NULL COMMENT '迁移前的文章ID',
+  `new_id` CHAR(36) CHARACTER SET ascii COLLATE ascii_bin NOT NULL COMMENT '迁移后的文章ID',
+  PRIMARY KEY (`old_id`),
+  UNIQUE KEY `uk_new_id` (`new_id`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='文章ID迁移映射表';
+
+INSERT IGNORE INTO `article_id_map` (`old_id`, `new_id`)
+SELECT id,
+       CASE
+           WHEN CHAR_LENGTH(id) = 36 AND SUBSTRING(id, 15, 1) = '7' THEN LOWER(id)
+           ELSE LOWER(CONCAT(
+               SUBSTRING(ts, 1, 8), '-', SUBSTRING(ts, 9, 4), '-',
+               '7', SUBSTRING(h, 1, 3), '-',
+               HEX(8 + CONV(SUBSTRING(h, 4, 1), 16, 10) % 4), SUBSTRING(h, 5, 3), '-',
+               SUBSTRING(h, 8, 12)))
+       END
+FROM (
+    SELECT id,
+           LPAD(HEX(FLOOR(UNIX_TIMESTAMP(COALESCE(create_time, update_time, NOW())) * 1000)), 12, '0') AS ts,
+           MD5(id) AS h
+    FROM `article`
+) t;
+
+-- 2. 按新主键顺序写入新表：顺序插入使聚簇索引紧凑；主键改为 ASCII 定长，二级索引随之变小
+DROP TABLE IF EXISTS `article_new`;
+CREATE TABLE `article_new` LIKE `article`;
+ALTER TABLE `article_new` MODIFY `id` CHAR(36) CHARACTER SET ascii COLLATE ascii_bin NOT NULL;
+
+INSERT INTO `article_new` (id, title, content, author, category, position, version, create_time, update_time)
+SELECT m.new_id, a.title, a.content, a.author, a.category, a.position, a.version, a.create_time, a.update_time
+FROM `article` a
+JOIN `article_id_map` m ON m.old_id = a.id
+ORDER BY m.new_id;
+
+-- 3. 原子切换，旧表保留为 article_old，确认无误后手动删除
+RENAME TABLE `article` TO `article_old`, `article_new` TO `article`;
+-- DROP TABLE `article_old`;
@@ -0,0 +1,9 @@
+-- 会话更新时间改为非空（已有数据库执行）
+-- 会话列表按 (updated_at, id) 游标分页，NULL 行既不满足游标条件也无法生成下一页游标，会被跳过或截断分页
+
+UPDATE `conversation`
+SET `updated_at` = COALESCE(`created_at`, NOW())
+WHERE `updated_at` IS NULL;
+
+ALTER TABLE `conversation`
+    MODIFY COLUMN `updated_at` DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '更新时间';
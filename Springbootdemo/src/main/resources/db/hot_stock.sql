@@ -0,0 +1,5 @@
+-- 热点商品标记与已写回的累计已售数量（已有数据库执行）
+-- 非空表示库存以 Redis 为准，数据库不再直接扣减该商品
+
+ALTER TABLE `product`
+    ADD COLUMN `hot_sold` BIGINT NULL COMMENT 'Redis 热点商品已写回的累计已售数量，NULL=非热点' AFTER `bucket_count`;
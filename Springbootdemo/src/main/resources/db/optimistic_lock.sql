@@ -0,0 +1,7 @@
+-- 商品与文章的乐观锁版本号（已有数据库执行）
+
+ALTER TABLE `product`
+    ADD COLUMN `version` INT NOT NULL DEFAULT 0 COMMENT '乐观锁版本号';
+
+ALTER TABLE `article`
+    ADD COLUMN `version` INT NOT NULL DEFAULT 0 COMMENT '乐观锁版本号';
@@ -90,3 +90,11 @@ ALTER TABLE `product`
 
 -- 分析表统计信息（定期执行）
 -- ANALYZE TABLE `user`, `friend_request`, `friend`, `message`;
+
+-- ===================================
+-- 会话/消息游标分页
+-- ===================================
+-- 按消息 ID 游标翻页、查询每个会话最后一条消息
+ALTER TABLE `message_record` 
+    ADD INDEX `idx_conversation_id` (`conversation_id`, `id`) 
+    COMMENT '对话+消息ID组合索引，优化游标分页和最后消息预览';
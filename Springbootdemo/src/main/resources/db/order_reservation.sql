@@ -0,0 +1,5 @@
+-- 订单库存预占ID（已有数据库执行）：对账任务据此判断预占的库存是否已写入订单
+
+ALTER TABLE `orders`
+    ADD COLUMN `reservation_id` VARCHAR(64) NULL COMMENT '库存预占ID，下单对账用',
+    ADD UNIQUE KEY `uk_reservation_id` (`reservation_id`);
@@ -0,0 +1,33 @@
+-- 订单与库存分桶相关表
+
+-- 商品表新增分桶数字段（已有数据库执行）
+ALTER TABLE `product`
+    ADD COLUMN `bucket_count` INT NOT NULL DEFAULT 0 COMMENT '库存分桶数：0=不分桶';
+
+-- 订单表
+CREATE TABLE IF NOT EXISTS `orders` (
+  `id` BIGINT NOT NULL AUTO_INCREMENT COMMENT '主键',
+  `user_id` BIGINT NOT NULL COMMENT '下单用户ID',
+  `product_id` BIGINT NOT NULL COMMENT '商品ID',
+  `quantity` INT NOT NULL COMMENT '购买数量',
+  `unit_price` DECIMAL(10,2) NOT NULL COMMENT '下单时单价',
+  `total_amount` DECIMAL(12,2) NOT NULL COMMENT '订单总金额',
+  `status` TINYINT NOT NULL DEFAULT 0 COMMENT '订单状态：0=已创建，1=已取消',
+  `create_time` DATETIME COMMENT '创建时间',
+  `update_time` DATETIME COMMENT '更新时间',
+  `reservation_id` VARCHAR(64) NULL COMMENT '库存预占ID，下单对账用',
+  PRIMARY KEY (`id`),
+  UNIQUE KEY `uk_reservation_id` (`reservation_id`),
+  KEY `idx_user_create` (`user_id`, `create_time`),
+  KEY `idx_product_id` (`product_id`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='订单表';
+
+-- 商品库存分桶表：热点商品的库存拆分到多行，并发购买分散到不同的行锁
+CREATE TABLE IF NOT EXISTS `product_stock_bucket` (
+  `id` BIGINT NOT NULL AUTO_INCREMENT COMMENT '主键',
+  `product_id` BIGINT NOT NULL COMMENT '商品ID',
+  `bucket_no` INT NOT NULL COMMENT '桶编号',
+  `stock` INT NOT NULL DEFAULT 0 COMMENT '桶内库存',
+  PRIMARY KEY (`id`),
+  UNIQUE KEY `uk_product_bucket` (`product_id`, `bucket_no`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='商品库存分桶表';
@@ -5,7 +5,7 @@ CREATE TABLE IF NOT EXISTS conversation (
   user_id BIGINT,
   title VARCHAR(255),
   created_at DATETIME,
-  updated_at DATETIME
+  updated_at DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP -- 会话列表按 (updated_at, id) 游标分页，不能为空
 );
 
 CREATE TABLE IF NOT EXISTS message_record (
@@ -17,12 +17,13 @@ CREATE TABLE IF NOT EXISTS message_record (
 );
 
 CREATE TABLE IF NOT EXISTS article (
-  id VARCHAR(64) PRIMARY KEY,
+  id CHAR(36) CHARACTER SET ascii COLLATE ascii_bin PRIMARY KEY, -- UUIDv7，按时间递增
   title VARCHAR(255) NOT NULL,
   content TEXT NOT NULL,
   author VARCHAR(64),
   category VARCHAR(64),
   position INT,
+  version INT NOT NULL DEFAULT 0,
   create_time DATETIME,
   update_time DATETIME
 );
@@ -33,6 +34,9 @@ CREATE TABLE IF NOT EXISTS product (
   price DECIMAL(10,2) NOT NULL COMMENT '商品价格',
   stock INT NOT NULL DEFAULT 0 COMMENT '库存数量',
   status TINYINT NOT NULL DEFAULT 0 COMMENT '商品状态：0=下架，1=上架',
+  bucket_count INT NOT NULL DEFAULT 0 COMMENT '库存分桶数：0=不分桶',
+  hot_sold BIGINT NULL COMMENT 'Redis 热点商品已写回的累计已售数量，NULL=非热点',
+  version INT NOT NULL DEFAULT 0 COMMENT '乐观锁版本号',
   create_time DATETIME COMMENT '创建时间'
 );
 
@@ -0,0 +1,54 @@
+package com.example.springbootdemo.config;
+
+import com.fasterxml.jackson.annotation.JsonTypeInfo;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.jsontype.impl.LaissezFaireSubTypeValidator;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 紧凑序列化器：加载信息（XFetch 提前刷新的依据）只在 writeCompact 开启时写入
+ */
+class CacheValueSerializerTest {
+
+    private final ObjectMapper compactMapper = new ObjectMapper();
+
+    private CacheValueSerializer serializer(boolean writeCompact) {
+        ObjectMapper legacyMapper = new ObjectMapper();
+        legacyMapper.activateDefaultTyping(LaissezFaireSubTypeValidator.instance,
+                ObjectMapper.DefaultTyping.NON_FINAL, JsonTypeInfo.As.PROPERTY);
+        return new CacheValueSerializer(compactMapper, compactMapper.constructType(String.class),
+                new GenericJackson2JsonRedisSerializer(legacyMapper), writeCompact, 1024,
+                new CacheMetrics().region("test"));
+    }
+
+    @Test
+    void legacyFormatCarriesNoLoadMetadata() {
+        CacheValueSerializer legacy = serializer(false);
+        byte[] bytes = legacy.serialize(new CachedValue("value", 1000L, 50));
+
+        // 旧格式读出的是原始值，两级缓存不会对其做提前刷新
+        assertThat(legacy.deserialize(bytes)).isEqualTo("value");
+        assertThat(serializer(true).deserialize(bytes)).isEqualTo("value");
+    }
+
+    @Test
+    void compactFormatKeepsLoadMetadata() {
+        CacheValueSerializer compact = serializer(true);
+        Object read = compact.deserialize(compact.serialize(new CachedValue("value", 1000L, 50)));
+
+        assertThat(read).isEqualTo(new CachedValue("value", 1000L, 50));
+    }
+
+    @Test
+    void compactFormatCompressesLargeValues() {
+        CacheValueSerializer compact = serializer(true);
+        String large = "x".repeat(10_000);
+        byte[] bytes = compact.serialize(large);
+
+        assertThat(bytes.length).isLessThan(large.length());
+        assertThat(CachedValue.unwrap(compact.deserialize(bytes))).isEqualTo(large);
+    }
+}
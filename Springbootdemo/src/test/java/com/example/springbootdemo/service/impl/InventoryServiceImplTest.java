@@ -0,0 +1,267 @@
+package com.example.springbootdemo.service.impl;
+
+import com.baomidou.mybatisplus.core.conditions.update.UpdateWrapper;
+import com.example.springbootdemo.entity.Product;
+import com.example.springbootdemo.mapper.ProductMapper;
+import com.example.springbootdemo.mapper.ProductStockBucketMapper;
+import com.example.springbootdemo.service.ProductCatalog;
+import jakarta.annotation.Resource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 热点库存：Redis 为准、累计已售数量写回数据库
+ * 使用开发环境的 MySQL（需已执行 db/hot_stock.sql）和 Redis，执行真实的 Lua 脚本和 SQL；
+ * 每个用例新建一个商品，结束后删除商品和对应的 Redis key。
+ * 应用中的定时写回任务同时在运行，写回是幂等的，断言不依赖它是否已执行
+ */
+@SpringBootTest
+class InventoryServiceImplTest {
+
+    @Resource
+    private ProductMapper productMapper;
+    @Resource
+    private ProductStockBucketMapper productStockBucketMapper;
+    @Resource
+    private ProductCatalog productCatalog;
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+    @Resource
+    private TransactionTemplate transactionTemplate;
+
+    private Long id;
+
+    @BeforeEach
+    void createProduct() {
+        Product product = new Product();
+        product.setName("inventory-test-" + UUID.randomUUID());
+        product.setPrice(BigDecimal.ONE);
+        product.setStock(100);
+        product.setStatus(0);
+        product.setBucketCount(0);
+        product.setVersion(0);
+        product.setCreateTime(LocalDateTime.now());
+        productMapper.insert(product);
+        id = product.getId();
+    }
+
+    @AfterEach
+    void deleteProduct() {
+        stringRedisTemplate.delete(List.of("stock:hot:" + id, "stock:hot:sold:" + id));
+        stringRedisTemplate.opsForSet().remove("stock:hot:ids", String.valueOf(id));
+        stringRedisTemplate.opsForHash().keys("stock:hot:reservations").stream()
+                .filter(field -> String.valueOf(field).startsWith(id + ":"))
+                .forEach(field -> stringRedisTemplate.opsForHash().delete("stock:hot:reservations", field));
+        productMapper.deleteById(id);
+    }
+
+    @Test
+    void concurrentDeductAndMarkHotSellsExactlyTheStock() throws Exception {
+        InventoryServiceImpl inventory = newInstance(stringRedisTemplate);
+        AtomicInteger sold = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(20);
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            futures.add(pool.submit(() -> {
+                while (true) {
+                    try {
+                        if (!inventory.deduct(id, 1)) {
+                            return null;
+                        }
+                        sold.incrementAndGet();
+                        started.countDown();
+                    } catch (IllegalStateException busy) {
+                        // 标记热点期间快速失败，重试
+                        Thread.sleep(1);
+                    }
+                }
+            }));
+        }
+        started.await(10, TimeUnit.SECONDS);
+        inventory.markHot(id);
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+
+        assertThat(sold.get()).isEqualTo(100);
+        assertThat(redisStock()).isEqualTo("0");
+        inventory.flushPending();
+        assertThat(product().getStock()).isZero();
+        assertThat(inventory.stats().get("driftAlarms")).isEqualTo(0L);
+    }
+
+    @Test
+    void flushIsIdempotentAndSurvivesRestart() {
+        setDbStock(10);
+        InventoryServiceImpl first = newInstance(stringRedisTemplate);
+        first.markHot(id);
+        assertThat(first.deduct(id, 3)).isTrue();
+        first.flushPending();
+        first.flushPending();
+        assertThat(product().getStock()).isEqualTo(7);
+        assertThat(product().getHotSold()).isEqualTo(3L);
+
+        // 售出后、写回前节点崩溃：已售数量在 Redis 中，新实例和旧实例重复写回都只扣一次
+        assertThat(first.deduct(id, 2)).isTrue();
+        InventoryServiceImpl restarted = newInstance(stringRedisTemplate);
+        restarted.flushPending();
+        restarted.flushPending();
+        first.flushPending();
+        assertThat(product().getStock()).isEqualTo(5);
+        assertThat(product().getHotSold()).isEqualTo(5L);
+        assertThat(redisStock()).isEqualTo("5");
+
+        // 新实例不依赖本地状态，继续以 Redis 为准
+        assertThat(restarted.deduct(id, 5)).isTrue();
+        assertThat(restarted.deduct(id, 1)).isFalse();
+        first.flushPending();
+        assertThat(product().getStock()).isZero();
+    }
+
+    @Test
+    void hotProductFailsClosedWhenRedisIsDown() {
+        setDbStock(10);
+        newInstance(stringRedisTemplate).markHot(id);
+
+        // 指向没有 Redis 的端口，模拟 Redis 不可用
+        LettuceConnectionFactory factory = new LettuceConnectionFactory(new RedisStandaloneConfiguration("127.0.0.1", 1));
+        factory.afterPropertiesSet();
+        factory.start();
+        try {
+            InventoryServiceImpl inventory = newInstance(new StringRedisTemplate(factory));
+            assertThatThrownBy(() -> inventory.deduct(id, 1)).isInstanceOf(IllegalStateException.class);
+            assertThatThrownBy(() -> inventory.release(id, 1)).isInstanceOf(IllegalStateException.class);
+        } finally {
+            factory.destroy();
+        }
+        assertThat(product().getStock()).isEqualTo(10);
+        assertThat(redisStock()).isEqualTo("10");
+    }
+
+    @Test
+    void lostHotKeyFailsClosedAndReloadKeepsUnflushedSales() {
+        setDbStock(10);
+        InventoryServiceImpl inventory = newInstance(stringRedisTemplate);
+        inventory.markHot(id);
+        assertThat(inventory.deduct(id, 4)).isTrue();
+        stringRedisTemplate.delete("stock:hot:" + id);
+
+        assertThatThrownBy(() -> inventory.deduct(id, 1)).isInstanceOf(IllegalStateException.class);
+        assertThat(inventory.markHot(id)).isEqualTo(6);
+        inventory.flushPending();
+        assertThat(product().getStock()).isEqualTo(6);
+    }
+
+    @Test
+    void adminStockEditIsAppliedToRedisAsDelta() {
+        setDbStock(10);
+        InventoryServiceImpl inventory = newInstance(stringRedisTemplate);
+        inventory.markHot(id);
+        assertThat(inventory.deduct(id, 4)).isTrue();
+        inventory.flushPending();
+
+        assertThat(inventory.setStock(id, 11)).isEqualTo(11);
+        assertThat(redisStock()).isEqualTo("11");
+        assertThat(inventory.deduct(id, 1)).isTrue();
+        inventory.flushPending();
+        assertThat(product().getStock()).isEqualTo(10);
+
+        inventory.setStock(id, 0);
+        assertThat(redisStock()).isEqualTo("0");
+        inventory.flushPending();
+        assertThat(product().getStock()).isZero();
+        assertThat(inventory.stats().get("driftAlarms")).isEqualTo(0L);
+    }
+
+    @Test
+    void unmarkHotWritesBackSalesAndReturnsToDatabase() {
+        setDbStock(10);
+        InventoryServiceImpl inventory = newInstance(stringRedisTemplate);
+        inventory.markHot(id);
+        assertThat(inventory.deduct(id, 3)).isTrue();
+
+        inventory.unmarkHot(id);
+        assertThat(product().getStock()).isEqualTo(7);
+        assertThat(product().getHotSold()).isNull();
+        assertThat(redisStock()).isNull();
+        assertThat(stringRedisTemplate.hasKey("stock:hot:sold:" + id)).isFalse();
+
+        assertThat(inventory.deduct(id, 1)).isTrue();
+        assertThat(product().getStock()).isEqualTo(6);
+    }
+
+    @Test
+    void flushRaisesAlarmInsteadOfClampingDrift() {
+        setDbStock(10);
+        InventoryServiceImpl inventory = newInstance(stringRedisTemplate);
+        inventory.markHot(id);
+        // 数据库库存被外部改小，不够扣减 Redis 中随后售出的数量
+        setDbStock(5);
+        assertThat(inventory.deduct(id, 8)).isTrue();
+
+        inventory.flushPending();
+        assertThat(product().getStock()).isEqualTo(5);
+        assertThat(product().getHotSold()).isZero();
+        assertThat(inventory.stats().get("driftAlarms")).isEqualTo(1L);
+    }
+
+    @Test
+    void abandonedReservationIsReleasedOnceAndCommittedOneIsKept() {
+        setDbStock(10);
+        InventoryServiceImpl inventory = newInstance(stringRedisTemplate);
+        inventory.markHot(id);
+        assertThat(inventory.deduct(id, 2, "committed")).isTrue();
+        assertThat(inventory.deduct(id, 3, "abandoned")).isTrue();
+        assertThat(redisStock()).isEqualTo("5");
+
+        // 订单写入前进程崩溃：只有 abandoned 没有对应的订单
+        assertThat(inventory.reconcileReservations(0, "committed"::equals)).isEqualTo(1);
+        assertThat(redisStock()).isEqualTo("8");
+        assertThat(inventory.reconcileReservations(0, rid -> false)).isZero();
+        inventory.cancelReservation(id, "abandoned", 3);
+        assertThat(redisStock()).isEqualTo("8");
+
+        inventory.flushPending();
+        assertThat(product().getStock()).isEqualTo(8);
+    }
+
+    private InventoryServiceImpl newInstance(StringRedisTemplate redis) {
+        return new InventoryServiceImpl(productMapper, productStockBucketMapper, productCatalog, redis,
+                transactionTemplate);
+    }
+
+    private Product product() {
+        return productMapper.selectById(id);
+    }
+
+    private String redisStock() {
+        return stringRedisTemplate.opsForValue().get("stock:hot:" + id);
+    }
+
+    private void setDbStock(int stock) {
+        productMapper.update(null, new UpdateWrapper<Product>().set("stock", stock).eq("id", id));
+    }
+}
@@ -1,29 +1,51 @@
 #!/bin/bash
-# 迁移Redis中的文章到MySQL
-
-echo "开始迁移Redis文章到MySQL..."
-
-# 获取所有文章key
-keys=$(redis-cli --scan --pattern "article:*" | grep -v "article:order" | grep -v "article:list")
-
-count=0
-for key in $keys; do
-    # 获取文章JSON数据
-    article_json=$(redis-cli GET "$key")
-    
-    if [ ! -z "$article_json" ] && [ "$article_json" != "(nil)" ]; then
-        echo "迁移: $key"
-        
-        # 通过API创建文章（会自动保存到MySQL）
-        curl -s -X POST http://localhost:8080/api/mainPage \
-          -H "Content-Type: application/json" \
-          -d "$article_json" > /dev/null
-        
-        ((count++))
-        echo "  -> 已迁移 $count 篇文章"
-    fi
-done
-
-echo "迁移完成！共迁移 $count 篇文章"
-echo "验证MySQL中的文章数量："
-mysql -u root -p -e "USE \`0813-demo\`; SELECT COUNT(*) as total FROM article;"
+# 文章迁移脚本
+#   ./migrate-articles.sh        迁移Redis中的文章到MySQL（默认）
+#   ./migrate-articles.sh ids    将MySQL中已有文章的随机UUID主键迁移为按时间递增的UUIDv7（需先停止应用）
+
+DB="0813-demo"
+SCHEMA_DIR="$(dirname "$0")/Springbootdemo/src/main/resources/db"
+
+migrate_redis() {
+    echo "开始迁移Redis文章到MySQL..."
+
+    # 获取所有文章key（排除排序、列表和正文缓存）
+    keys=$(redis-cli --scan --pattern "article:*" | grep -v "article:order" | grep -v "article:list" | grep -v "article:body:")
+
+    count=0
+    for key in $keys; do
+        # 获取文章JSON数据
+        article_json=$(redis-cli GET "$key")
+
+        if [ ! -z "$article_json" ] && [ "$article_json" != "(nil)" ]; then
+            echo "迁移: $key"
+
+            # 通过API创建文章（会自动保存到MySQL，并分配新的UUIDv7主键）
+            curl -s -X POST http://localhost:8080/api/mainPage \
+              -H "Content-Type: application/json" \
+              -d "$article_json" > /dev/null
+
+            ((count++))
+            echo "  -> 已迁移 $count 篇文章"
+        fi
+    done
+
+    echo "迁移完成！共迁移 $count 篇文章"
+    echo "验证MySQL中的文章数量："
+    mysql -u root -p -e "USE \`$DB\`; SELECT COUNT(*) as total FROM article;"
+}
+
+migrate_ids() {
+    echo "开始迁移文章主键为UUIDv7（请确认应用已停止）..."
+    mysql -u root -p "$DB" < "$SCHEMA_DIR/article_id_migration.sql" || exit 1
+
+    # 正文缓存按旧ID存储，全部清除；搜索索引在应用启动时按数据库自动校准
+    redis-cli --scan --pattern "article:body:*" | xargs -r redis-cli DEL > /dev/null
+    echo "主键迁移完成，旧表保留为 article_old，映射关系见 article_id_map"
+}
+
+case "${1:-redis}" in
+    redis) migrate_redis ;;
+    ids) migrate_ids ;;
+    *) echo "用法: $0 [redis|ids]"; exit 1 ;;
+esac
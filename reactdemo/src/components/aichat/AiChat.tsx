@@ -33,6 +33,12 @@ interface Message {
   timestamp: Date;
 }
 
+// 一次发送的幂等键：优先使用 crypto.randomUUID（仅安全上下文可用）
+const newRequestId = (): string =>
+  typeof crypto !== 'undefined' && typeof crypto.randomUUID === 'function'
+    ? crypto.randomUUID()
+    : `${Date.now().toString(36)}-${Math.random().toString(36).slice(2)}`;
+
 interface AiChatProps {
   isOpen: boolean;
   onClose: () => void;
@@ -55,6 +61,11 @@ const AiChat: React.FC<AiChatProps> = ({ isOpen, onClose }) => {
     const saved = localStorage.getItem('currentConversationId');
     return saved ? parseInt(saved, 10) : null;
   });
+
+  // 发送中标记（同步判断，避免连续两次回车在状态更新前重复发送）
+  const sendingRef = useRef(false);
+  // 未成功的发送：重试同一会话的同一条消息时复用 clientRequestId，后端据此合并重复提交
+  const pendingSendRef = useRef<{ content: string; conversationId: number | null; requestId: string } | null>(null);
   // 初始化语音识别
   useEffect(() => {
     // 检查浏览器是否支持 Web Speech API
@@ -260,7 +271,15 @@ const AiChat: React.FC<AiChatProps> = ({ isOpen, onClose }) => {
 
   // 发送消息（包含 conversationId）
   const handleSendMessage = async () => {
-    if (!inputValue.trim() || isLoading) return;
+    if (!inputValue.trim() || isLoading || sendingRef.current) return;
+    sendingRef.current = true;
+
+    const pending = pendingSendRef.current;
+    const requestId =
+      pending && pending.content === inputValue && pending.conversationId === currentConversationId
+        ? pending.requestId
+        : newRequestId();
+    pendingSendRef.current = { content: inputValue, conversationId: currentConversationId, requestId };
 
     const userMessage: Message = {
       id: Date.now().toString(),
@@ -274,10 +293,11 @@ const AiChat: React.FC<AiChatProps> = ({ isOpen, onClose }) => {
     setIsLoading(true);
 
     try {
-      const response = await aiApi.chat(inputValue, currentConversationId ?? undefined);
+      const response = await aiApi.chat(inputValue, currentConversationId ?? undefined, requestId);
       const { code, data, message } = response.data;
 
       if (code === 200) {
+        pendingSendRef.current = null;
         // 后端返回的data现在是一个对象：{conversationId: xxx, response: "AI回复"}
         const conversationId = data.conversationId;
         const aiResponse = data.response;
@@ -316,6 +336,7 @@ const AiChat: React.FC<AiChatProps> = ({ isOpen, onClose }) => {
       };
       setMessages((prev) => [...prev, errorMessage]);
     } finally {
+      sendingRef.current = false;
       setIsLoading(false);
     }
   };
@@ -8,10 +8,11 @@ import './MainPage.css';
 interface Article {
   id: string;
   title: string;
-  content: string;
+  content?: string;
   author: string;
   category?: string;
   position?: number;
+  version?: number;
   createTime: string;
   updateTime: string;
 }
@@ -92,7 +93,8 @@ const MainPage: React.FC = () => {
   const loadArticles = async () => {
     setIsLoading(true);
     try {
-      const response = await api.get('/mainPage');
+      // 目录接口不包含文章内容，内容在选中文章时单独加载
+      const response = await api.get('/mainPage/directory');
       const { code, data } = response.data;
 
       if (code === 200) {
@@ -203,7 +205,24 @@ const MainPage: React.FC = () => {
   };
 
   // 编辑文章
-  const handleEditArticle = (article: Article) => {
+  const handleEditArticle = async (article: Article) => {
+    // 目录项不包含内容，编辑前先加载完整文章
+    if (article.content === undefined) {
+      try {
+        const response = await api.get(`/mainPage/${article.id}`);
+        const { code, data } = response.data;
+        if (code !== 200) {
+          alert('加载文章失败');
+          return;
+        }
+        article = data as Article;
+      } catch (error) {
+        console.error('加载文章详情出错:', error);
+        alert('加载文章详情失败');
+        return;
+      }
+    }
+    setSelectedArticle(article);
     setEditingArticle({ ...article });
   };
 
@@ -217,23 +236,27 @@ const MainPage: React.FC = () => {
     }
 
     try {
-      const payload: any = {
-        title: editingArticle.title,
-        content: editingArticle.content,
-        author: editingArticle.author,
-        category: editingArticle.category,
-      };
-      if (editingArticle.position !== undefined) payload.position = editingArticle.position;
+      // 只提交修改过的字段，并携带版本号防止覆盖他人的修改
+      const original = selectedArticle && selectedArticle.id === editingArticle.id
+        ? selectedArticle
+        : articles.find(a => a.id === editingArticle.id);
+      const payload: any = { version: editingArticle.version };
+      (['title', 'content', 'author', 'category', 'position'] as const).forEach(key => {
+        if (editingArticle[key] !== undefined && (!original || editingArticle[key] !== original[key])) {
+          payload[key] = editingArticle[key];
+        }
+      });
 
       const response = await api.put(`/mainPage/${editingArticle.id}`, payload);
-      const { code, data } = response.data;
+      const { code, data, msg } = response.data;
       if (code === 200) {
         alert('保存成功');
-        setSelectedArticle(data as Article);
+        // 接口只返回修改的字段和新版本号，合并到编辑中的文章上
+        setSelectedArticle({ ...editingArticle, ...(data as Partial<Article>) });
         setEditingArticle(null);
         loadArticles();
       } else {
-        alert('保存失败');
+        alert('保存失败' + (msg ? ': ' + msg : ''));
       }
     } catch (error) {
       console.error('保存编辑出错:', error);
@@ -241,22 +264,26 @@ const MainPage: React.FC = () => {
     }
   };
 
-  // 移动文章
-  const handleMoveArticle = async (articleId: string, direction: 'up' | 'down') => {
-    const idx = articles.findIndex(a => a.id === articleId);
+  // 移动文章：在当前显示的列表中与相邻文章交换位置，后端只修改被移动文章的 position
+  const handleMoveArticle = async (articleId: string, direction: 'up' | 'down', list: Article[]) => {
+    const idx = list.findIndex(a => a.id === articleId);
     if (idx === -1) return;
     const targetIdx = direction === 'up' ? idx - 1 : idx + 1;
-    if (targetIdx < 0 || targetIdx >= articles.length) return;
+    if (targetIdx < 0 || targetIdx >= list.length) return;
 
-    const a = articles[idx];
-    const b = articles[targetIdx];
-    const posA = a.position ?? (idx + 1);
-    const posB = b.position ?? (targetIdx + 1);
+    // 移动后的前后相邻文章
+    const prev = direction === 'up' ? list[idx - 2] : list[idx + 1];
+    const next = direction === 'up' ? list[idx - 1] : list[idx + 2];
 
     try {
-      await api.put(`/mainPage/${a.id}`, { position: -1 });
-      await api.put(`/mainPage/${b.id}`, { position: posA });
-      await api.put(`/mainPage/${a.id}`, { position: posB });
+      const response = await api.put(`/mainPage/${articleId}/position`, {
+        prevId: prev?.id,
+        nextId: next?.id,
+      });
+      const { code, msg } = response.data;
+      if (code !== 200) {
+        alert('移动失败' + (msg ? ': ' + msg : ''));
+      }
       loadArticles();
     } catch (error) {
       console.error('移动文章出错:', error);
@@ -350,7 +377,7 @@ const MainPage: React.FC = () => {
                       {articles.filter(a => (a.category || '未分类') === selectedCategory).length === 0 ? (
                         <li className="empty">该分类下暂无文章</li>
                       ) : (
-                        articles.filter(a => (a.category || '未分类') === selectedCategory).map((article, index) => (
+                        articles.filter(a => (a.category || '未分类') === selectedCategory).map((article, index, visible) => (
                           <li key={article.id} className={selectedArticle?.id === article.id ? 'active' : ''}>
                             <div className="article-item" onClick={() => handleSelectArticle(article.id)}>
                               <h3>{article.title}</h3>
@@ -361,9 +388,9 @@ const MainPage: React.FC = () => {
                               </p>
                             </div>
                             <div className="article-actions">
-                              <button className="move-btn" title="上移" onClick={(e) => { e.stopPropagation(); handleMoveArticle(article.id, 'up'); }} disabled={index === 0}>↑</button>
-                              <button className="move-btn" title="下移" onClick={(e) => { e.stopPropagation(); handleMoveArticle(article.id, 'down'); }} disabled={index === articles.length - 1}>↓</button>
-                              <button className="edit-btn" title="编辑" onClick={(e) => { e.stopPropagation(); setSelectedArticle(article); handleEditArticle(article); }}>编辑</button>
+                              <button className="move-btn" title="上移" onClick={(e) => { e.stopPropagation(); handleMoveArticle(article.id, 'up', visible); }} disabled={index === 0}>↑</button>
+                              <button className="move-btn" title="下移" onClick={(e) => { e.stopPropagation(); handleMoveArticle(article.id, 'down', visible); }} disabled={index === visible.length - 1}>↓</button>
+                              <button className="edit-btn" title="编辑" onClick={(e) => { e.stopPropagation(); handleEditArticle(article); }}>编辑</button>
                               <button className="delete-btn" onClick={(e) => { e.stopPropagation(); handleDeleteArticle(article.id); }}>删除</button>
                             </div>
                           </li>
@@ -8,6 +8,7 @@ interface Product {
   price: number;
   stock: number;
   status: number;
+  version?: number;
   createTime: string;
 }
 
@@ -81,8 +82,14 @@ const ShopDashboard: React.FC = () => {
 
     try {
       if (editingProduct) {
-        // 更新商品
-        const response = await productApi.updateProduct(editingProduct.id, productData);
+        // 更新商品：只提交修改过的字段，并携带版本号防止覆盖他人的修改
+        const changes: any = { version: editingProduct.version };
+        (Object.keys(productData) as (keyof typeof productData)[]).forEach(key => {
+          if (productData[key] !== editingProduct[key]) {
+            changes[key] = productData[key];
+          }
+        });
+        const response = await productApi.updateProduct(editingProduct.id, changes);
         if (response.data.code === 200) {
           alert('商品更新成功');
           closeModal();
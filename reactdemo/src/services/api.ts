@@ -97,8 +97,9 @@ export const userApi = {
 // AI 相关 API
 export const aiApi = {
   // 发送消息到 AI，可传入可选的 conversationId，单次请求也使用较长的超时时间作为保险
-  chat: (message: string, conversationId?: number | null) => {
-    return api.post('/ai/chat', { message, conversationId }, { timeout: 120000 });
+  // clientRequestId 用于后端合并重复提交（重试时保持不变）
+  chat: (message: string, conversationId?: number | null, clientRequestId?: string) => {
+    return api.post('/ai/chat', { message, conversationId, clientRequestId }, { timeout: 120000 });
   }
 };
 
@@ -172,6 +173,30 @@ export const productApi = {
     return api.put(`/admin/products/${id}/off-shelf`);
   },
   
+  // 管理端 - 批量上架
+  batchOnShelf: (ids: number[]) => {
+    return api.put('/admin/products/batch/on-shelf', { ids });
+  },
+
+  // 管理端 - 批量下架
+  batchOffShelf: (ids: number[]) => {
+    return api.put('/admin/products/batch/off-shelf', { ids });
+  },
+
+  // 管理端 - 批量导入（文件内容直接作为请求体上传）
+  importProducts: (file: File, format: 'csv' | 'json' = 'csv') => {
+    return api.post('/admin/products/import', file, {
+      params: { format },
+      headers: { 'Content-Type': format === 'json' ? 'application/json' : 'text/csv' },
+      timeout: 0
+    });
+  },
+
+  // 管理端 - 导出商品
+  exportProducts: (format: 'csv' | 'json' = 'csv') => {
+    return api.get('/admin/products/export', { params: { format }, responseType: 'blob', timeout: 0 });
+  },
+
   // 用户端 - 获取上架商品列表
   getOnShelfProducts: () => {
     return api.get('/products');
@@ -187,6 +212,19 @@ export const productApi = {
   // 用户端 - 获取商品详情（仅上架）
   getOnShelfProductById: (id: number) => {
     return api.get(`/products/${id}`);
+  },
+
+  // 用户端 - 搜索上架商品（名称关键词 + 价格区间 + 排序）
+  searchProducts: (params: {
+    keyword?: string;
+    minPrice?: number;
+    maxPrice?: number;
+    sort?: 'price' | 'createTime';
+    order?: 'asc' | 'desc';
+    pageNum?: number;
+    pageSize?: number;
+  }) => {
+    return api.get('/products/search', { params });
   }
 };
 